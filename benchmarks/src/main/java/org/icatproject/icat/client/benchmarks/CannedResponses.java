@@ -0,0 +1,85 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+
+/** Builds ICAT responses and request payloads of a chosen size */
+public class CannedResponses {
+
+	private CannedResponses() {
+	}
+
+	/**
+	 * @param count
+	 *              the number of entities
+	 *
+	 * @return the result of a search for investigations
+	 */
+	public static String entities(int count) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"Investigation\":{\"id\":").append(i + 1).append(",\"name\":\"INV-").append(i)
+					.append("\",\"visitId\":\"1\",\"title\":\"Investigation number ").append(i)
+					.append(" of the benchmark\",\"startDate\":\"2024-01-01T00:00:00.000Z\",\"createId\":\"db/root\"}}");
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * @param count
+	 *              the number of documents
+	 *
+	 * @return one page of the result of a document search with no following
+	 *         page
+	 */
+	public static String documents(int count) {
+		StringBuilder sb = new StringBuilder("{\"results\":[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"id\":").append(i + 1).append(",\"score\":1.5,\"source\":{\"id\":").append(i + 1)
+					.append(",\"name\":\"INV-").append(i).append("\",\"title\":\"Investigation number ").append(i)
+					.append("\",\"visitId\":\"1\"}}");
+		}
+		return sb.append("],\"search_after\":null}").toString();
+	}
+
+	/**
+	 * @param count
+	 *              the number of entities
+	 *
+	 * @return a Json array of datafiles to be written
+	 */
+	public static String write(int count) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"Datafile\":{\"name\":\"file ").append(i)
+					.append(" & more.dat\",\"location\":\"/data/a b/c?d=").append(i)
+					.append("\",\"fileSize\":1024,\"dataset\":{\"id\":42}}}");
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * @param size
+	 *             the approximate number of bytes
+	 *
+	 * @return a metadata file in the export format
+	 */
+	public static byte[] export(int size) {
+		StringBuilder sb = new StringBuilder("# Version of file format\n4.0\n\nDatafile(name:0, location:1, fileSize:2)\n");
+		int i = 0;
+		while (sb.length() < size) {
+			sb.append("\"file ").append(i).append(".dat\", \"/data/").append(i).append("\", 1024\n");
+			i++;
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,47 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.icatproject.icat.client.ICAT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a call made by a new ICAT instance, which must build its
+ * connection pool and executor and open a connection, with the same call
+ * made by an instance whose pooled connection is already open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionBenchmark extends StubState {
+
+	@Benchmark
+	public String newClient() throws Exception {
+		try (ICAT fresh = new ICAT(server.getUrl())) {
+			return fresh.getVersion();
+		}
+	}
+
+	@Benchmark
+	public String pooledClient() throws Exception {
+		return icat.getVersion();
+	}
+
+	@Benchmark
+	public Object login() throws Exception {
+		return icat.login("db", Map.of("username", "root", "password", "secret"));
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.icatproject.icat.client.Session.Attributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading an export through the stream returned by
+ * {@link org.icatproject.icat.client.Session#exportMetaData(Attributes)}.
+ * Divide the size by the time for the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark extends StubState {
+
+	@Param({ "65536", "4194304", "67108864" })
+	public int bytes;
+
+	@Setup(Level.Trial)
+	public void setResponse() {
+		server.setExport(CannedResponses.export(bytes));
+	}
+
+	@Benchmark
+	public long readAll() throws Exception {
+		try (InputStream in = session.exportMetaData(Attributes.USER)) {
+			return in.transferTo(OutputStream.nullOutputStream());
+		}
+	}
+
+	@Benchmark
+	public long readSmallBuffer() throws Exception {
+		long total = 0;
+		byte[] buffer = new byte[512];
+		try (InputStream in = session.exportMetaData(Attributes.USER)) {
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				total += n;
+			}
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading a search result as a string and parsing it, either whole
+ * or as a stream of entities, and the parsing of a single value from a small
+ * response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark extends StubState {
+
+	private static final String query = "SELECT i FROM Investigation i WHERE i.name LIKE 'INV-%'";
+
+	@Param({ "1", "100", "10000" })
+	public int entities;
+
+	@Setup(Level.Trial)
+	public void setResponse() {
+		server.setEntities(CannedResponses.entities(entities));
+	}
+
+	@Benchmark
+	public String search() throws Exception {
+		return session.search(query);
+	}
+
+	@Benchmark
+	public long searchStream() throws Exception {
+		return session.searchStream(query).count();
+	}
+
+	@Benchmark
+	public double remainingMinutes() throws Exception {
+		return session.getRemainingMinutes();
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+
+import org.icatproject.icat.client.ParameterForLucene;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a free text search of investigations, which builds a Json query
+ * from dates, parameters and facets and sends it in the URI.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchDocumentsBenchmark extends StubState {
+
+	@Param({ "10", "1000" })
+	public int documents;
+
+	private Date lower = new Date(1577836800000L);
+	private Date upper = new Date(1735689600000L);
+	private List<ParameterForLucene> parameters;
+	private JsonArray facets;
+
+	@Setup(Level.Trial)
+	public void setResponse() {
+		server.setDocuments(CannedResponses.documents(documents));
+		parameters = Arrays.asList(new ParameterForLucene("colour", "name", "green"),
+				new ParameterForLucene("temperature", "K", 4.2, 300.0),
+				new ParameterForLucene("run", "date", lower, upper));
+		facets = Json.createArrayBuilder()
+				.add(Json.createObjectBuilder().add("target", "Investigation").add("dimensions",
+						Json.createArrayBuilder().add(Json.createObjectBuilder().add("dimension", "type.name"))))
+				.build();
+	}
+
+	@Benchmark
+	public String minimalQuery() throws Exception {
+		return session.searchInvestigations(null, "neutron", null, null, null, null, null, 100, null, null);
+	}
+
+	@Benchmark
+	public String fullQuery() throws Exception {
+		return session.searchInvestigations("db/root", "neutron AND (powder OR single)", lower, upper, parameters,
+				"Root User", null, 100, "{\"date\":\"desc\"}", facets);
+	}
+
+}
@@ -0,0 +1,147 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server which answers the requests of the ICAT client with
+ * canned responses so that the cost of the client itself can be measured.
+ * Request bodies are read and discarded. The responses to searches, document
+ * searches and exports may be replaced to vary their size.
+ */
+public class StubIcatServer implements AutoCloseable {
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private AtomicLong bytesReceived = new AtomicLong();
+	private volatile byte[] entities = CannedResponses.entities(1).getBytes(StandardCharsets.UTF_8);
+	private volatile byte[] documents = CannedResponses.documents(1).getBytes(StandardCharsets.UTF_8);
+	private volatile byte[] export = CannedResponses.export(1024);
+
+	/**
+	 * Start a server on an ephemeral port of the loopback interface
+	 *
+	 * @throws IOException
+	 *                     if the server cannot be started
+	 */
+	public StubIcatServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 200);
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+		server.setExecutor(executor);
+		server.createContext("/icat/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * @return the URL to pass to the ICAT constructor
+	 */
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the number of bytes of request body read so far
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * @param json
+	 *             the response to GET entityManager
+	 */
+	public void setEntities(String json) {
+		entities = json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param json
+	 *             the response to GET search/documents
+	 */
+	public void setDocuments(String json) {
+		documents = json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param export
+	 *               the response to GET port
+	 */
+	public void setExport(byte[] export) {
+		this.export = export;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			try (InputStream in = exchange.getRequestBody()) {
+				byte[] buffer = new byte[65536];
+				int n;
+				while ((n = in.read(buffer)) >= 0) {
+					bytesReceived.addAndGet(n);
+				}
+			}
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath().substring("/icat/".length());
+			if (path.equals("version")) {
+				send(exchange, 200, "{\"version\":\"6.0.0\"}");
+			} else if (path.equals("properties")) {
+				send(exchange, 200, "{\"maxEntities\":10000,\"lifetimeMinutes\":120}");
+			} else if (path.equals("session") && method.equals("POST")) {
+				send(exchange, 200, "{\"sessionId\":\"stub-session\"}");
+			} else if (path.startsWith("session/") && method.equals("GET")) {
+				send(exchange, 200, "{\"userName\":\"db/root\",\"remainingMinutes\":120.0}");
+			} else if (path.startsWith("session/")) {
+				send(exchange, 200, (byte[]) null);
+			} else if (path.equals("entityManager") && method.equals("GET")) {
+				send(exchange, 200, entities);
+			} else if (path.equals("entityManager") && method.equals("POST")) {
+				send(exchange, 200, "[1]");
+			} else if (path.equals("entityManager")) {
+				send(exchange, 200, (byte[]) null);
+			} else if (path.equals("search/documents")) {
+				send(exchange, 200, documents);
+			} else if (path.equals("port") && method.equals("GET")) {
+				send(exchange, 200, export);
+			} else if (path.equals("port")) {
+				send(exchange, 200, (byte[]) null);
+			} else {
+				send(exchange, 404, "{\"code\":\"NOT_IMPLEMENTED\",\"message\":\"No stub for " + method + " " + path + "\"}");
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, String body) throws IOException {
+		send(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+		} else {
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+	/** Stop the server */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.util.Map;
+
+import org.icatproject.icat.client.ICAT;
+import org.icatproject.icat.client.Session;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Starts a {@link StubIcatServer} and logs in to it for each trial. Benchmark
+ * states extend this and adjust the canned responses in their own setup.
+ */
+public abstract class StubState {
+
+	protected StubIcatServer server;
+	protected ICAT icat;
+	protected Session session;
+
+	@Setup(Level.Trial)
+	public void startServer() throws Exception {
+		server = new StubIcatServer();
+		icat = new ICAT(server.getUrl());
+		session = icat.login("db", Map.of("username", "root", "password", "secret"));
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() {
+		icat.close();
+		server.close();
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.icatproject.icat.client.benchmarks;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the form encoding and sending of entities to be written, from a
+ * string, which is encoded in memory, and from Json values, which are
+ * streamed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark extends StubState {
+
+	@Param({ "1", "100", "10000" })
+	public int entities;
+
+	private String json;
+	private JsonArray values;
+
+	@Setup(Level.Trial)
+	public void buildPayload() {
+		json = CannedResponses.write(entities);
+		try (JsonReader reader = Json.createReader(new StringReader(json))) {
+			values = reader.readArray();
+		}
+	}
+
+	@Benchmark
+	public List<Long> writeString() throws Exception {
+		return session.write(json);
+	}
+
+	@Benchmark
+	public List<Long> writeStreamed() throws Exception {
+		return session.write((Iterable<JsonValue>) values);
+	}
+
+}
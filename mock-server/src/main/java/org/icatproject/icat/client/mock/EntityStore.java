@@ -0,0 +1,248 @@
+package org.icatproject.icat.client.mock;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * The entities held by a {@link MockIcatServer}.
+ * <p>
+ * No schema is known: an entity is a type name and a set of fields, each of
+ * which is a string, number, boolean or null, or a reference to another
+ * entity written as a Json object holding only its id. Lists of related
+ * entities are not kept, so fields holding them are rejected. Ids are unique
+ * across all types, so a reference can be followed without knowing the type
+ * of its target. As in ICAT, the fields createId, createTime, modId and
+ * modTime are maintained by the store.
+ * <p>
+ * Entities may be added directly, to prepare the data for a test, or through
+ * the server. All methods are thread safe.
+ */
+public class EntityStore {
+
+	/** The fields maintained by the store rather than set by the user */
+	static final List<String> systemFields = List.of("createId", "createTime", "modId", "modTime");
+
+	static class Entity {
+		final String type;
+		final long id;
+		final Map<String, JsonValue> fields = new LinkedHashMap<>();
+
+		Entity(String type, long id) {
+			this.type = type;
+			this.id = id;
+		}
+
+		/** Return the value of a field, "id" included */
+		JsonValue get(String field) {
+			return field.equals("id") ? Json.createValue(id) : fields.get(field);
+		}
+
+		JsonObject toJson() {
+			JsonObjectBuilder builder = Json.createObjectBuilder().add("id", id);
+			for (Map.Entry<String, JsonValue> field : fields.entrySet()) {
+				builder.add(field.getKey(), field.getValue());
+			}
+			return builder.build();
+		}
+	}
+
+	private Map<Long, Entity> entities = new TreeMap<>();
+	private long nextId = 1;
+
+	/**
+	 * Create an entity
+	 *
+	 * @param type
+	 *               the entity type such as "Investigation"
+	 * @param fields
+	 *               the fields of the entity, without an id
+	 * @param user
+	 *               the name of the user to record as its creator
+	 *
+	 * @return the id of the new entity
+	 *
+	 * @throws MockIcatException
+	 *                           BAD_PARAMETER if a field is not a simple value or
+	 *                           a reference to an existing entity and
+	 *                           NOT_IMPLEMENTED if it is a list of related
+	 *                           entities
+	 */
+	public synchronized long create(String type, JsonObject fields, String user) {
+		if (fields.containsKey("id")) {
+			throw new MockIcatException(IcatExceptionType.BAD_PARAMETER, "New " + type + " must not have an id");
+		}
+		Entity entity = new Entity(type, nextId++);
+		String now = Instant.now().toString();
+		entity.fields.put("createId", Json.createValue(user));
+		entity.fields.put("createTime", Json.createValue(now));
+		entity.fields.put("modId", Json.createValue(user));
+		entity.fields.put("modTime", Json.createValue(now));
+		setFields(entity, fields);
+		entities.put(entity.id, entity);
+		return entity.id;
+	}
+
+	/**
+	 * Change the fields of an entity
+	 *
+	 * @param type
+	 *               the entity type
+	 * @param id
+	 *               the id of the entity
+	 * @param fields
+	 *               the fields to change
+	 * @param user
+	 *               the name of the user to record as its modifier
+	 *
+	 * @throws MockIcatException
+	 *                           NO_SUCH_OBJECT_FOUND if there is no such entity,
+	 *                           BAD_PARAMETER if a field is not valid and
+	 *                           NOT_IMPLEMENTED if it is a list of related
+	 *                           entities. The entity is not changed if any
+	 *                           field is rejected.
+	 */
+	public synchronized void update(String type, long id, JsonObject fields, String user) {
+		Entity entity = find(type, id);
+		setFields(entity, fields);
+		entity.fields.put("modId", Json.createValue(user));
+		entity.fields.put("modTime", Json.createValue(Instant.now().toString()));
+	}
+
+	/**
+	 * Check all the fields before any is set so that an entity is not left
+	 * partly changed by a bad request
+	 */
+	private void setFields(Entity entity, JsonObject fields) {
+		Map<String, JsonValue> checked = new LinkedHashMap<>();
+		for (Map.Entry<String, JsonValue> field : fields.entrySet()) {
+			String name = field.getKey();
+			JsonValue value = field.getValue();
+			if (name.equals("id") || systemFields.contains(name)) {
+				continue;
+			}
+			ValueType valueType = value.getValueType();
+			if (valueType == ValueType.ARRAY) {
+				throw new MockIcatException(IcatExceptionType.NOT_IMPLEMENTED, "Field " + name + " of "
+						+ entity.type + " is a list of related entities which the mock server does not keep");
+			}
+			if (valueType == ValueType.OBJECT) {
+				JsonObject reference = value.asJsonObject();
+				JsonValue targetId = reference.get("id");
+				if (reference.size() != 1 || targetId == null || targetId.getValueType() != ValueType.NUMBER) {
+					throw new MockIcatException(IcatExceptionType.BAD_PARAMETER,
+							"Field " + name + " of " + entity.type + " must refer to an existing entity by its id only");
+				}
+				long target = reference.getJsonNumber("id").longValue();
+				if (!entities.containsKey(target)) {
+					throw new MockIcatException(IcatExceptionType.NO_SUCH_OBJECT_FOUND,
+							"Field " + name + " of " + entity.type + " refers to missing entity " + target);
+				}
+			}
+			checked.put(name, value);
+		}
+		entity.fields.putAll(checked);
+	}
+
+	/**
+	 * Delete an entity
+	 *
+	 * @param type
+	 *             the entity type
+	 * @param id
+	 *             the id of the entity
+	 *
+	 * @throws MockIcatException
+	 *                           NO_SUCH_OBJECT_FOUND if there is no such entity
+	 */
+	public synchronized void delete(String type, long id) {
+		find(type, id);
+		entities.remove(id);
+	}
+
+	/**
+	 * Return an entity as it would be returned by ICAT
+	 *
+	 * @param type
+	 *             the entity type
+	 * @param id
+	 *             the id of the entity
+	 *
+	 * @return the Json object holding the type and fields of the entity
+	 *
+	 * @throws MockIcatException
+	 *                           NO_SUCH_OBJECT_FOUND if there is no such entity
+	 */
+	public synchronized JsonObject get(String type, long id) {
+		return Json.createObjectBuilder().add(type, find(type, id).toJson()).build();
+	}
+
+	/**
+	 * Return the number of entities of a type
+	 *
+	 * @param type
+	 *             the entity type
+	 *
+	 * @return the number of entities
+	 */
+	public synchronized int count(String type) {
+		int n = 0;
+		for (Entity entity : entities.values()) {
+			if (entity.type.equals(type)) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/** Remove all the entities */
+	public synchronized void clear() {
+		entities.clear();
+	}
+
+	synchronized Entity find(String type, long id) {
+		Entity entity = entities.get(id);
+		if (entity == null || !entity.type.equals(type)) {
+			throw new MockIcatException(IcatExceptionType.NO_SUCH_OBJECT_FOUND, type + "[id:" + id + "] not found.");
+		}
+		return entity;
+	}
+
+	/** Return the entity with an id, whatever its type, or null */
+	synchronized Entity find(long id) {
+		return entities.get(id);
+	}
+
+	/** Return a snapshot of the entities of a type in order of id */
+	synchronized List<Entity> list(String type) {
+		List<Entity> result = new ArrayList<>();
+		for (Entity entity : entities.values()) {
+			if (entity.type.equals(type)) {
+				result.add(entity);
+			}
+		}
+		return result;
+	}
+
+	/** Return the types of the entities in the store in alphabetical order */
+	synchronized List<String> types() {
+		TreeSet<String> types = new TreeSet<>();
+		for (Entity entity : entities.values()) {
+			types.add(entity.type);
+		}
+		return new ArrayList<>(types);
+	}
+
+}
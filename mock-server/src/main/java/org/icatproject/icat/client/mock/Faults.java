@@ -0,0 +1,175 @@
+package org.icatproject.icat.client.mock;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * The latency and failures which a {@link MockIcatServer} adds to requests.
+ * By default there are none. All setters return the faults so that calls may
+ * be chained, for example:
+ *
+ * <pre>
+ * server.setFaults(new Faults().setLatencyMillis(5, 50).setErrorRate(0.01, IcatExceptionType.INTERNAL));
+ * </pre>
+ *
+ * Each request first waits for a latency chosen uniformly between the minimum
+ * and maximum. It may then be dropped, by closing the connection without a
+ * response, answered with HTTP 503 and no body, or answered with an ICAT
+ * error, each with the probability set. The choices are random unless a seed
+ * is set, in which case the same sequence of requests meets the same faults.
+ */
+public class Faults {
+
+	private long minLatencyMillis;
+	private long maxLatencyMillis;
+	private double dropRate;
+	private double unavailableRate;
+	private double errorRate;
+	private IcatExceptionType errorType = IcatExceptionType.INTERNAL;
+	private SplittableRandom random;
+
+	/**
+	 * Set the range of the latency added to each request
+	 *
+	 * @param minLatencyMillis
+	 *                         the minimum in milliseconds
+	 * @param maxLatencyMillis
+	 *                         the maximum in milliseconds
+	 *
+	 * @return these faults
+	 */
+	public Faults setLatencyMillis(long minLatencyMillis, long maxLatencyMillis) {
+		if (minLatencyMillis < 0 || maxLatencyMillis < minLatencyMillis) {
+			throw new IllegalArgumentException("latency must satisfy 0 <= min <= max");
+		}
+		this.minLatencyMillis = minLatencyMillis;
+		this.maxLatencyMillis = maxLatencyMillis;
+		return this;
+	}
+
+	/**
+	 * Set the fraction of requests whose connection is closed without a
+	 * response, which the client sees as an IOException
+	 *
+	 * @param dropRate
+	 *                 the probability from 0 to 1
+	 *
+	 * @return these faults
+	 */
+	public Faults setDropRate(double dropRate) {
+		this.dropRate = checkRate(dropRate);
+		return this;
+	}
+
+	/**
+	 * Set the fraction of requests answered with HTTP 503, as a proxy in
+	 * front of an overloaded server would
+	 *
+	 * @param unavailableRate
+	 *                        the probability from 0 to 1
+	 *
+	 * @return these faults
+	 */
+	public Faults setUnavailableRate(double unavailableRate) {
+		this.unavailableRate = checkRate(unavailableRate);
+		return this;
+	}
+
+	/**
+	 * Set the fraction of requests answered with an ICAT error
+	 *
+	 * @param errorRate
+	 *                  the probability from 0 to 1
+	 * @param errorType
+	 *                  the type of the error
+	 *
+	 * @return these faults
+	 */
+	public Faults setErrorRate(double errorRate, IcatExceptionType errorType) {
+		if (errorType == null) {
+			throw new IllegalArgumentException("errorType must not be null");
+		}
+		this.errorRate = checkRate(errorRate);
+		this.errorType = errorType;
+		return this;
+	}
+
+	/**
+	 * Set the seed from which the latencies and failures are chosen so that
+	 * a test is repeatable. Requests which are made concurrently may still
+	 * meet the faults in a different order.
+	 *
+	 * @param seed
+	 *             the seed
+	 *
+	 * @return these faults
+	 */
+	public synchronized Faults setSeed(long seed) {
+		random = new SplittableRandom(seed);
+		return this;
+	}
+
+	private static double checkRate(double rate) {
+		if (!(rate >= 0 && rate <= 1)) {
+			throw new IllegalArgumentException("rate must be from 0 to 1");
+		}
+		return rate;
+	}
+
+	/**
+	 * @return the minimum latency in milliseconds
+	 */
+	public long getMinLatencyMillis() {
+		return minLatencyMillis;
+	}
+
+	/**
+	 * @return the maximum latency in milliseconds
+	 */
+	public long getMaxLatencyMillis() {
+		return maxLatencyMillis;
+	}
+
+	/**
+	 * @return the fraction of requests dropped
+	 */
+	public double getDropRate() {
+		return dropRate;
+	}
+
+	/**
+	 * @return the fraction of requests answered with HTTP 503
+	 */
+	public double getUnavailableRate() {
+		return unavailableRate;
+	}
+
+	/**
+	 * @return the fraction of requests answered with an ICAT error
+	 */
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * @return the type of the ICAT errors
+	 */
+	public IcatExceptionType getErrorType() {
+		return errorType;
+	}
+
+	synchronized long nextLatencyMillis() {
+		if (maxLatencyMillis == 0) {
+			return 0;
+		}
+		return random == null ? ThreadLocalRandom.current().nextLong(minLatencyMillis, maxLatencyMillis + 1)
+				: random.nextLong(minLatencyMillis, maxLatencyMillis + 1);
+	}
+
+	synchronized boolean happens(double rate) {
+		return rate > 0 && (random == null ? ThreadLocalRandom.current().nextDouble() : random.nextDouble()) < rate;
+	}
+
+}
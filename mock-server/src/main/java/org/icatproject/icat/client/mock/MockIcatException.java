@@ -0,0 +1,56 @@
+package org.icatproject.icat.client.mock;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Reports a failure in the mock server. It is returned to the client as an
+ * ICAT error of the same type and message.
+ */
+@SuppressWarnings("serial")
+public class MockIcatException extends RuntimeException {
+
+	private IcatExceptionType type;
+	private int offset = -1;
+
+	/**
+	 * @param type
+	 *             the type of the ICAT error
+	 * @param msg
+	 *             the message
+	 */
+	public MockIcatException(IcatExceptionType type, String msg) {
+		super(msg);
+		this.type = type;
+	}
+
+	/**
+	 * @param type
+	 *               the type of the ICAT error
+	 * @param msg
+	 *               the message
+	 * @param offset
+	 *               the position in a list of entities at which the error
+	 *               occurred
+	 */
+	public MockIcatException(IcatExceptionType type, String msg, int offset) {
+		super(msg);
+		this.type = type;
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the type of the ICAT error
+	 */
+	public IcatExceptionType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the position in a list of entities at which the error occurred
+	 *         or -1 if it does not apply
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+}
@@ -0,0 +1,674 @@
+package org.icatproject.icat.client.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.mock.EntityStore.Entity;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An ICAT server which runs in the same JVM as its clients and keeps its
+ * entities in memory, for load, soak and regression testing without a real
+ * server. For example:
+ *
+ * <pre>
+ * try (MockIcatServer server = new MockIcatServer(); ICAT icat = new ICAT(server.getUrl())) {
+ * 	server.setFaults(new Faults().setLatencyMillis(2, 20));
+ * 	Session session = icat.login("db", Map.of("username", "root", "password", "secret"));
+ * 	...
+ * }
+ * </pre>
+ *
+ * It serves the parts of the REST interface used by the client: session,
+ * user, entityManager, port, search/documents, lucene/data, properties,
+ * version and waitMillis. Other requests fail with NOT_IMPLEMENTED.
+ * <p>
+ * The server is deliberately simple. Any credentials are accepted unless users
+ * have been added with {@link #addUser(String, String, String)}, every user may
+ * do anything, searches must be in the subset of the query language described
+ * in {@link Query}, free text searches match any string field containing any
+ * word of the text and the store has no schema, as described in
+ * {@link EntityStore}.
+ */
+public class MockIcatServer implements AutoCloseable {
+
+	private static class MockSession {
+		final String userName;
+		volatile long expiresAt;
+
+		MockSession(String userName, long expiresAt) {
+			this.userName = userName;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private EntityStore store = new EntityStore();
+	private PortFormat port = new PortFormat(store);
+	private Map<String, MockSession> sessions = new ConcurrentHashMap<>();
+	private Map<String, String> users = new ConcurrentHashMap<>();
+	private Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+	private Map<String, Map<String, String>> lastParameters = new ConcurrentHashMap<>();
+	private Map<String, Faults> endpointFaults = new ConcurrentHashMap<>();
+	private volatile Faults faults = new Faults();
+	private volatile int lifetimeMinutes = 120;
+	private volatile int maxEntities = 10000;
+
+	/**
+	 * Start a server on an ephemeral port of the loopback interface
+	 *
+	 * @throws IOException
+	 *                     if the server cannot be started
+	 */
+	public MockIcatServer() throws IOException {
+		this(0, 32);
+	}
+
+	/**
+	 * Start a server on the loopback interface
+	 *
+	 * @param port
+	 *                the port or 0 for an ephemeral one
+	 * @param threads
+	 *                the number of threads handling requests, which limits
+	 *                the number handled concurrently
+	 *
+	 * @throws IOException
+	 *                     if the server cannot be started
+	 */
+	public MockIcatServer(int port, int threads) throws IOException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive");
+		}
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+		ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = defaultFactory.newThread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/icat/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * @return the URL to pass to the ICAT constructor
+	 */
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the store holding the entities, which may be used to prepare
+	 *         data or to check the effect of calls
+	 */
+	public EntityStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Set the faults applied to requests to endpoints which have none of
+	 * their own
+	 *
+	 * @param faults
+	 *               the faults
+	 *
+	 * @return this server
+	 */
+	public MockIcatServer setFaults(Faults faults) {
+		if (faults == null) {
+			throw new IllegalArgumentException("faults must not be null");
+		}
+		this.faults = faults;
+		return this;
+	}
+
+	/**
+	 * Set the faults applied to requests to one endpoint
+	 *
+	 * @param endpoint
+	 *                 the endpoint such as "entityManager" or
+	 *                 "search/documents"
+	 * @param faults
+	 *                 the faults or null to use those set for all endpoints
+	 *
+	 * @return this server
+	 */
+	public MockIcatServer setFaults(String endpoint, Faults faults) {
+		if (faults == null) {
+			endpointFaults.remove(endpoint);
+		} else {
+			endpointFaults.put(endpoint, faults);
+		}
+		return this;
+	}
+
+	/**
+	 * Set the lifetime of sessions. The default is 120 minutes.
+	 *
+	 * @param lifetimeMinutes
+	 *                        the lifetime in minutes
+	 *
+	 * @return this server
+	 */
+	public MockIcatServer setLifetimeMinutes(int lifetimeMinutes) {
+		if (lifetimeMinutes < 1) {
+			throw new IllegalArgumentException("lifetimeMinutes must be positive");
+		}
+		this.lifetimeMinutes = lifetimeMinutes;
+		return this;
+	}
+
+	/**
+	 * Set the largest number of entities a search may return. The default is
+	 * 10000.
+	 *
+	 * @param maxEntities
+	 *                    the maximum number of entities
+	 *
+	 * @return this server
+	 */
+	public MockIcatServer setMaxEntities(int maxEntities) {
+		if (maxEntities < 1) {
+			throw new IllegalArgumentException("maxEntities must be positive");
+		}
+		this.maxEntities = maxEntities;
+		return this;
+	}
+
+	/**
+	 * Add a user who may log in. Once a user has been added only the users
+	 * added may log in.
+	 *
+	 * @param plugin
+	 *                 the mnemonic of the authentication plugin
+	 * @param username
+	 *                 the user name, which becomes plugin/username in ICAT
+	 * @param password
+	 *                 the password
+	 *
+	 * @return this server
+	 */
+	public MockIcatServer addUser(String plugin, String username, String password) {
+		users.put(plugin + "/" + username, password);
+		return this;
+	}
+
+	/**
+	 * Create a session without logging in, as if a client had done so
+	 *
+	 * @param userName
+	 *                 the name of the user such as "db/root"
+	 *
+	 * @return the session id
+	 */
+	public String createSession(String userName) {
+		String sessionId = UUID.randomUUID().toString();
+		sessions.put(sessionId, new MockSession(userName, expiry()));
+		return sessionId;
+	}
+
+	/**
+	 * Return the number of requests received for an endpoint, including
+	 * those failed by injected faults
+	 *
+	 * @param endpoint
+	 *                 the endpoint such as "entityManager"
+	 *
+	 * @return the number of requests
+	 */
+	public long getRequestCount(String endpoint) {
+		AtomicLong count = requestCounts.get(endpoint);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * Return the form parameters, from both the query string and the body, of
+	 * the last request for an endpoint which was not failed by an injected
+	 * fault
+	 *
+	 * @param endpoint
+	 *                 the endpoint such as "search/documents"
+	 *
+	 * @return the parameters or null if there has been no such request
+	 */
+	public Map<String, String> getLastParameters(String endpoint) {
+		return lastParameters.get(endpoint);
+	}
+
+	private long expiry() {
+		return System.currentTimeMillis() + lifetimeMinutes * 60000L;
+	}
+
+	private static String getEndpoint(String path) {
+		String[] segments = path.split("/", 3);
+		if (segments.length > 1 && (segments[0].equals("lucene") || segments[0].equals("search"))) {
+			return segments[0] + "/" + segments[1];
+		}
+		return segments[0];
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			byte[] body;
+			InputStream in = exchange.getRequestBody();
+			if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+				in = new GZIPInputStream(in);
+			}
+			try (InputStream bodyStream = in) {
+				body = bodyStream.readAllBytes();
+			}
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath().substring("/icat/".length());
+			String endpoint = getEndpoint(path);
+			requestCounts.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+
+			Faults applied = endpointFaults.getOrDefault(endpoint, faults);
+			long latency = applied.nextLatencyMillis();
+			if (latency > 0) {
+				Thread.sleep(latency);
+			}
+			if (applied.happens(applied.getDropRate())) {
+				return;
+			}
+			if (applied.happens(applied.getUnavailableRate())) {
+				exchange.sendResponseHeaders(503, -1);
+				return;
+			}
+			if (applied.happens(applied.getErrorRate())) {
+				throw new MockIcatException(applied.getErrorType(), "Injected " + applied.getErrorType() + " failure");
+			}
+
+			Map<String, String> params = Requests.parseForm(exchange.getRequestURI().getRawQuery());
+			String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+			if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+				params.putAll(Requests.parseForm(new String(body, StandardCharsets.UTF_8)));
+			}
+			lastParameters.put(endpoint, new HashMap<>(params));
+			String user = null;
+			if (params.containsKey("sessionId")) {
+				user = getUser(params.get("sessionId"));
+			}
+
+			if (path.equals("version") && method.equals("GET")) {
+				send(exchange, Json.createObjectBuilder().add("version", "6.0.0-mock").build());
+			} else if (path.equals("properties") && method.equals("GET")) {
+				send(exchange, getProperties());
+			} else if (path.equals("session") && method.equals("POST")) {
+				send(exchange, Json.createObjectBuilder().add("sessionId", login(params.get("json"))).build());
+			} else if (path.startsWith("session/")) {
+				session(exchange, method, path.substring("session/".length()));
+			} else if (path.startsWith("user/") && method.equals("GET")) {
+				String userName = path.substring("user/".length());
+				boolean loggedIn = sessions.values().stream().anyMatch(s -> s.userName.equals(userName));
+				send(exchange, Json.createObjectBuilder().add("userName", userName).add("loggedIn", loggedIn).build());
+			} else if (path.equals("entityManager")) {
+				entityManager(exchange, method, params, requireUser(user));
+			} else if (path.equals("port") && method.equals("GET")) {
+				exportMetaData(exchange, params.get("json"));
+			} else if (path.equals("port") && method.equals("POST")) {
+				importMetaData(exchange, body, contentType);
+			} else if (path.equals("search/documents") && method.equals("GET")) {
+				requireUser(user);
+				send(exchange, searchDocuments(params));
+			} else if (path.equals("lucene/data") && method.equals("GET")) {
+				requireUser(user);
+				send(exchange, searchLucene(params));
+			} else if (path.equals("waitMillis") && method.equals("POST")) {
+				requireUser(user);
+				Thread.sleep(Long.parseLong(params.get("ms")));
+				sendNothing(exchange);
+			} else {
+				throw new MockIcatException(IcatExceptionType.NOT_IMPLEMENTED,
+						method + " " + path + " is not implemented by the mock server");
+			}
+		} catch (MockIcatException e) {
+			sendError(exchange, e.getType(), e.getMessage(), e.getOffset());
+		} catch (JsonException | ClassCastException | NumberFormatException | NullPointerException e) {
+			sendError(exchange, IcatExceptionType.BAD_PARAMETER, e.getClass().getSimpleName() + " " + e.getMessage(),
+					-1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			sendError(exchange, IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage(), -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private String getUser(String sessionId) {
+		MockSession session = sessions.get(sessionId);
+		if (session == null || session.expiresAt < System.currentTimeMillis()) {
+			sessions.remove(sessionId);
+			throw new MockIcatException(IcatExceptionType.SESSION, "Unable to find user by sessionid: " + sessionId);
+		}
+		return session.userName;
+	}
+
+	private static String requireUser(String user) {
+		if (user == null) {
+			throw new MockIcatException(IcatExceptionType.SESSION, "No sessionId provided");
+		}
+		return user;
+	}
+
+	private JsonObject getProperties() {
+		JsonArrayBuilder authenticators = Json.createArrayBuilder();
+		authenticators.add(Json.createObjectBuilder().add("mnemonic", "db").add("keys", Json.createArrayBuilder()
+				.add(Json.createObjectBuilder().add("name", "username"))
+				.add(Json.createObjectBuilder().add("name", "password").add("hide", true))));
+		return Json.createObjectBuilder().add("maxEntities", maxEntities).add("lifetimeMinutes", lifetimeMinutes)
+				.add("authenticators", authenticators).add("containerType", "Mock").build();
+	}
+
+	private String login(String json) {
+		JsonObject request = parseObject(json);
+		String plugin = request.getString("plugin");
+		String username = null;
+		String password = null;
+		for (JsonValue credential : request.getJsonArray("credentials")) {
+			for (Map.Entry<String, JsonValue> entry : credential.asJsonObject().entrySet()) {
+				if (entry.getKey().equals("username")) {
+					username = ((JsonString) entry.getValue()).getString();
+				} else if (entry.getKey().equals("password")) {
+					password = ((JsonString) entry.getValue()).getString();
+				}
+			}
+		}
+		String userName = plugin + "/" + (username == null ? "anon" : username);
+		if (!users.isEmpty() && (password == null || !password.equals(users.get(userName)))) {
+			throw new MockIcatException(IcatExceptionType.SESSION, "The username and password do not match");
+		}
+		return createSession(userName);
+	}
+
+	private void session(HttpExchange exchange, String method, String sessionId) throws IOException {
+		String user = getUser(sessionId);
+		if (method.equals("GET")) {
+			MockSession session = sessions.get(sessionId);
+			double remaining = (session.expiresAt - System.currentTimeMillis()) / 60000.0;
+			send(exchange, Json.createObjectBuilder().add("userName", user).add("remainingMinutes", remaining).build());
+		} else if (method.equals("PUT")) {
+			sessions.get(sessionId).expiresAt = expiry();
+			sendNothing(exchange);
+		} else if (method.equals("DELETE")) {
+			sessions.remove(sessionId);
+			sendNothing(exchange);
+		} else {
+			throw new MockIcatException(IcatExceptionType.NOT_IMPLEMENTED, method + " session is not implemented");
+		}
+	}
+
+	private void entityManager(HttpExchange exchange, String method, Map<String, String> params, String user)
+			throws IOException {
+		if (method.equals("GET") && params.containsKey("id")) {
+			String type = params.get("query").trim().split("\\s+")[0];
+			send(exchange, store.get(type, Long.parseLong(params.get("id"))));
+		} else if (method.equals("GET")) {
+			JsonArray result = new Query(params.get("query"), store).execute();
+			if (result.size() > maxEntities) {
+				throw new MockIcatException(IcatExceptionType.VALIDATION,
+						"attempt to return more than " + maxEntities + " entities");
+			}
+			send(exchange, result);
+		} else if (method.equals("POST")) {
+			JsonArrayBuilder ids = Json.createArrayBuilder();
+			int offset = 0;
+			for (JsonObject entity : parseEntities(params.get("entities"))) {
+				try {
+					for (Map.Entry<String, JsonValue> entry : entity.entrySet()) {
+						JsonObject fields = entry.getValue().asJsonObject();
+						if (fields.containsKey("id")) {
+							store.update(entry.getKey(), fields.getJsonNumber("id").longValue(), fields, user);
+						} else {
+							ids.add(store.create(entry.getKey(), fields, user));
+						}
+					}
+				} catch (MockIcatException e) {
+					/* As ICAT does, report which entity failed */
+					throw new MockIcatException(e.getType(), e.getMessage(), offset);
+				}
+				offset++;
+			}
+			send(exchange, ids.build());
+		} else if (method.equals("DELETE")) {
+			for (JsonObject entity : parseEntities(params.get("entities"))) {
+				for (Map.Entry<String, JsonValue> entry : entity.entrySet()) {
+					store.delete(entry.getKey(), entry.getValue().asJsonObject().getJsonNumber("id").longValue());
+				}
+			}
+			sendNothing(exchange);
+		} else {
+			throw new MockIcatException(IcatExceptionType.NOT_IMPLEMENTED, method + " entityManager is not implemented");
+		}
+	}
+
+	private void exportMetaData(HttpExchange exchange, String json) throws IOException {
+		JsonObject request = parseObject(json);
+		getUser(request.getString("sessionId"));
+		String query = request.containsKey("query") ? request.getString("query") : null;
+		boolean all = "all".equals(request.getString("attributes", "user"));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		port.export(query, all, baos);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(200, baos.size());
+		try (OutputStream out = exchange.getResponseBody()) {
+			baos.writeTo(out);
+		}
+	}
+
+	private void importMetaData(HttpExchange exchange, byte[] body, String contentType) throws IOException {
+		Map<String, byte[]> parts = Requests.parseMultipart(body, contentType);
+		byte[] json = parts.get("json");
+		byte[] file = parts.get("file");
+		if (json == null || file == null) {
+			throw new MockIcatException(IcatExceptionType.BAD_PARAMETER, "Import needs json and file parts");
+		}
+		JsonObject request = parseObject(new String(json, StandardCharsets.UTF_8));
+		String user = getUser(request.getString("sessionId"));
+		port.importMetaData(new ByteArrayInputStream(file), user);
+		sendNothing(exchange);
+	}
+
+	/** Return the entities of the target type matching the text, in order of id */
+	private List<Entity> findDocuments(JsonObject query) {
+		String target = query.getString("target");
+		String text = query.getString("text", null);
+		List<String> words = new ArrayList<>();
+		if (text != null) {
+			for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+				if (!word.isEmpty() && !word.equals("and") && !word.equals("or") && !word.equals("not")) {
+					words.add(word);
+				}
+			}
+		}
+		List<Entity> result = new ArrayList<>();
+		synchronized (store) {
+			for (Entity entity : store.list(target)) {
+				if (words.isEmpty() || matchesAny(entity, words)) {
+					result.add(entity);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static boolean matchesAny(Entity entity, List<String> words) {
+		for (JsonValue value : entity.fields.values()) {
+			if (value.getValueType() == ValueType.STRING) {
+				String s = ((JsonString) value).getString().toLowerCase(Locale.ROOT);
+				for (String word : words) {
+					if (s.contains(word)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private JsonObject searchDocuments(Map<String, String> params) {
+		JsonObject query = parseObject(params.get("query"));
+		int maxCount = Integer.parseInt(params.get("maxCount"));
+		String searchAfter = params.get("search_after");
+		long after = searchAfter == null || searchAfter.isEmpty() ? 0 : Long.parseLong(searchAfter);
+		JsonArrayBuilder results = Json.createArrayBuilder();
+		int n = 0;
+		long last = 0;
+		boolean more = false;
+		for (Entity entity : findDocuments(query)) {
+			if (entity.id <= after) {
+				continue;
+			}
+			if (n == maxCount) {
+				more = true;
+				break;
+			}
+			synchronized (store) {
+				results.add(Json.createObjectBuilder().add("id", entity.id).add("score", 1.0).add("source",
+						entity.toJson()));
+			}
+			last = entity.id;
+			n++;
+		}
+		JsonObjectBuilder page = Json.createObjectBuilder().add("results", results);
+		if (more) {
+			page.add("search_after", last);
+		}
+		if (query.containsKey("facets")) {
+			page.add("dimensions", Json.createObjectBuilder());
+		}
+		return page.build();
+	}
+
+	private JsonArray searchLucene(Map<String, String> params) {
+		JsonObject query = parseObject(params.get("query"));
+		int maxCount = Integer.parseInt(params.get("maxCount"));
+		JsonArrayBuilder results = Json.createArrayBuilder();
+		int n = 0;
+		for (Entity entity : findDocuments(query)) {
+			if (n++ == maxCount) {
+				break;
+			}
+			results.add(Json.createObjectBuilder().add("id", entity.id).add("score", 1.0));
+		}
+		return results.build();
+	}
+
+	private static JsonObject parseObject(String json) {
+		if (json == null) {
+			throw new MockIcatException(IcatExceptionType.BAD_PARAMETER, "Missing json parameter");
+		}
+		try (JsonReader reader = Json.createReader(new StringReader(json))) {
+			return reader.readObject();
+		}
+	}
+
+	private static List<JsonObject> parseEntities(String json) {
+		if (json == null) {
+			throw new MockIcatException(IcatExceptionType.BAD_PARAMETER, "Missing entities parameter");
+		}
+		List<JsonObject> entities = new ArrayList<>();
+		try (JsonReader reader = Json.createReader(new StringReader(json))) {
+			JsonStructure structure = reader.read();
+			if (structure.getValueType() == ValueType.ARRAY) {
+				for (JsonValue value : structure.asJsonArray()) {
+					entities.add(value.asJsonObject());
+				}
+			} else {
+				entities.add(structure.asJsonObject());
+			}
+		}
+		return entities;
+	}
+
+	private static void send(HttpExchange exchange, JsonValue json) throws IOException {
+		send(exchange, 200, json.toString());
+	}
+
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void sendNothing(HttpExchange exchange) throws IOException {
+		exchange.sendResponseHeaders(200, -1);
+	}
+
+	/** Send an error with the status icat.server uses for its type */
+	private static void sendError(HttpExchange exchange, IcatExceptionType type, String message, int offset)
+			throws IOException {
+		int status;
+		switch (type) {
+		case SESSION:
+		case INSUFFICIENT_PRIVILEGES:
+			status = 403;
+			break;
+		case NO_SUCH_OBJECT_FOUND:
+			status = 404;
+			break;
+		case INTERNAL:
+			status = 500;
+			break;
+		case NOT_IMPLEMENTED:
+			status = 501;
+			break;
+		default:
+			status = 400;
+		}
+		JsonObjectBuilder error = Json.createObjectBuilder().add("code", type.name()).add("message",
+				message == null ? "" : message);
+		if (offset >= 0) {
+			error.add("offset", offset);
+		}
+		send(exchange, status, error.build().toString());
+	}
+
+	/** Stop the server, closing any open connections */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
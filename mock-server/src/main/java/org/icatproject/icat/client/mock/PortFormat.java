@@ -0,0 +1,302 @@
+package org.icatproject.icat.client.mock;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.json.Json;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
+
+import org.icatproject.icat.client.EntityDescriptor;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.PortReader;
+import org.icatproject.icat.client.PortWriter;
+import org.icatproject.icat.client.mock.EntityStore.Entity;
+
+/**
+ * Exports and imports the entities of an {@link EntityStore} in the metadata
+ * file format.
+ * <p>
+ * Without a schema the store cannot know the key fields of an entity, so an
+ * export names each entity by its id, in a column "id", and each reference as
+ * "field(id:n)". On import a reference may be given either by such an id,
+ * which is first looked up among the ids of the rows already imported, or as
+ * in a real ICAT file by the values of fields of its target, such as
+ * "facility(name:0)", in which case any entity with those values is taken.
+ * Anonymous variables are ignored. The duplicate action is not applied as no
+ * uniqueness constraints are known.
+ */
+class PortFormat {
+
+	private static final String version = "4.0";
+
+	private EntityStore store;
+
+	PortFormat(EntityStore store) {
+		this.store = store;
+	}
+
+	void export(String query, boolean all, OutputStream out) {
+		try {
+			PortWriter writer = new PortWriter(out, version);
+			synchronized (store) {
+				Map<String, List<Entity>> byType = new LinkedHashMap<>();
+				if (query == null) {
+					for (String type : store.types()) {
+						byType.put(type, store.list(type));
+					}
+				} else {
+					for (JsonValue value : new Query(query, store).execute()) {
+						if (value.getValueType() != ValueType.OBJECT) {
+							throw new MockIcatException(IcatExceptionType.BAD_PARAMETER,
+									"Export query must return entities: " + query);
+						}
+						for (Map.Entry<String, JsonValue> entry : value.asJsonObject().entrySet()) {
+							long id = entry.getValue().asJsonObject().getJsonNumber("id").longValue();
+							byType.computeIfAbsent(entry.getKey(), t -> new ArrayList<>()).add(store.find(id));
+						}
+					}
+				}
+				for (String type : orderByReference(byType)) {
+					writeSection(writer, type, byType.get(type), all);
+				}
+			}
+			writer.close();
+		} catch (IcatException e) {
+			throw new MockIcatException(e.getType(), e.getMessage());
+		}
+	}
+
+	/** Put referenced types before the types which refer to them, where possible */
+	private List<String> orderByReference(Map<String, List<Entity>> byType) {
+		Map<String, Set<String>> dependencies = new HashMap<>();
+		for (Map.Entry<String, List<Entity>> entry : byType.entrySet()) {
+			Set<String> targets = new LinkedHashSet<>();
+			for (Entity entity : entry.getValue()) {
+				for (JsonValue value : entity.fields.values()) {
+					if (value.getValueType() == ValueType.OBJECT) {
+						Entity target = store.find(value.asJsonObject().getJsonNumber("id").longValue());
+						if (target != null && !target.type.equals(entry.getKey()) && byType.containsKey(target.type)) {
+							targets.add(target.type);
+						}
+					}
+				}
+			}
+			dependencies.put(entry.getKey(), targets);
+		}
+		List<String> ordered = new ArrayList<>();
+		boolean progress = true;
+		while (ordered.size() < byType.size() && progress) {
+			progress = false;
+			for (String type : byType.keySet()) {
+				if (!ordered.contains(type) && ordered.containsAll(dependencies.get(type))) {
+					ordered.add(type);
+					progress = true;
+				}
+			}
+		}
+		for (String type : byType.keySet()) {
+			if (!ordered.contains(type)) {
+				ordered.add(type);
+			}
+		}
+		return ordered;
+	}
+
+	private void writeSection(PortWriter writer, String type, List<Entity> entities, boolean all)
+			throws IcatException {
+		List<String> fields = new ArrayList<>();
+		Set<String> references = new LinkedHashSet<>();
+		for (Entity entity : entities) {
+			for (Map.Entry<String, JsonValue> field : entity.fields.entrySet()) {
+				String name = field.getKey();
+				if (!fields.contains(name) && (all || !EntityStore.systemFields.contains(name))) {
+					fields.add(name);
+				}
+				if (field.getValue().getValueType() == ValueType.OBJECT) {
+					references.add(name);
+				}
+			}
+		}
+		StringBuilder sb = new StringBuilder(type).append("(id:0");
+		for (int i = 0; i < fields.size(); i++) {
+			String name = fields.get(i);
+			sb.append(", ").append(name);
+			if (references.contains(name)) {
+				sb.append("(id:").append(i + 1).append(')');
+			} else {
+				sb.append(':').append(i + 1);
+			}
+		}
+		writer.writeDescriptor(new EntityDescriptor(sb.append(')').toString()));
+		List<Object> row = new ArrayList<>();
+		for (Entity entity : entities) {
+			row.clear();
+			row.add(entity.id);
+			for (String name : fields) {
+				row.add(toJava(entity.fields.get(name)));
+			}
+			writer.writeRow(row);
+		}
+	}
+
+	private static Object toJava(JsonValue value) {
+		if (value == null) {
+			return null;
+		}
+		switch (value.getValueType()) {
+		case STRING:
+			return ((JsonString) value).getString();
+		case NUMBER:
+			JsonNumber number = (JsonNumber) value;
+			return number.isIntegral() ? (Object) number.longValue() : (Object) number.doubleValue();
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case OBJECT:
+			return value.asJsonObject().getJsonNumber("id").longValue();
+		default:
+			return null;
+		}
+	}
+
+	void importMetaData(InputStream in, String user) {
+		Map<Long, Long> ids = new HashMap<>();
+		try (PortReader reader = new PortReader(in)) {
+			EntityDescriptor descriptor;
+			while ((descriptor = reader.nextDescriptor()) != null) {
+				List<Object> row;
+				while ((row = reader.nextRow()) != null) {
+					if (row.size() < descriptor.getColumnCount()) {
+						throw new MockIcatException(IcatExceptionType.BAD_PARAMETER,
+								"Too few values in row for " + descriptor);
+					}
+					importRow(descriptor, row, user, ids);
+				}
+			}
+		} catch (IcatException e) {
+			throw new MockIcatException(e.getType(), e.getMessage());
+		}
+	}
+
+	private void importRow(EntityDescriptor descriptor, List<Object> row, String user, Map<Long, Long> ids) {
+		JsonObjectBuilder fields = Json.createObjectBuilder();
+		Long fileId = null;
+		Map<String, Map<String, Object>> keys = new LinkedHashMap<>();
+		for (Map.Entry<String, Integer> column : descriptor.getOffsets().entrySet()) {
+			String path = column.getKey();
+			Object value = row.get(column.getValue());
+			int dot = path.indexOf('.');
+			if (path.contains("?")) {
+				continue;
+			} else if (path.equals("id")) {
+				fileId = (Long) value;
+			} else if (dot < 0) {
+				fields.add(path, toJson(value));
+			} else {
+				keys.computeIfAbsent(path.substring(0, dot), f -> new LinkedHashMap<>()).put(path.substring(dot + 1),
+						value);
+			}
+		}
+		for (Map.Entry<String, Map<String, Object>> reference : keys.entrySet()) {
+			Map<String, Object> key = reference.getValue();
+			if (key.values().stream().allMatch(v -> v == null)) {
+				fields.addNull(reference.getKey());
+				continue;
+			}
+			long target = findReference(reference.getKey(), key, ids);
+			fields.add(reference.getKey(), Json.createObjectBuilder().add("id", target));
+		}
+		long id = store.create(descriptor.getEntityType(), fields.build(), user);
+		if (fileId != null) {
+			ids.put(fileId, id);
+		}
+	}
+
+	private long findReference(String field, Map<String, Object> key, Map<Long, Long> ids) {
+		if (key.size() == 1 && key.get("id") instanceof Long) {
+			long id = (Long) key.get("id");
+			Long mapped = ids.get(id);
+			if (mapped != null) {
+				return mapped;
+			}
+			if (store.find(id) != null) {
+				return id;
+			}
+		} else {
+			synchronized (store) {
+				for (String type : store.types()) {
+					for (Entity entity : store.list(type)) {
+						if (matches(entity, key)) {
+							return entity.id;
+						}
+					}
+				}
+			}
+		}
+		throw new MockIcatException(IcatExceptionType.NO_SUCH_OBJECT_FOUND, "No entity found for " + field + key);
+	}
+
+	/** Return true if following each dotted path from the entity gives the value */
+	private boolean matches(Entity entity, Map<String, Object> key) {
+		for (Map.Entry<String, Object> entry : key.entrySet()) {
+			Entity current = entity;
+			String[] names = entry.getKey().split("\\.");
+			for (int i = 0; i < names.length - 1 && current != null; i++) {
+				JsonValue reference = current.get(names[i]);
+				current = reference != null && reference.getValueType() == ValueType.OBJECT
+						? store.find(reference.asJsonObject().getJsonNumber("id").longValue())
+						: null;
+			}
+			if (current == null || !equal(current.get(names[names.length - 1]), entry.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean equal(JsonValue value, Object expected) {
+		if (value == null || value.getValueType() == ValueType.NULL) {
+			return expected == null;
+		} else if (expected == null) {
+			return false;
+		} else if (value instanceof JsonNumber && expected instanceof Number) {
+			return ((JsonNumber) value).bigDecimalValue().compareTo(new BigDecimal(expected.toString())) == 0;
+		} else if (value.getValueType() == ValueType.OBJECT && expected instanceof Long) {
+			return value.asJsonObject().getJsonNumber("id").longValue() == (Long) expected;
+		}
+		return toJson(expected).equals(value);
+	}
+
+	private static JsonValue toJson(Object value) {
+		if (value == null) {
+			return JsonValue.NULL;
+		} else if (value instanceof String) {
+			return Json.createValue((String) value);
+		} else if (value instanceof Long) {
+			return Json.createValue((Long) value);
+		} else if (value instanceof Double) {
+			return Json.createValue((Double) value);
+		} else if (value instanceof Boolean) {
+			return (Boolean) value ? JsonValue.TRUE : JsonValue.FALSE;
+		} else if (value instanceof Date) {
+			return Json.createValue(((Date) value).toInstant().toString());
+		}
+		return Json.createValue(value.toString());
+	}
+
+}
@@ -0,0 +1,454 @@
+package org.icatproject.icat.client.mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.mock.EntityStore.Entity;
+
+/**
+ * A search in the subset of the ICAT query language understood by the mock
+ * server:
+ *
+ * <pre>
+ * SELECT [DISTINCT] x | x.path | COUNT([DISTINCT] x | x.path) | MIN(x.path) | MAX(x.path)
+ * FROM Type x
+ * [WHERE condition [AND condition]...]
+ * [ORDER BY x.path [ASC | DESC] [, ...]]
+ * [LIMIT offset, count]
+ * [INCLUDE ...]
+ * </pre>
+ *
+ * A path is a field name, optionally preceded by the names of references to
+ * follow, such as x.investigation.name. A condition compares a path with a
+ * literal using =, &lt;&gt;, !=, &lt;, &gt;, &lt;=, &gt;=, [NOT] LIKE,
+ * [NOT] IN (...), BETWEEN ... AND ... or IS [NOT] NULL. INCLUDE clauses are
+ * accepted but references are always returned as ids only.
+ */
+class Query {
+
+	private static final Pattern tokenPattern = Pattern.compile("\\s*(?:('(?:[^']|'')*')"
+			+ "|(-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?)|([A-Za-z_][A-Za-z0-9_]*(?:\\.[A-Za-z_][A-Za-z0-9_]*)*)"
+			+ "|(<=|>=|<>|!=|[=<>(),]))");
+
+	private interface Condition {
+		boolean test(Entity entity);
+	}
+
+	private String text;
+	private List<String> tokens = new ArrayList<>();
+	private int pos;
+	private EntityStore store;
+
+	private String type;
+	private String alias;
+	private String function;
+	private boolean distinct;
+	private String selected;
+	private List<Condition> conditions = new ArrayList<>();
+	private List<String> orderPaths = new ArrayList<>();
+	private List<Boolean> orderDescending = new ArrayList<>();
+	private int offset;
+	private int limit = Integer.MAX_VALUE;
+
+	Query(String text, EntityStore store) {
+		this.text = text;
+		this.store = store;
+		tokenize();
+		parse();
+	}
+
+	private void tokenize() {
+		Matcher m = tokenPattern.matcher(text);
+		int end = 0;
+		while (end < text.length() && m.find(end) && m.start() == end) {
+			tokens.add(m.group().trim());
+			end = m.end();
+		}
+		if (!text.substring(end).isBlank()) {
+			throw error("Unexpected text '" + text.substring(end).trim() + "'");
+		}
+	}
+
+	private MockIcatException error(String msg) {
+		return new MockIcatException(IcatExceptionType.BAD_PARAMETER, msg + " in query " + text
+				+ ". The mock server only supports SELECT ... FROM Type x [WHERE ...] [ORDER BY ...] [LIMIT ...] [INCLUDE ...]");
+	}
+
+	private String peek() {
+		return pos < tokens.size() ? tokens.get(pos) : null;
+	}
+
+	private boolean accept(String keyword) {
+		String token = peek();
+		if (token != null && token.equalsIgnoreCase(keyword)) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(String keyword) {
+		if (!accept(keyword)) {
+			throw error("Expected " + keyword + " but found " + (peek() == null ? "end of query" : peek()));
+		}
+	}
+
+	private String next() {
+		String token = peek();
+		if (token == null) {
+			throw error("Unexpected end of query");
+		}
+		pos++;
+		return token;
+	}
+
+	private void parse() {
+		expect("SELECT");
+		distinct = accept("DISTINCT");
+		String token = next();
+		String upper = token.toUpperCase(Locale.ROOT);
+		if ((upper.equals("COUNT") || upper.equals("MIN") || upper.equals("MAX")) && "(".equals(peek())) {
+			function = upper;
+			expect("(");
+			distinct = accept("DISTINCT") || distinct;
+			selected = next();
+			expect(")");
+		} else {
+			selected = token;
+		}
+		expect("FROM");
+		type = next();
+		alias = next();
+		if (!selected.equals(alias) && !selected.startsWith(alias + ".")) {
+			throw error("Unknown variable in " + selected);
+		}
+		if (accept("WHERE")) {
+			do {
+				conditions.add(parseCondition());
+			} while (accept("AND"));
+			if (accept("OR")) {
+				throw error("OR is not supported");
+			}
+		}
+		if (accept("ORDER")) {
+			expect("BY");
+			do {
+				orderPaths.add(path(next()));
+				boolean descending = accept("DESC");
+				if (!descending) {
+					accept("ASC");
+				}
+				orderDescending.add(descending);
+			} while (accept(","));
+		}
+		if (accept("LIMIT")) {
+			int first = integer(next());
+			if (accept(",")) {
+				offset = first;
+				limit = integer(next());
+			} else {
+				limit = first;
+			}
+		}
+		if (accept("INCLUDE")) {
+			pos = tokens.size();
+		}
+		if (peek() != null) {
+			throw error("Unexpected " + peek());
+		}
+	}
+
+	private int integer(String token) {
+		try {
+			return Integer.parseInt(token);
+		} catch (NumberFormatException e) {
+			throw error("Expected an integer but found " + token);
+		}
+	}
+
+	/** Return the path after the variable, or "" for the variable itself */
+	private String path(String token) {
+		if (token.equals(alias)) {
+			return "";
+		}
+		if (!token.startsWith(alias + ".")) {
+			throw error("Unknown variable in " + token);
+		}
+		return token.substring(alias.length() + 1);
+	}
+
+	private Condition parseCondition() {
+		String path = path(next());
+		boolean not = accept("NOT");
+		if (accept("LIKE")) {
+			Object pattern = literal(next());
+			if (!(pattern instanceof String)) {
+				throw error("LIKE needs a string");
+			}
+			Pattern regex = likePattern((String) pattern);
+			return entity -> {
+				JsonValue value = resolve(entity, path);
+				return value instanceof JsonString && regex.matcher(((JsonString) value).getString()).matches() != not;
+			};
+		} else if (accept("IN")) {
+			expect("(");
+			List<Object> values = new ArrayList<>();
+			do {
+				values.add(literal(next()));
+			} while (accept(","));
+			expect(")");
+			return entity -> {
+				JsonValue value = resolve(entity, path);
+				if (isNull(value)) {
+					return false;
+				}
+				for (Object v : values) {
+					if (compare(value, v) == 0) {
+						return !not;
+					}
+				}
+				return not;
+			};
+		} else if (accept("BETWEEN")) {
+			Object low = literal(next());
+			expect("AND");
+			Object high = literal(next());
+			return entity -> {
+				JsonValue value = resolve(entity, path);
+				return !isNull(value) && (compare(value, low) >= 0 && compare(value, high) <= 0) != not;
+			};
+		} else if (not) {
+			throw error("Expected LIKE, IN or BETWEEN after NOT");
+		} else if (accept("IS")) {
+			boolean notNull = accept("NOT");
+			expect("NULL");
+			return entity -> isNull(resolve(entity, path)) != notNull;
+		}
+		String op = next();
+		Object literal = literal(next());
+		switch (op) {
+		case "=":
+			return entity -> test(compareOrNull(entity, path, literal), c -> c == 0);
+		case "<>":
+		case "!=":
+			return entity -> {
+				Integer c = compareOrNull(entity, path, literal);
+				return c != null && c != 0;
+			};
+		case "<":
+			return entity -> test(compareOrNull(entity, path, literal), c -> c < 0);
+		case ">":
+			return entity -> test(compareOrNull(entity, path, literal), c -> c > 0);
+		case "<=":
+			return entity -> test(compareOrNull(entity, path, literal), c -> c <= 0);
+		case ">=":
+			return entity -> test(compareOrNull(entity, path, literal), c -> c >= 0);
+		default:
+			throw error("Unknown operator " + op);
+		}
+	}
+
+	private interface IntTest {
+		boolean test(int c);
+	}
+
+	private static boolean test(Integer c, IntTest t) {
+		return c != null && t.test(c);
+	}
+
+	private Integer compareOrNull(Entity entity, String path, Object literal) {
+		JsonValue value = resolve(entity, path);
+		if (isNull(value) || literal == null) {
+			return null;
+		}
+		return compare(value, literal);
+	}
+
+	private Object literal(String token) {
+		if (token.startsWith("'")) {
+			return token.substring(1, token.length() - 1).replace("''", "'");
+		} else if (token.equalsIgnoreCase("TRUE")) {
+			return Boolean.TRUE;
+		} else if (token.equalsIgnoreCase("FALSE")) {
+			return Boolean.FALSE;
+		} else if (token.equalsIgnoreCase("NULL")) {
+			return null;
+		}
+		try {
+			return new BigDecimal(token);
+		} catch (NumberFormatException e) {
+			throw error("Expected a literal but found " + token);
+		}
+	}
+
+	private static Pattern likePattern(String like) {
+		StringBuilder sb = new StringBuilder();
+		for (char c : like.toCharArray()) {
+			if (c == '%') {
+				sb.append(".*");
+			} else if (c == '_') {
+				sb.append('.');
+			} else {
+				sb.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(sb.toString(), Pattern.DOTALL);
+	}
+
+	private static boolean isNull(JsonValue value) {
+		return value == null || value.getValueType() == ValueType.NULL;
+	}
+
+	/** Follow a path from an entity, returning null if it cannot be followed */
+	private JsonValue resolve(Entity entity, String path) {
+		String[] names = path.split("\\.");
+		for (int i = 0; i < names.length - 1; i++) {
+			JsonValue reference = entity.get(names[i]);
+			if (reference == null || reference.getValueType() != ValueType.OBJECT) {
+				return null;
+			}
+			long id = reference.asJsonObject().getJsonNumber("id").longValue();
+			if (i == names.length - 2 && names[i + 1].equals("id")) {
+				return Json.createValue(id);
+			}
+			entity = store.find(id);
+			if (entity == null) {
+				return null;
+			}
+		}
+		return entity.get(names[names.length - 1]);
+	}
+
+	/** Compare a value with a literal of a compatible type */
+	private int compare(JsonValue value, Object literal) {
+		if (value instanceof JsonNumber && literal instanceof BigDecimal) {
+			return ((JsonNumber) value).bigDecimalValue().compareTo((BigDecimal) literal);
+		} else if (value instanceof JsonString && literal instanceof String) {
+			return ((JsonString) value).getString().compareTo((String) literal);
+		} else if ((value.getValueType() == ValueType.TRUE || value.getValueType() == ValueType.FALSE)
+				&& literal instanceof Boolean) {
+			return Boolean.compare(value.getValueType() == ValueType.TRUE, (Boolean) literal);
+		} else if (value.getValueType() == ValueType.OBJECT && literal instanceof BigDecimal) {
+			return BigDecimal.valueOf(value.asJsonObject().getJsonNumber("id").longValue())
+					.compareTo((BigDecimal) literal);
+		}
+		throw error("Cannot compare " + value + " with " + literal);
+	}
+
+	/** Order values of the same kind, with nulls first */
+	private static int compareValues(JsonValue a, JsonValue b) {
+		if (isNull(a) || isNull(b)) {
+			return Boolean.compare(!isNull(a), !isNull(b));
+		}
+		if (a instanceof JsonNumber && b instanceof JsonNumber) {
+			return ((JsonNumber) a).bigDecimalValue().compareTo(((JsonNumber) b).bigDecimalValue());
+		}
+		if (a instanceof JsonString && b instanceof JsonString) {
+			return ((JsonString) a).getString().compareTo(((JsonString) b).getString());
+		}
+		return a.toString().compareTo(b.toString());
+	}
+
+	/** Return the result as ICAT would, a Json array */
+	JsonArray execute() {
+		synchronized (store) {
+			List<Entity> matches = new ArrayList<>();
+			for (Entity entity : store.list(type)) {
+				boolean match = true;
+				for (Condition condition : conditions) {
+					if (!condition.test(entity)) {
+						match = false;
+						break;
+					}
+				}
+				if (match) {
+					matches.add(entity);
+				}
+			}
+			if (!orderPaths.isEmpty()) {
+				Comparator<Entity> order = null;
+				for (int i = 0; i < orderPaths.size(); i++) {
+					String orderPath = orderPaths.get(i);
+					Comparator<Entity> c = (a, b) -> compareValues(resolve(a, orderPath), resolve(b, orderPath));
+					if (orderDescending.get(i)) {
+						c = c.reversed();
+					}
+					order = order == null ? c : order.thenComparing(c);
+				}
+				matches.sort(order);
+			}
+
+			String path = path(selected);
+			JsonArrayBuilder result = Json.createArrayBuilder();
+			if (function != null) {
+				List<JsonValue> values = new ArrayList<>();
+				for (Entity entity : matches) {
+					JsonValue value = path.isEmpty() ? Json.createValue(entity.id) : resolve(entity, path);
+					if (!isNull(value)) {
+						values.add(value);
+					}
+				}
+				if (distinct) {
+					values = new ArrayList<>(new LinkedHashSet<>(values));
+				}
+				if (function.equals("COUNT")) {
+					result.add(values.size());
+				} else if (values.isEmpty()) {
+					result.addNull();
+				} else if (function.equals("MIN")) {
+					result.add(values.stream().min(Query::compareValues).get());
+				} else {
+					result.add(values.stream().max(Query::compareValues).get());
+				}
+				return result.build();
+			}
+
+			Set<JsonValue> seen = new LinkedHashSet<>();
+			int skipped = 0;
+			int added = 0;
+			for (Entity entity : matches) {
+				if (added == limit) {
+					break;
+				}
+				JsonValue value;
+				if (path.isEmpty()) {
+					JsonObject json = Json.createObjectBuilder().add(type, entity.toJson()).build();
+					value = json;
+				} else {
+					value = resolve(entity, path);
+					if (value == null) {
+						value = JsonValue.NULL;
+					}
+				}
+				if (distinct && !seen.add(value)) {
+					continue;
+				}
+				if (skipped < offset) {
+					skipped++;
+					continue;
+				}
+				result.add(value);
+				added++;
+			}
+			return result.build();
+		}
+	}
+
+}
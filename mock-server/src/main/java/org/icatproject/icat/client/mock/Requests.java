@@ -0,0 +1,80 @@
+package org.icatproject.icat.client.mock;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/** Decodes the parameters of requests */
+class Requests {
+
+	private Requests() {
+	}
+
+	/** Decode a query string or a form encoded body */
+	static Map<String, String> parseForm(String encoded) {
+		Map<String, String> params = new HashMap<>();
+		if (encoded == null || encoded.isEmpty()) {
+			return params;
+		}
+		for (String pair : encoded.split("&")) {
+			int eq = pair.indexOf('=');
+			String name = eq < 0 ? pair : pair.substring(0, eq);
+			String value = eq < 0 ? "" : pair.substring(eq + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return params;
+	}
+
+	/** Return the parts of a multipart/form-data body keyed by their names */
+	static Map<String, byte[]> parseMultipart(byte[] body, String contentType) {
+		int b = contentType == null ? -1 : contentType.indexOf("boundary=");
+		if (b < 0) {
+			throw new MockIcatException(IcatExceptionType.BAD_PARAMETER, "No multipart boundary in " + contentType);
+		}
+		String boundary = contentType.substring(b + "boundary=".length()).split(";")[0].trim();
+		if (boundary.startsWith("\"")) {
+			boundary = boundary.substring(1, boundary.length() - 1);
+		}
+		byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+		byte[] separator = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+		Map<String, byte[]> parts = new HashMap<>();
+		int start = indexOf(body, delimiter, 0);
+		while (start >= 0) {
+			int headersStart = start + delimiter.length;
+			if (headersStart + 2 <= body.length && body[headersStart] == '-' && body[headersStart + 1] == '-') {
+				break;
+			}
+			int headersEnd = indexOf(body, separator, headersStart);
+			int next = indexOf(body, delimiter, headersStart);
+			if (headersEnd < 0 || next < 0) {
+				break;
+			}
+			String headers = new String(body, headersStart, headersEnd - headersStart, StandardCharsets.ISO_8859_1);
+			int n = headers.indexOf("name=\"");
+			if (n >= 0) {
+				String name = headers.substring(n + 6, headers.indexOf('"', n + 6));
+				// The content ends with the CRLF before the next delimiter
+				parts.put(name, Arrays.copyOfRange(body, headersEnd + separator.length, next - 2));
+			}
+			start = next;
+		}
+		return parts;
+	}
+
+	private static int indexOf(byte[] data, byte[] sought, int from) {
+		outer: for (int i = from; i <= data.length - sought.length; i++) {
+			for (int j = 0; j < sought.length; j++) {
+				if (data[i + j] != sought[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+}
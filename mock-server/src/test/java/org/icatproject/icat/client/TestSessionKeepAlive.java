@@ -0,0 +1,64 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.mock.Faults;
+import org.icatproject.icat.client.mock.MockServerTestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * In the package of the client so that the keeper can be driven without waiting for its timer
+ */
+
+public class TestSessionKeepAlive extends MockServerTestBase {
+
+	private static final long day = 24 * 3600 * 1000L;
+
+	private SessionKeeper keeper;
+
+	@Before
+	public void setup() throws Exception {
+		keeper = new SessionKeeper(icat, day, 600_000);
+	}
+
+	@After
+	public void teardown() {
+		keeper.close();
+	}
+
+	@Test
+	public void refreshesWhenDue() throws Exception {
+		keeper.add(session);
+		keeper.refreshDue(System.currentTimeMillis());
+		assertEquals(2, server.getRequestCount("session"));
+		keeper.refreshDue(System.currentTimeMillis() + day);
+		assertEquals(3, server.getRequestCount("session"));
+		keeper.refreshDue(System.currentTimeMillis());
+		assertEquals(3, server.getRequestCount("session"));
+		assertTrue(keeper.remove(session));
+	}
+
+	@Test
+	public void lastLifetimeIsUsed() throws Exception {
+		keeper.add(session);
+		server.setFaults("properties", new Faults().setErrorRate(1, IcatExceptionType.INTERNAL));
+		keeper.refreshDue(System.currentTimeMillis() + day);
+		assertEquals(3, server.getRequestCount("session"));
+		keeper.refreshDue(System.currentTimeMillis());
+		assertEquals(3, server.getRequestCount("session"));
+	}
+
+	@Test
+	public void expiredSessionIsDropped() throws Exception {
+		keeper.add(session);
+		session.logout();
+		keeper.refreshDue(System.currentTimeMillis() + day);
+		assertFalse(keeper.remove(session));
+	}
+
+}
@@ -0,0 +1,46 @@
+package org.icatproject.icat.client.mock;
+
+import java.util.Map;
+
+import org.icatproject.icat.client.ClientSettings;
+import org.icatproject.icat.client.ICAT;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.Session;
+import org.junit.After;
+import org.junit.Before;
+
+/**
+ * Starts a fresh mock server for each test with an ICAT connected to it and a
+ * session logged in as root. Subclasses may override {@link #getSettings()}
+ * and {@link #login()} to change how the client is set up.
+ */
+public abstract class MockServerTestBase {
+
+	protected MockIcatServer server;
+	protected ICAT icat;
+	protected Session session;
+
+	/** Return the settings with which the ICAT is created */
+	protected ClientSettings getSettings() {
+		return new ClientSettings();
+	}
+
+	/** Return the session made available to the tests */
+	protected Session login() throws IcatException {
+		return icat.login("db", Map.of("username", "root", "password", "password"));
+	}
+
+	@Before
+	public void startServer() throws Exception {
+		server = new MockIcatServer();
+		icat = new ICAT(server.getUrl(), getSettings());
+		session = login();
+	}
+
+	@After
+	public void stopServer() {
+		icat.close();
+		server.close();
+	}
+
+}
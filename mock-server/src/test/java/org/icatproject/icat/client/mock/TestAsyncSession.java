@@ -0,0 +1,39 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.icatproject.icat.client.AsyncSession;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.Test;
+
+public class TestAsyncSession extends MockServerTestBase {
+
+	@Test
+	public void asyncCalls() throws Exception {
+		AsyncSession async = session.async();
+		CompletableFuture<List<Long>> write = async.write("{\"Facility\":{\"name\":\"G\"}}");
+		assertEquals(1, write.get().size());
+		CompletableFuture<String> search = async.search("SELECT f.name FROM Facility f ORDER BY f.name");
+		assertEquals("[\"G\"]", search.get());
+		assertEquals("db/root", async.getUserName().get());
+	}
+
+	@Test
+	public void asyncFailure() throws Exception {
+		try {
+			session.async().search("SELECT x FROM Nothing x WHERE").get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IcatException);
+			assertEquals(IcatExceptionType.BAD_PARAMETER, ((IcatException) e.getCause()).getType());
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import jakarta.json.Json;
+import jakarta.json.JsonReader;
+
+import org.icatproject.icat.client.CacheSettings;
+import org.icatproject.icat.client.ClientSettings;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.Test;
+
+public class TestCaches extends MockServerTestBase {
+
+	@Override
+	protected ClientSettings getSettings() {
+		return new ClientSettings().setEntityCache(new CacheSettings()).setSearchCache(new CacheSettings());
+	}
+
+	private static String getName(String json, String type) {
+		try (JsonReader reader = Json.createReader(new StringReader(json))) {
+			return reader.readObject().getJsonObject(type).getString("name");
+		}
+	}
+
+	@Test
+	public void writeInvalidates() throws Exception {
+		long id = session.write("{\"Facility\":{\"name\":\"F\"}}").get(0);
+		assertEquals("F", getName(session.get("Facility", id), "Facility"));
+		assertEquals("[\"F\"]", session.search("SELECT f.name FROM Facility f"));
+		long requests = server.getRequestCount("entityManager");
+		assertEquals("F", getName(session.get("Facility", id), "Facility"));
+		assertEquals("[\"F\"]", session.search("SELECT f.name FROM Facility f"));
+		assertEquals(requests, server.getRequestCount("entityManager"));
+
+		session.write("{\"Facility\":{\"id\":" + id + ",\"name\":\"G\"}}");
+		assertEquals("G", getName(session.get("Facility", id), "Facility"));
+		assertEquals("[\"G\"]", session.search("SELECT f.name FROM Facility f"));
+	}
+
+	@Test
+	public void otherTypesAreKept() throws Exception {
+		long id = session.write("{\"Facility\":{\"name\":\"F\"}}").get(0);
+		session.get("Facility", id);
+		session.write("{\"Instrument\":{\"name\":\"I\"}}");
+		long requests = server.getRequestCount("entityManager");
+		session.get("Facility", id);
+		assertEquals(requests, server.getRequestCount("entityManager"));
+	}
+
+	@Test
+	public void deleteClears() throws Exception {
+		long id = session.write("{\"Facility\":{\"name\":\"F\"}}").get(0);
+		long instrument = session.write("{\"Instrument\":{\"name\":\"I\"}}").get(0);
+		session.get("Facility", id);
+		session.delete("{\"Instrument\":{\"id\":" + instrument + "}}");
+		long requests = server.getRequestCount("entityManager");
+		session.get("Facility", id);
+		assertEquals(requests + 1, server.getRequestCount("entityManager"));
+	}
+
+	@Test
+	public void failedWriteInvalidates() throws Exception {
+		long id = session.write("{\"Facility\":{\"name\":\"F\"}}").get(0);
+		session.get("Facility", id);
+		server.setFaults("entityManager", new Faults().setDropRate(1));
+		try {
+			session.write("{\"Facility\":{\"id\":" + id + ",\"name\":\"G\"}}");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.INTERNAL, e.getType());
+		}
+		server.setFaults("entityManager", null);
+		long requests = server.getRequestCount("entityManager");
+		session.get("Facility", id);
+		assertEquals(requests + 1, server.getRequestCount("entityManager"));
+	}
+
+}
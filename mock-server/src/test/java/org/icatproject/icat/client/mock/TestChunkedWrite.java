@@ -0,0 +1,56 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.Test;
+
+public class TestChunkedWrite extends MockServerTestBase {
+
+	private static List<String> facilities(int count) {
+		List<String> entities = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			entities.add("{\"Facility\":{\"name\":\"F" + i + "\"}}");
+		}
+		return entities;
+	}
+
+	@Test
+	public void idsInOrder() throws Exception {
+		long requests = server.getRequestCount("entityManager");
+		List<Long> ids = session.writeChunked(facilities(10), 3, 1000000, 4);
+		assertEquals(4, server.getRequestCount("entityManager") - requests);
+		assertEquals(10, ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			assertTrue(session.get("Facility", ids.get(i)).contains("\"F" + i + "\""));
+		}
+	}
+
+	@Test
+	public void characterLimit() throws Exception {
+		/* Each entity is 25 characters so only two fit with the brackets and comma */
+		long requests = server.getRequestCount("entityManager");
+		assertEquals(5, session.writeChunked(facilities(5), 100, 60, 1).size());
+		assertEquals(3, server.getRequestCount("entityManager") - requests);
+	}
+
+	@Test
+	public void offsetIsRemapped() throws Exception {
+		List<String> entities = facilities(10);
+		entities.set(7, "{\"Facility\":{\"name\":\"F7\",\"parent\":{\"id\":999}}}");
+		try {
+			session.writeChunked(entities, 3, 1000000, 1);
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.NO_SUCH_OBJECT_FOUND, e.getType());
+			assertEquals(7, e.getOffset());
+		}
+	}
+
+}
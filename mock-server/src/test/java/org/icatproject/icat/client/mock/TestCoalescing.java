@@ -0,0 +1,55 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCoalescing extends MockServerTestBase {
+
+	@Before
+	public void setup() throws Exception {
+		session.write("{\"Facility\":{\"name\":\"F\"}}");
+	}
+
+	@Test
+	public void identicalCallsAreCoalesced() throws Exception {
+		server.setFaults("entityManager", new Faults().setLatencyMillis(300, 300));
+		long requests = server.getRequestCount("entityManager");
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(session.async().search("SELECT f.name FROM Facility f"));
+		}
+		for (CompletableFuture<String> future : futures) {
+			assertEquals("[\"F\"]", future.get());
+		}
+		assertEquals(1, server.getRequestCount("entityManager") - requests);
+	}
+
+	@Test
+	public void coalescedFailureReachesEveryCaller() throws Exception {
+		server.setFaults("entityManager",
+				new Faults().setLatencyMillis(300, 300).setErrorRate(1, IcatExceptionType.VALIDATION));
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(session.async().search("SELECT f.name FROM Facility f"));
+		}
+		for (CompletableFuture<String> future : futures) {
+			try {
+				future.get();
+				fail();
+			} catch (ExecutionException e) {
+				assertEquals(IcatExceptionType.VALIDATION, ((IcatException) e.getCause()).getType());
+			}
+		}
+	}
+
+}
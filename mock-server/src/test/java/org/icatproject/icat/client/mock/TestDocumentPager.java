@@ -0,0 +1,56 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+
+import org.icatproject.icat.client.DocumentPager;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.Test;
+
+public class TestDocumentPager extends MockServerTestBase {
+
+	@Test
+	public void facetsOnlyRequestedWithFirstPage() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			session.write("{\"Investigation\":{\"name\":\"inv " + i + "\",\"title\":\"powder\"}}");
+		}
+		JsonArray facets = Json.createArrayBuilder().add(Json.createObjectBuilder().add("target", "Investigation"))
+				.build();
+		int n = 0;
+		try (DocumentPager pager = session.searchInvestigationDocuments(null, "powder", null, null, null, null, 2,
+				null, facets)) {
+			/* The mock only returns dimensions when facets were requested */
+			assertNotNull(pager.getFacets());
+			while (pager.hasNext()) {
+				pager.next();
+				n++;
+			}
+		}
+		assertEquals(5, n);
+		assertEquals(3, server.getRequestCount("search/documents"));
+		assertFalse(server.getLastParameters("search/documents").get("query").contains("facets"));
+	}
+
+	@Test
+	public void failureIsRemembered() throws Exception {
+		server.setFaults("search/documents", new Faults().setErrorRate(1, IcatExceptionType.INTERNAL));
+		try (DocumentPager pager = session.searchInvestigationDocuments(null, "F1", null, null, null, null, 5, null,
+				null)) {
+			for (int i = 0; i < 2; i++) {
+				try {
+					pager.hasNext();
+					fail();
+				} catch (IcatException e) {
+					assertEquals(IcatExceptionType.INTERNAL, e.getType());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.icatproject.icat.client.CacheSettings;
+import org.icatproject.icat.client.ClientSettings;
+import org.icatproject.icat.client.ICAT;
+import org.icatproject.icat.client.MetaDataExporter;
+import org.icatproject.icat.client.PortReader;
+import org.icatproject.icat.client.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMetaDataExporter extends MockServerTestBase {
+
+	private Path workDir;
+	private Path file;
+
+	@Override
+	protected ClientSettings getSettings() {
+		return new ClientSettings().setSearchCache(new CacheSettings());
+	}
+
+	@Before
+	public void setup() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			session.write("{\"Facility\":{\"name\":\"F" + i + "\"}}");
+		}
+		workDir = Files.createTempDirectory("export");
+		file = Files.createTempFile("export", ".txt");
+	}
+
+	@After
+	public void teardown() throws Exception {
+		try (Stream<Path> paths = Files.list(workDir)) {
+			for (Path path : paths.collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(workDir);
+		Files.delete(file);
+	}
+
+	private int countRows() throws Exception {
+		int rows = 0;
+		try (PortReader reader = new PortReader(file)) {
+			while (reader.nextDescriptor() != null) {
+				while (reader.nextRow() != null) {
+					rows++;
+				}
+			}
+		}
+		return rows;
+	}
+
+	@Test
+	public void chunksAreStitched() throws Exception {
+		new MetaDataExporter(session, List.of("Facility"), workDir).setIdsPerChunk(2).export(file);
+		assertEquals(3, server.getRequestCount("port"));
+
+		String text = Files.readString(file);
+		assertEquals(1, text.split("# Version of file format", -1).length - 1);
+		assertEquals(1, text.split("Facility\\(", -1).length - 1);
+		assertEquals(5, countRows());
+	}
+
+	@Test
+	public void planIgnoresSearchCache() throws Exception {
+		session.search("SELECT MAX(e.id) FROM Facility e");
+		try (ICAT other = new ICAT(server.getUrl())) {
+			Session writer = other.login("db",
+					Map.of("username", "root", "password", "password"));
+			for (int i = 5; i < 7; i++) {
+				writer.write("{\"Facility\":{\"name\":\"F" + i + "\"}}");
+			}
+		}
+		new MetaDataExporter(session, List.of("Facility"), workDir).setIdsPerChunk(2).export(file);
+		assertEquals(7, countRows());
+	}
+
+	@Test
+	public void resume() throws Exception {
+		new MetaDataExporter(session, List.of("Facility"), workDir).setIdsPerChunk(2).export(file);
+		long requests = server.getRequestCount("port");
+		String first = Files.readString(file);
+		new MetaDataExporter(session, List.of("Facility"), workDir).setIdsPerChunk(2).export(file);
+		assertEquals(requests, server.getRequestCount("port"));
+		assertEquals(first, Files.readString(file));
+	}
+
+}
@@ -0,0 +1,105 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.MetaDataImporter;
+import org.icatproject.icat.client.RetryPolicy;
+import org.icatproject.icat.client.Session;
+import org.icatproject.icat.client.Session.Attributes;
+import org.icatproject.icat.client.Session.DuplicateAction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMetaDataImporter extends MockServerTestBase {
+
+	private Path file;
+
+	@Before
+	public void setup() throws Exception {
+		StringBuilder sb = new StringBuilder("# Version of file format\n4.0\n\nFacility(name:0)\n");
+		for (int i = 0; i < 5; i++) {
+			sb.append("\"F").append(i).append("\"\n");
+		}
+		sb.append("\n# Investigations\nInvestigation(facility(name:0), name:1, visitId:2)\n");
+		for (int i = 0; i < 3; i++) {
+			sb.append("\"F").append(i).append("\", \"I").append(i).append("\", \"v\"\n");
+		}
+		file = Files.createTempFile("import", ".txt");
+		Files.writeString(file, sb);
+	}
+
+	@After
+	public void teardown() throws Exception {
+		Files.delete(file);
+	}
+
+	@Test
+	public void batches() throws Exception {
+		AtomicLong last = new AtomicLong();
+		new MetaDataImporter(session).setRowsPerBatch(2)
+				.setProgressListener((rows, total) -> last.set(rows * 100 + total))
+				.importMetaData(file, DuplicateAction.THROW, Attributes.USER);
+		assertEquals(5, server.getStore().count("Facility"));
+		assertEquals(3, server.getStore().count("Investigation"));
+		assertEquals(5, server.getRequestCount("port"));
+		assertEquals(808, last.get());
+	}
+
+	@Test
+	public void lostBatchIsNotRetriedUnderThrow() throws Exception {
+		server.setFaults("port", new Faults().setDropRate(1));
+		try {
+			new MetaDataImporter(session).setRetryPolicy(new RetryPolicy().setBaseDelayMillis(1))
+					.importMetaData(file, DuplicateAction.THROW, Attributes.USER);
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.INTERNAL, e.getType());
+		}
+		assertEquals(1, server.getRequestCount("port"));
+	}
+
+	@Test
+	public void lostBatchIsRetriedUnderIgnore() throws Exception {
+		server.setFaults("port", new Faults().setDropRate(1));
+		try {
+			new MetaDataImporter(session).setRetryPolicy(new RetryPolicy().setBaseDelayMillis(1))
+					.importMetaData(file, DuplicateAction.IGNORE, Attributes.USER);
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.INTERNAL, e.getType());
+		}
+		assertEquals(3, server.getRequestCount("port"));
+	}
+
+	@Test
+	public void sessionErrorIsNotRetried() throws Exception {
+		session.logout();
+		try {
+			new MetaDataImporter(session).importMetaData(file, DuplicateAction.IGNORE, Attributes.USER);
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.SESSION, e.getType());
+		}
+		assertEquals(1, server.getRequestCount("port"));
+	}
+
+	@Test
+	public void renewingSessionIsRetried() throws Exception {
+		Session renewing = icat.loginRenewing("db", () -> Map.of("username", "root"));
+		icat.getSession(renewing.getId()).logout();
+		new MetaDataImporter(renewing).setRowsPerBatch(100).importMetaData(file, DuplicateAction.THROW,
+				Attributes.USER);
+		assertEquals(5, server.getStore().count("Facility"));
+		assertEquals(3, server.getRequestCount("port"));
+	}
+
+}
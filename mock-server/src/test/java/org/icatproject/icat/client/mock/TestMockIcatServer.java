@@ -0,0 +1,217 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+
+import org.icatproject.icat.client.ClientSettings;
+import org.icatproject.icat.client.DocumentPager;
+import org.icatproject.icat.client.ICAT;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.RetryPolicy;
+import org.icatproject.icat.client.Session;
+import org.icatproject.icat.client.Session.Attributes;
+import org.icatproject.icat.client.Session.DuplicateAction;
+import org.junit.Test;
+
+/* 
+ * Runs the real client against the mock server to check that the mock behaves as the client expects
+ */
+
+public class TestMockIcatServer extends MockServerTestBase {
+
+	private static JsonArray parse(String json) {
+		try (JsonReader reader = Json.createReader(new StringReader(json))) {
+			return reader.readArray();
+		}
+	}
+
+	@Test
+	public void session() throws Exception {
+		assertEquals("db/root", session.getUserName());
+		assertTrue(session.getRemainingMinutes() > 119);
+		assertTrue(icat.isLoggedIn("db/root"));
+		assertEquals("6.0.0-mock", icat.getVersion());
+		session.logout();
+		assertFalse(icat.isLoggedIn("db/root"));
+	}
+
+	@Test
+	public void writeSearchDelete() throws Exception {
+		long facility = session.write("{\"Facility\":{\"name\":\"Test Facility\"}}").get(0);
+		List<Long> ids = session.write("[{\"Investigation\":{\"name\":\"A\",\"visitId\":\"1\",\"facility\":{\"id\":"
+				+ facility + "}}},{\"Investigation\":{\"name\":\"B\",\"visitId\":\"2\",\"facility\":{\"id\":"
+				+ facility + "}}}]");
+		assertEquals(2, ids.size());
+
+		assertEquals(Arrays.asList("A", "B"), parse(session.search(
+				"SELECT i.name FROM Investigation i WHERE i.facility.name = 'Test Facility' ORDER BY i.name"))
+				.getValuesAs(JsonString::getString));
+		assertEquals(1, parse(session.search("SELECT COUNT(i) FROM Investigation i WHERE i.visitId IN ('2', '3')"))
+				.getJsonNumber(0).intValue());
+		assertEquals("B", Json.createReader(new StringReader(session.get("Investigation INCLUDE 1", ids.get(1))))
+				.readObject().getJsonObject("Investigation").getString("name"));
+
+		session.delete("{\"Investigation\":{\"id\":" + ids.get(0) + "}}");
+		assertEquals(1, server.getStore().count("Investigation"));
+		try {
+			session.get("Investigation", ids.get(0));
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.NO_SUCH_OBJECT_FOUND, e.getType());
+		}
+		try {
+			session.search("Investigation [name='A']");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+		}
+	}
+
+	@Test
+	public void exportImport() throws Exception {
+		long facility = session.write("{\"Facility\":{\"name\":\"F\"}}").get(0);
+		session.write("{\"Investigation\":{\"name\":\"I\",\"visitId\":\"1\",\"facility\":{\"id\":" + facility
+				+ "}}}");
+		byte[] exported;
+		try (InputStream in = session.exportMetaData(Attributes.USER)) {
+			exported = in.readAllBytes();
+		}
+
+		try (MockIcatServer other = new MockIcatServer(); ICAT otherIcat = new ICAT(other.getUrl())) {
+			Session otherSession = otherIcat.login("db", Map.of("username", "root"));
+			Path file = Files.createTempFile("mock", ".txt");
+			try {
+				Files.write(file, exported);
+				otherSession.importMetaData(file, DuplicateAction.THROW, Attributes.USER);
+			} finally {
+				Files.delete(file);
+			}
+			assertEquals(Arrays.asList("F"), parse(otherSession
+					.search("SELECT i.facility.name FROM Investigation i WHERE i.name = 'I'"))
+					.getValuesAs(JsonString::getString));
+		}
+	}
+
+	@Test
+	public void searchDocuments() throws Exception {
+		for (int i = 0; i < 25; i++) {
+			session.write("{\"Investigation\":{\"name\":\"inv " + i + "\",\"title\":\"neutron " + (i % 2 == 0 ? "powder"
+					: "crystal") + "\"}}");
+		}
+		int n = 0;
+		try (DocumentPager pager = session.searchInvestigationDocuments(null, "powder", null, null, null, null, 5,
+				null, null)) {
+			while (pager.hasNext()) {
+				pager.next();
+				n++;
+			}
+		}
+		assertEquals(13, n);
+	}
+
+	@Test
+	public void faults() throws Exception {
+		server.setFaults("entityManager", new Faults().setErrorRate(1, IcatExceptionType.VALIDATION));
+		try {
+			session.search("SELECT f FROM Facility f");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.VALIDATION, e.getType());
+		}
+		server.setFaults("entityManager", null);
+		assertEquals(0, parse(session.search("SELECT f FROM Facility f")).size());
+
+		server.setFaults(new Faults().setLatencyMillis(50, 50));
+		long start = System.nanoTime();
+		icat.getVersion();
+		assertTrue(System.nanoTime() - start >= 50_000_000L);
+		assertEquals(1, server.getRequestCount("version"));
+	}
+
+	@Test
+	public void noRetries() throws Exception {
+		server.setFaults("version", new Faults().setDropRate(1));
+		try (ICAT noRetries = new ICAT(server.getUrl(), new ClientSettings().setRetryPolicy(RetryPolicy.none()))) {
+			noRetries.getVersion();
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.INTERNAL, e.getType());
+		}
+		assertEquals(1, server.getRequestCount("version"));
+	}
+
+	@Test
+	public void faultsAreRetried() throws Exception {
+		RetryPolicy policy = new RetryPolicy().setMaxAttempts(3).setBaseDelayMillis(1).setMaxDelayMillis(1);
+		try (ICAT retrying = new ICAT(server.getUrl(), new ClientSettings().setRetryPolicy(policy))) {
+			server.setFaults("version", new Faults().setUnavailableRate(1));
+			try {
+				retrying.getVersion();
+				fail();
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.INTERNAL, e.getType());
+			}
+			assertEquals(3, server.getRequestCount("version"));
+
+			server.setFaults("version", new Faults().setDropRate(1));
+			try {
+				retrying.getVersion();
+				fail();
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.INTERNAL, e.getType());
+			}
+			assertEquals(6, server.getRequestCount("version"));
+
+			/* With this seed the first request is answered with 503 and the second succeeds */
+			server.setFaults("version", new Faults().setUnavailableRate(0.5).setSeed(3));
+			assertEquals("6.0.0-mock", retrying.getVersion());
+			assertEquals(8, server.getRequestCount("version"));
+		}
+	}
+
+	@Test
+	public void seededFaultsRepeat() {
+		Faults first = new Faults().setSeed(42);
+		Faults second = new Faults().setSeed(42);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(first.happens(0.5), second.happens(0.5));
+		}
+	}
+
+	@Test
+	public void rejectedUpdateChangesNothing() throws Exception {
+		long facility = session.write("{\"Facility\":{\"name\":\"F\"}}").get(0);
+		String before = session.get("Facility", facility);
+		try {
+			session.write("{\"Facility\":{\"id\":" + facility
+					+ ",\"name\":\"G\",\"investigations\":[{\"name\":\"I\"}]}}");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.NOT_IMPLEMENTED, e.getType());
+		}
+		try {
+			session.write("{\"Facility\":{\"id\":" + facility + ",\"name\":\"G\",\"parent\":{\"id\":999}}}");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.NO_SUCH_OBJECT_FOUND, e.getType());
+		}
+		assertEquals(before, session.get("Facility", facility));
+	}
+
+}
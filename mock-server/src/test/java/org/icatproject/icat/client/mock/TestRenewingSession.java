@@ -0,0 +1,71 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.Session;
+import org.junit.Test;
+
+public class TestRenewingSession extends MockServerTestBase {
+
+	private AtomicInteger logins = new AtomicInteger();
+
+	@Override
+	protected Session login() throws IcatException {
+		return icat.loginRenewing("db", () -> {
+			logins.incrementAndGet();
+			return Map.of("username", "root");
+		});
+	}
+
+	@Test
+	public void readIsRepeated() throws Exception {
+		String first = session.getId();
+		icat.getSession(first).logout();
+		assertEquals("db/root", session.getUserName());
+		assertNotEquals(first, session.getId());
+		assertEquals(2, logins.get());
+	}
+
+	@Test
+	public void writeIsNotRepeated() throws Exception {
+		icat.getSession(session.getId()).logout();
+		try {
+			session.write("{\"Facility\":{\"name\":\"F\"}}");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.SESSION, e.getType());
+		}
+		assertEquals(0, server.getStore().count("Facility"));
+		session.write("{\"Facility\":{\"name\":\"F\"}}");
+		assertEquals(1, server.getStore().count("Facility"));
+		assertEquals(2, logins.get());
+	}
+
+	@Test
+	public void notRenewedAfterLogout() throws Exception {
+		session.logout();
+		for (int i = 0; i < 2; i++) {
+			try {
+				session.getUserName();
+				fail();
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.SESSION, e.getType());
+			}
+			try {
+				session.write("{\"Facility\":{\"name\":\"F\"}}");
+				fail();
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.SESSION, e.getType());
+			}
+		}
+		assertEquals(1, logins.get());
+	}
+
+}
@@ -0,0 +1,60 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonString;
+
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.SearchPager;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSearchPager extends MockServerTestBase {
+
+	@Before
+	public void setup() throws Exception {
+		for (int i = 0; i < 7; i++) {
+			session.write("{\"Facility\":{\"name\":\"F" + i + "\"}}");
+		}
+	}
+
+	@Test
+	public void pages() throws Exception {
+		List<Integer> sizes = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		try (SearchPager pager = session.searchPages("SELECT f.name FROM Facility f ORDER BY f.id", 3)) {
+			while (pager.hasNext()) {
+				JsonArray page = pager.next();
+				sizes.add(page.size());
+				names.addAll(page.getValuesAs(JsonString::getString));
+			}
+			assertFalse(pager.hasNext());
+		}
+		assertEquals(Arrays.asList(3, 3, 1), sizes);
+		assertEquals(Arrays.asList("F0", "F1", "F2", "F3", "F4", "F5", "F6"), names);
+	}
+
+	@Test
+	public void failureIsRemembered() throws Exception {
+		server.setFaults("entityManager", new Faults().setErrorRate(1, IcatExceptionType.BAD_PARAMETER));
+		try (SearchPager pager = session.searchPages("SELECT f.name FROM Facility f ORDER BY f.id", 3)) {
+			for (int i = 0; i < 2; i++) {
+				try {
+					pager.hasNext();
+					fail();
+				} catch (IcatException e) {
+					assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import org.icatproject.icat.client.ClientSettings;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.RetryPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSearchStream extends MockServerTestBase {
+
+	/* A single connection so that one which is not given back blocks the next call */
+	@Override
+	protected ClientSettings getSettings() {
+		return new ClientSettings().setMaxConnections(1).setMaxConnectionsPerRoute(1)
+				.setConnectionRequestTimeoutMillis(2000).setRetryPolicy(RetryPolicy.none());
+	}
+
+	@Before
+	public void setup() throws Exception {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < 200; i++) {
+			sb.append(i == 0 ? "" : ",").append("{\"Facility\":{\"name\":\"F").append(i).append("\"}}");
+		}
+		session.write(sb.append("]").toString());
+	}
+
+	@Test
+	public void results() throws Exception {
+		List<String> names;
+		try (Stream<JsonValue> results = session.searchStream("SELECT f.name FROM Facility f ORDER BY f.id")) {
+			names = results.map(value -> ((JsonString) value).getString()).collect(Collectors.toList());
+		}
+		assertEquals(200, names.size());
+		assertEquals("F0", names.get(0));
+		assertEquals("F199", names.get(199));
+		assertEquals("[\"F0\"]", session.search("SELECT f.name FROM Facility f WHERE f.name = 'F0'"));
+	}
+
+	@Test
+	public void earlyClose() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			try (Stream<JsonValue> results = session.searchStream("SELECT f FROM Facility f")) {
+				assertEquals(2, results.limit(2).count());
+			}
+		}
+		assertEquals("[\"F0\"]", session.search("SELECT f.name FROM Facility f WHERE f.name = 'F0'"));
+	}
+
+	@Test
+	public void failure() throws Exception {
+		try {
+			session.searchStream("SELECT x FROM Nothing x WHERE");
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+		}
+		assertEquals("[\"F0\"]", session.search("SELECT f.name FROM Facility f WHERE f.name = 'F0'"));
+	}
+
+}
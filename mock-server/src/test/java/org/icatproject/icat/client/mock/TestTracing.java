@@ -0,0 +1,78 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.icatproject.icat.client.ClientSettings;
+import org.icatproject.icat.client.IcatException;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.RequestTrace;
+import org.icatproject.icat.client.RequestTracer;
+import org.icatproject.icat.client.RetryPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTracing extends MockServerTestBase {
+
+	private static class RecordingTracer implements RequestTracer {
+
+		List<String> events = new ArrayList<>();
+		List<RequestTrace> traces = new ArrayList<>();
+
+		@Override
+		public synchronized void requestStarted(RequestTrace trace) {
+			events.add("started " + trace.getEndpoint());
+		}
+
+		@Override
+		public synchronized void responseReceived(RequestTrace trace) {
+			events.add("received " + trace.getStatusCode());
+		}
+
+		@Override
+		public synchronized void requestFinished(RequestTrace trace) {
+			events.add("finished " + trace.getFailure());
+			traces.add(trace);
+		}
+	}
+
+	private RecordingTracer tracer = new RecordingTracer();
+
+	@Override
+	protected ClientSettings getSettings() {
+		return new ClientSettings().addTracer(tracer).setRetryPolicy(RetryPolicy.none());
+	}
+
+	@Before
+	public void forgetLogin() {
+		tracer.events.clear();
+		tracer.traces.clear();
+	}
+
+	@Test
+	public void phases() throws Exception {
+		server.setFaults("version", new Faults().setLatencyMillis(20, 20));
+		icat.getVersion();
+		assertEquals(List.of("started version", "received 200", "finished null"), tracer.events);
+		RequestTrace trace = tracer.traces.get(0);
+		assertTrue(trace.getResponseNanos() >= 20_000_000L);
+		assertTrue(trace.getResponseNanos() <= trace.getDurationNanos());
+	}
+
+	@Test
+	public void noResponse() throws Exception {
+		server.setFaults("version", new Faults().setDropRate(1));
+		try {
+			icat.getVersion();
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.INTERNAL, e.getType());
+		}
+		assertEquals(List.of("started version", "finished INTERNAL"), tracer.events);
+	}
+
+}
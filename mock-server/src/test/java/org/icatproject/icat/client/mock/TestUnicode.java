@@ -0,0 +1,35 @@
+package org.icatproject.icat.client.mock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import org.icatproject.icat.client.Session;
+import org.junit.Test;
+
+public class TestUnicode extends MockServerTestBase {
+
+	private static final String name = "Zürich – 東京 ✓";
+
+	@Test
+	public void entities() throws Exception {
+		session.write("{\"Facility\":{\"name\":\"" + name + "\"}}");
+		assertEquals("[\"" + name + "\"]", session.search("SELECT f.name FROM Facility f"));
+		assertEquals("[\"" + name + "\"]",
+				session.search("SELECT f.name FROM Facility f WHERE f.name = '" + name + "'"));
+		try (Stream<JsonValue> results = session.searchStream("SELECT f.name FROM Facility f")) {
+			assertEquals(name, ((JsonString) results.findFirst().get()).getString());
+		}
+	}
+
+	@Test
+	public void userName() throws Exception {
+		Session other = icat.login("db", Map.of("username", name));
+		assertEquals("db/" + name, other.getUserName());
+	}
+
+}
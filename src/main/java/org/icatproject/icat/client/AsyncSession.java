@@ -0,0 +1,263 @@
+package org.icatproject.icat.client;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonValue;
+
+import org.icatproject.icat.client.Session.Attributes;
+import org.icatproject.icat.client.Session.DuplicateAction;
+
+/**
+ * Non-blocking view of a {@link Session}.
+ * <p>
+ * Each call returns at once with a CompletableFuture which is completed when
+ * the corresponding {@link Session} call returns. If the call fails the
+ * future is completed exceptionally with the {@link IcatException}. The calls
+ * are carried out by a bounded set of threads belonging to the ICAT instance
+ * (see {@link ClientSettings#setMaxConcurrentRequests(int)}) so any number of
+ * calls may be in flight without needing a thread for each. These threads are
+ * not those used for background work, such as the parts of a
+ * {@link Session#searchAll(List, int)}, so an async call never waits for work
+ * queued behind other async calls.
+ * <p>
+ * There are no async forms of the deprecated methods, of
+ * {@link Session#searchPages(String)} or of the document searches returning a
+ * {@link DocumentPager}. The pagers start fetching in the background as soon
+ * as they are created and fetch each page while the previous one is being
+ * processed, so they do not block the caller for longer than an async call
+ * would.
+ * <p>
+ * Obtain an AsyncSession from {@link Session#async()}. See the corresponding
+ * {@link Session} methods for a description of the parameters.
+ */
+public class AsyncSession {
+
+	private interface Call<T> {
+		T call() throws IcatException;
+	}
+
+	private interface VoidCall {
+		void call() throws IcatException;
+	}
+
+	private Session session;
+	private ExecutorService executor;
+
+	AsyncSession(Session session, ExecutorService executor) {
+		this.session = session;
+		this.executor = executor;
+	}
+
+	private <T> CompletableFuture<T> submit(Call<T> call) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				if (future.isDone()) {
+					return;
+				}
+				try {
+					T result = call.call();
+					if (!future.complete(result) && result instanceof AutoCloseable) {
+						/* The future was cancelled so nobody else can release the stream */
+						((AutoCloseable) result).close();
+					}
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private CompletableFuture<Void> submit(VoidCall call) {
+		return submit(() -> {
+			call.call();
+			return null;
+		});
+	}
+
+	/**
+	 * Return the synchronous session of which this is a view
+	 *
+	 * @return the session
+	 */
+	public Session getSession() {
+		return session;
+	}
+
+	/** See {@link Session#write(String)} */
+	public CompletableFuture<List<Long>> write(String entities) {
+		return submit(() -> session.write(entities));
+	}
+
+	/** See {@link Session#write(JsonEntityWriter)} */
+	public CompletableFuture<List<Long>> write(JsonEntityWriter writer) {
+		return submit(() -> session.write(writer));
+	}
+
+	/** See {@link Session#write(Iterable)} */
+	public CompletableFuture<List<Long>> write(Iterable<? extends JsonValue> entities) {
+		return submit(() -> session.write(entities));
+	}
+
+	/** See {@link Session#writeChunked(Iterable, int, int, int)} */
+	public CompletableFuture<List<Long>> writeChunked(Iterable<String> entities, int maxEntities, int maxCharacters,
+			int parallelism) {
+		return submit(() -> session.writeChunked(entities, maxEntities, maxCharacters, parallelism));
+	}
+
+	/** See {@link Session#delete(String)} */
+	public CompletableFuture<Void> delete(String entities) {
+		return submit(() -> session.delete(entities));
+	}
+
+	/** See {@link Session#exportMetaData(Attributes)} */
+	public CompletableFuture<InputStream> exportMetaData(Attributes attributes) {
+		return submit(() -> session.exportMetaData(attributes));
+	}
+
+	/** See {@link Session#exportMetaData(String, Attributes)} */
+	public CompletableFuture<InputStream> exportMetaData(String query, Attributes attributes) {
+		return submit(() -> session.exportMetaData(query, attributes));
+	}
+
+	/** See {@link Session#getRemainingMinutes()} */
+	public CompletableFuture<Double> getRemainingMinutes() {
+		return submit(() -> session.getRemainingMinutes());
+	}
+
+	/** See {@link Session#getUserName()} */
+	public CompletableFuture<String> getUserName() {
+		return submit(() -> session.getUserName());
+	}
+
+	/** See {@link Session#importMetaData(Path, DuplicateAction, Attributes)} */
+	public CompletableFuture<Void> importMetaData(Path path, DuplicateAction duplicateAction, Attributes attributes) {
+		return submit(() -> session.importMetaData(path, duplicateAction, attributes));
+	}
+
+	/**
+	 * See
+	 * {@link Session#importMetaData(Path, DuplicateAction, Attributes, UploadProgressListener)}
+	 */
+	public CompletableFuture<Void> importMetaData(Path path, DuplicateAction duplicateAction, Attributes attributes,
+			UploadProgressListener listener) {
+		return submit(() -> session.importMetaData(path, duplicateAction, attributes, listener));
+	}
+
+	/** See {@link Session#logout()} */
+	public CompletableFuture<Void> logout() {
+		return submit(() -> session.logout());
+	}
+
+	/** See {@link Session#refresh()} */
+	public CompletableFuture<Void> refresh() {
+		return submit(() -> session.refresh());
+	}
+
+	/** See {@link Session#search(String)} */
+	public CompletableFuture<String> search(String query) {
+		return submit(() -> session.search(query));
+	}
+
+	/** See {@link Session#search(String, long)} */
+	public CompletableFuture<String> search(String query, long ttlSeconds) {
+		return submit(() -> session.search(query, ttlSeconds));
+	}
+
+	/**
+	 * See {@link Session#searchStream(String)}. The stream, once obtained,
+	 * holds a pooled connection until it has been consumed or is closed.
+	 */
+	public CompletableFuture<Stream<JsonValue>> searchStream(String query) {
+		return submit(() -> session.searchStream(query));
+	}
+
+	/** See {@link Session#searchAll(List, int)} */
+	public CompletableFuture<List<String>> searchAll(List<String> queries, int parallelism) {
+		return submit(() -> session.searchAll(queries, parallelism));
+	}
+
+	/** See {@link Session#get(String, long)} */
+	public CompletableFuture<String> get(String query, long id) {
+		return submit(() -> session.get(query, id));
+	}
+
+	/**
+	 * See
+	 * {@link Session#searchInvestigations(String, String, Date, Date, List, String, String, int, String, JsonArray)}
+	 */
+	public CompletableFuture<String> searchInvestigations(String user, String text, Date lower, Date upper,
+			List<ParameterForLucene> parameters, String userFullName, String searchAfter, int maxCount, String sort,
+			JsonArray facets) {
+		return submit(() -> session.searchInvestigations(user, text, lower, upper, parameters, userFullName,
+				searchAfter, maxCount, sort, facets));
+	}
+
+	/**
+	 * See
+	 * {@link Session#searchDatasets(String, String, Date, Date, List, String, int, String, JsonArray)}
+	 */
+	public CompletableFuture<String> searchDatasets(String user, String text, Date lower, Date upper,
+			List<ParameterForLucene> parameters, String searchAfter, int maxCount, String sort, JsonArray facets) {
+		return submit(() -> session.searchDatasets(user, text, lower, upper, parameters, searchAfter, maxCount, sort,
+				facets));
+	}
+
+	/**
+	 * See
+	 * {@link Session#searchDatafiles(String, String, Date, Date, List, String, int, String, JsonArray)}
+	 */
+	public CompletableFuture<String> searchDatafiles(String user, String text, Date lower, Date upper,
+			List<ParameterForLucene> parameters, String searchAfter, int maxCount, String sort, JsonArray facets) {
+		return submit(() -> session.searchDatafiles(user, text, lower, upper, parameters, searchAfter, maxCount, sort,
+				facets));
+	}
+
+	/** See {@link Session#luceneClear()} */
+	public CompletableFuture<Void> luceneClear() {
+		return submit(() -> session.luceneClear());
+	}
+
+	/** See {@link Session#luceneCommit()} */
+	public CompletableFuture<Void> luceneCommit() {
+		return submit(() -> session.luceneCommit());
+	}
+
+	/** See {@link Session#searchPopulate(String, long, long, boolean)} */
+	public CompletableFuture<Void> searchPopulate(String entityName, long minId, long maxId, boolean delete) {
+		return submit(() -> session.searchPopulate(entityName, minId, maxId, delete));
+	}
+
+	/** See {@link Session#luceneGetPopulating()} */
+	public CompletableFuture<List<String>> luceneGetPopulating() {
+		return submit(() -> session.luceneGetPopulating());
+	}
+
+	/** See {@link Session#cloneEntity(String, long, Map)} */
+	public CompletableFuture<Long> cloneEntity(String name, long id, Map<String, String> keys) {
+		return submit(() -> session.cloneEntity(name, id, keys));
+	}
+
+	/** See {@link Session#waitMillis(long)} */
+	public CompletableFuture<Void> waitMillis(long ms) {
+		return submit(() -> session.waitMillis(ms));
+	}
+
+	/** See {@link Session#list(String)} */
+	public CompletableFuture<String> list(String path) {
+		return submit(() -> session.list(path));
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.icatproject.icat.client;
+
+/**
+ * Settings for one of the optional caches of an {@link ICAT} instance. A
+ * cache is bounded by the total number of characters it holds, evicting the
+ * least recently used entries first, and each entry expires after a time to
+ * live. All setters return the settings object so that calls may be chained.
+ */
+public class CacheSettings {
+
+	private long maxCharacters = 10_000_000;
+	private long ttlSeconds = 300;
+
+	/**
+	 * Return the maximum number of characters held in the cache
+	 *
+	 * @return the maximum number of characters
+	 */
+	public long getMaxCharacters() {
+		return maxCharacters;
+	}
+
+	/**
+	 * Set the maximum number of characters, counting both the keys and the
+	 * Json values, held in the cache. The default is ten million.
+	 *
+	 * @param maxCharacters
+	 *                      the maximum number of characters
+	 *
+	 * @return these settings
+	 */
+	public CacheSettings setMaxCharacters(long maxCharacters) {
+		if (maxCharacters < 1) {
+			throw new IllegalArgumentException("maxCharacters must be positive");
+		}
+		this.maxCharacters = maxCharacters;
+		return this;
+	}
+
+	/**
+	 * Return the time after which an entry expires
+	 *
+	 * @return the time to live in seconds
+	 */
+	public long getTtlSeconds() {
+		return ttlSeconds;
+	}
+
+	/**
+	 * Set the time after which an entry expires. The default is 300 seconds.
+	 *
+	 * @param ttlSeconds
+	 *                   the time to live in seconds
+	 *
+	 * @return these settings
+	 */
+	public CacheSettings setTtlSeconds(long ttlSeconds) {
+		if (ttlSeconds < 1) {
+			throw new IllegalArgumentException("ttlSeconds must be positive");
+		}
+		this.ttlSeconds = ttlSeconds;
+		return this;
+	}
+
+}
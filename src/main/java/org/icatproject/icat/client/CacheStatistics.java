@@ -0,0 +1,81 @@
+package org.icatproject.icat.client;
+
+/** A snapshot of the statistics of one of the caches of an {@link ICAT} instance */
+public class CacheStatistics {
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private int entries;
+	private long characters;
+
+	CacheStatistics(long hits, long misses, long evictions, int entries, long characters) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.entries = entries;
+		this.characters = characters;
+	}
+
+	/**
+	 * Return the number of lookups which found a live entry
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Return the number of lookups which did not find a live entry
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Return the proportion of lookups which found a live entry
+	 *
+	 * @return the hit rate between 0 and 1 or 0 if there have been no lookups
+	 */
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Return the number of entries removed to keep within the size limit
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Return the number of entries currently held
+	 *
+	 * @return the number of entries
+	 */
+	public int getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Return the number of characters currently held
+	 *
+	 * @return the number of characters
+	 */
+	public long getCharacters() {
+		return characters;
+	}
+
+	@Override
+	public String toString() {
+		return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions + ", entries: " + entries
+				+ ", characters: " + characters;
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.icatproject.icat.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Splits a sequence of entities into chunks, each of which is written by a
+ * separate call, and remaps the offset of any failure to the position in the
+ * whole sequence.
+ */
+class ChunkedWriter implements ParallelRunner.TaskSource<List<Long>> {
+
+	private Session session;
+	private Iterator<String> entities;
+	private int maxEntities;
+	private int maxCharacters;
+	private int position;
+	private String carried;
+
+	private ChunkedWriter(Session session, Iterator<String> entities, int maxEntities, int maxCharacters) {
+		this.session = session;
+		this.entities = entities;
+		this.maxEntities = maxEntities;
+		this.maxCharacters = maxCharacters;
+	}
+
+	static List<Long> write(Session session, Iterable<String> entities, int maxEntities, int maxCharacters,
+			int parallelism) throws IcatException {
+		if (maxEntities < 1 || maxCharacters < 1) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Chunk limits must be positive");
+		}
+		ChunkedWriter writer = new ChunkedWriter(session, entities.iterator(), maxEntities, maxCharacters);
+		List<Long> ids = new ArrayList<>();
+		for (List<Long> chunkIds : ParallelRunner.run(session.getIcat().getExecutor(), parallelism, writer)) {
+			ids.addAll(chunkIds);
+		}
+		return ids;
+	}
+
+	@Override
+	public ParallelRunner.Task<List<Long>> next() {
+		if (carried == null && !entities.hasNext()) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder("[");
+		int start = position;
+		int n = 0;
+		while (n < maxEntities) {
+			String entity;
+			if (carried != null) {
+				entity = carried;
+				carried = null;
+			} else if (entities.hasNext()) {
+				entity = entities.next();
+			} else {
+				break;
+			}
+			if (n > 0 && sb.length() + entity.length() + 2 > maxCharacters) {
+				carried = entity;
+				break;
+			}
+			if (n > 0) {
+				sb.append(',');
+			}
+			sb.append(entity);
+			n++;
+		}
+		sb.append(']');
+		position += n;
+		String chunk = sb.toString();
+		return () -> writeChunk(chunk, start);
+	}
+
+	private List<Long> writeChunk(String chunk, int start) throws IcatException {
+		try {
+			return session.write(chunk);
+		} catch (IcatException e) {
+			if (e.getOffset() < 0) {
+				throw e;
+			}
+			throw new IcatException(e.getType(), e.getMessage(), start + e.getOffset());
+		}
+	}
+
+}
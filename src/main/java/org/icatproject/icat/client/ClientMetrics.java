@@ -0,0 +1,54 @@
+package org.icatproject.icat.client;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Receives measurements of the requests made by an {@link ICAT} instance. Set
+ * an implementation with {@link ClientSettings#setMetrics(ClientMetrics)};
+ * {@link JmxClientMetrics} exposes the measurements as MBeans.
+ * <p>
+ * Requests are identified by their endpoint, the part of the REST path which
+ * does not vary from call to call, such as "entityManager", "session", "port",
+ * "search/documents" or "lucene/data". Each attempt of a request which is
+ * retried is reported separately. The methods are called by the threads making
+ * the requests, so they must be thread safe and should be fast.
+ */
+public interface ClientMetrics {
+
+	/**
+	 * Called before a request is sent
+	 *
+	 * @param endpoint
+	 *                 the endpoint
+	 */
+	void requestStarted(String endpoint);
+
+	/**
+	 * Called once for each started request when the body of the response has
+	 * been read or abandoned, or the request has failed
+	 *
+	 * @param endpoint
+	 *                      the endpoint
+	 * @param nanos
+	 *                      the time from sending the request until the
+	 *                      response was read
+	 * @param bytesSent
+	 *                      the number of bytes of request body sent
+	 * @param bytesReceived
+	 *                      the number of bytes of response body read, after
+	 *                      any decompression
+	 */
+	void requestCompleted(String endpoint, long nanos, long bytesSent, long bytesReceived);
+
+	/**
+	 * Called when a request fails, either because ICAT reported an error or,
+	 * with a type of INTERNAL, because no response was obtained
+	 *
+	 * @param endpoint
+	 *                 the endpoint
+	 * @param type
+	 *                 the type of the failure
+	 */
+	void requestFailed(String endpoint, IcatExceptionType type);
+
+}
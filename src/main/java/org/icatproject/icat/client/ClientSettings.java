@@ -0,0 +1,586 @@
+package org.icatproject.icat.client;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.Deflater;
+
+/**
+ * Settings used when creating an {@link ICAT} instance.
+ * <p>
+ * Each ICAT instance owns a single pool of HTTP connections which is shared
+ * by all the sessions obtained from it. The settings here control the size of
+ * that pool and how long idle connections are kept open. All setters return
+ * the settings object so that calls may be chained.
+ * <p>
+ * Asynchronous calls made via {@link Session#async()} and background work
+ * such as fetching the next page for a {@link SearchPager} are carried out by
+ * two bounded sets of threads, also owned by the ICAT instance, each of whose
+ * size is set by {@link #setMaxConcurrentRequests(int)}.
+ * <p>
+ * By default no timeouts are applied to requests, so that long running calls
+ * such as imports are not interrupted, and idempotent calls are retried
+ * according to a default {@link RetryPolicy}. No responses are cached unless
+ * a cache is enabled with {@link #setEntityCache(CacheSettings)} or
+ * {@link #setSearchCache(CacheSettings)}.
+ */
+public class ClientSettings {
+
+	private int maxConnections = 20;
+	private int maxConnectionsPerRoute = 20;
+	private int idleTimeoutSeconds = 30;
+	private int validateAfterInactivityMillis = 2000;
+	private int maxConcurrentRequests = 20;
+	private int connectTimeoutMillis = -1;
+	private int socketTimeoutMillis = -1;
+	private int connectionRequestTimeoutMillis = -1;
+	private RetryPolicy retryPolicy = new RetryPolicy();
+	private CacheSettings entityCache;
+	private CacheSettings searchCache;
+	private int keepAliveIntervalSeconds = 60;
+	private int keepAliveMarginSeconds = 600;
+	private boolean responseCompression = true;
+	private boolean uploadCompression;
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private long uploadMaxBytesPerSecond;
+	private ClientMetrics metrics;
+	private List<RequestTracer> tracers = new CopyOnWriteArrayList<>();
+	private String correlationHeader;
+
+	/**
+	 * Return the maximum number of connections in the pool
+	 *
+	 * @return the maximum number of connections
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of connections in the pool. The default is 20.
+	 *
+	 * @param maxConnections
+	 *                       the maximum number of connections
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setMaxConnections(int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("maxConnections must be positive");
+		}
+		this.maxConnections = maxConnections;
+		return this;
+	}
+
+	/**
+	 * Return the maximum number of connections to any one route
+	 *
+	 * @return the maximum number of connections to any one route
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	/**
+	 * Set the maximum number of connections to any one route (i.e. to the ICAT
+	 * server via any proxy). The default is 20.
+	 *
+	 * @param maxConnectionsPerRoute
+	 *                               the maximum number of connections to any
+	 *                               one route
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		if (maxConnectionsPerRoute < 1) {
+			throw new IllegalArgumentException("maxConnectionsPerRoute must be positive");
+		}
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	/**
+	 * Return the time after which idle connections are closed
+	 *
+	 * @return the idle timeout in seconds
+	 */
+	public int getIdleTimeoutSeconds() {
+		return idleTimeoutSeconds;
+	}
+
+	/**
+	 * Set the time after which connections which have not been used are closed
+	 * by a background thread. The default is 30 seconds.
+	 *
+	 * @param idleTimeoutSeconds
+	 *                           the idle timeout in seconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setIdleTimeoutSeconds(int idleTimeoutSeconds) {
+		if (idleTimeoutSeconds < 1) {
+			throw new IllegalArgumentException("idleTimeoutSeconds must be positive");
+		}
+		this.idleTimeoutSeconds = idleTimeoutSeconds;
+		return this;
+	}
+
+	/**
+	 * Return the period of inactivity after which a pooled connection is
+	 * checked before being reused
+	 *
+	 * @return the period in milliseconds
+	 */
+	public int getValidateAfterInactivityMillis() {
+		return validateAfterInactivityMillis;
+	}
+
+	/**
+	 * Set the period of inactivity after which a pooled connection is checked
+	 * for staleness before being reused. The default is 2000 ms. A value of
+	 * zero or less disables the check.
+	 *
+	 * @param validateAfterInactivityMillis
+	 *                                      the period in milliseconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+		this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+		return this;
+	}
+
+	/**
+	 * Return the maximum number of requests carried out concurrently in the
+	 * background
+	 *
+	 * @return the maximum number of concurrent background requests
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Set the maximum number of requests carried out concurrently in the
+	 * background. Further requests are queued until a thread is free. The
+	 * default is 20 which matches the default size of the connection pool.
+	 *
+	 * @param maxConcurrentRequests
+	 *                              the maximum number of concurrent background
+	 *                              requests
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setMaxConcurrentRequests(int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+		}
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		return this;
+	}
+
+	/**
+	 * Return the timeout for establishing a connection
+	 *
+	 * @return the timeout in milliseconds or -1 if not set
+	 */
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	/**
+	 * Set the timeout for establishing a connection. A value of zero means no
+	 * timeout and a negative value leaves the system default.
+	 *
+	 * @param connectTimeoutMillis
+	 *                             the timeout in milliseconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Return the maximum period of inactivity while waiting for data from the
+	 * server
+	 *
+	 * @return the timeout in milliseconds or -1 if not set
+	 */
+	public int getSocketTimeoutMillis() {
+		return socketTimeoutMillis;
+	}
+
+	/**
+	 * Set the maximum period of inactivity while waiting for data from the
+	 * server. This must be longer than the slowest call expected, including
+	 * the time taken by the server to start sending the results of a search.
+	 * A value of zero means no timeout and a negative value leaves the system
+	 * default.
+	 *
+	 * @param socketTimeoutMillis
+	 *                            the timeout in milliseconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setSocketTimeoutMillis(int socketTimeoutMillis) {
+		this.socketTimeoutMillis = socketTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Return the timeout for obtaining a connection from the pool
+	 *
+	 * @return the timeout in milliseconds or -1 if not set
+	 */
+	public int getConnectionRequestTimeoutMillis() {
+		return connectionRequestTimeoutMillis;
+	}
+
+	/**
+	 * Set the timeout for obtaining a connection from the pool when all the
+	 * connections are in use. A value of zero means no timeout and a negative
+	 * value leaves the system default.
+	 *
+	 * @param connectionRequestTimeoutMillis
+	 *                                       the timeout in milliseconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+		this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Return the policy for retrying idempotent calls
+	 *
+	 * @return the retry policy
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the policy for retrying idempotent calls. Use
+	 * {@link RetryPolicy#none()} to disable retries.
+	 *
+	 * @param retryPolicy
+	 *                    the retry policy
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setRetryPolicy(RetryPolicy retryPolicy) {
+		if (retryPolicy == null) {
+			throw new IllegalArgumentException("retryPolicy must not be null");
+		}
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Return the settings of the entity cache
+	 *
+	 * @return the settings or null if the cache is disabled
+	 */
+	public CacheSettings getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Enable a read-through cache of the results of
+	 * {@link Session#get(String, long)}. Results are cached separately for
+	 * each user so that authorization rules cannot leak data between users.
+	 * Entries are removed when entities of the same type are written through
+	 * the ICAT instance. Writes which create related entities, deletes,
+	 * clones and imports clear the whole cache. Changes made by other clients
+	 * are only seen once the entry expires. The cache is disabled by default.
+	 *
+	 * @param entityCache
+	 *                    the settings of the cache or null to disable it
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setEntityCache(CacheSettings entityCache) {
+		this.entityCache = entityCache;
+		return this;
+	}
+
+	/**
+	 * Return the settings of the search cache
+	 *
+	 * @return the settings or null if the cache is disabled
+	 */
+	public CacheSettings getSearchCache() {
+		return searchCache;
+	}
+
+	/**
+	 * Enable a cache of the results of {@link Session#search(String)}. Queries
+	 * are normalised, so that those differing only in white space or the case
+	 * of keywords share an entry, and results are cached separately for each
+	 * user. Entries are removed when entities whose type is named in the query
+	 * are written through the ICAT instance. Writes which create related
+	 * entities, deletes, clones and imports clear the whole cache. Changes
+	 * made by other clients are only seen once the entry expires. The time to
+	 * live may be overridden for individual queries with
+	 * {@link Session#search(String, long)}. The cache is disabled by default.
+	 *
+	 * @param searchCache
+	 *                    the settings of the cache or null to disable it
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setSearchCache(CacheSettings searchCache) {
+		this.searchCache = searchCache;
+		return this;
+	}
+
+	/**
+	 * Return how often sessions registered with
+	 * {@link ICAT#keepAlive(Session)} are checked
+	 *
+	 * @return the interval in seconds
+	 */
+	public int getKeepAliveIntervalSeconds() {
+		return keepAliveIntervalSeconds;
+	}
+
+	/**
+	 * Set how often sessions registered with {@link ICAT#keepAlive(Session)}
+	 * are checked to see if they need to be refreshed. The default is 60
+	 * seconds.
+	 *
+	 * @param keepAliveIntervalSeconds
+	 *                                 the interval in seconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setKeepAliveIntervalSeconds(int keepAliveIntervalSeconds) {
+		if (keepAliveIntervalSeconds < 1) {
+			throw new IllegalArgumentException("keepAliveIntervalSeconds must be positive");
+		}
+		this.keepAliveIntervalSeconds = keepAliveIntervalSeconds;
+		return this;
+	}
+
+	/**
+	 * Return how long before expiry sessions registered with
+	 * {@link ICAT#keepAlive(Session)} are refreshed
+	 *
+	 * @return the margin in seconds
+	 */
+	public int getKeepAliveMarginSeconds() {
+		return keepAliveMarginSeconds;
+	}
+
+	/**
+	 * Set how long before expiry sessions registered with
+	 * {@link ICAT#keepAlive(Session)} are refreshed. Each session is refreshed
+	 * at a random time between one and one and a half times the margin before
+	 * it would expire, but never later than half way through its remaining
+	 * time. The margin should be comfortably larger than the check interval.
+	 * The default is 600 seconds.
+	 *
+	 * @param keepAliveMarginSeconds
+	 *                               the margin in seconds
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setKeepAliveMarginSeconds(int keepAliveMarginSeconds) {
+		if (keepAliveMarginSeconds < 1) {
+			throw new IllegalArgumentException("keepAliveMarginSeconds must be positive");
+		}
+		this.keepAliveMarginSeconds = keepAliveMarginSeconds;
+		return this;
+	}
+
+	/**
+	 * Return whether compressed responses are requested
+	 *
+	 * @return true if compressed responses are requested
+	 */
+	public boolean isResponseCompression() {
+		return responseCompression;
+	}
+
+	/**
+	 * Set whether the server is asked to compress responses, such as the
+	 * results of searches and exports, with gzip or deflate. Responses are
+	 * decompressed as they are read so no extra buffering is needed. This is
+	 * enabled by default and need only be disabled if the network is faster
+	 * than the compression.
+	 *
+	 * @param responseCompression
+	 *                            true to request compressed responses
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setResponseCompression(boolean responseCompression) {
+		this.responseCompression = responseCompression;
+		return this;
+	}
+
+	/**
+	 * Return whether imports are uploaded compressed
+	 *
+	 * @return true if imports are uploaded compressed
+	 */
+	public boolean isUploadCompression() {
+		return uploadCompression;
+	}
+
+	/**
+	 * Set whether the file sent by
+	 * {@link Session#importMetaData(java.nio.file.Path, Session.DuplicateAction, Session.Attributes)}
+	 * is gzip compressed as it is sent, with a Content-Encoding header of
+	 * gzip. This must only be enabled if the server, or a proxy in front of
+	 * it, decompresses requests. It is disabled by default.
+	 *
+	 * @param uploadCompression
+	 *                          true to compress uploads
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setUploadCompression(boolean uploadCompression) {
+		this.uploadCompression = uploadCompression;
+		return this;
+	}
+
+	/**
+	 * Return the compression level for uploads
+	 *
+	 * @return the compression level
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Set the compression level for uploads from 0 (none) to 9 (best). The
+	 * default is the default of {@link Deflater}, which is a good compromise
+	 * between speed and size.
+	 *
+	 * @param compressionLevel
+	 *                         the compression level
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setCompressionLevel(int compressionLevel) {
+		if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < 0 || compressionLevel > 9)) {
+			throw new IllegalArgumentException("compressionLevel must be from 0 to 9");
+		}
+		this.compressionLevel = compressionLevel;
+		return this;
+	}
+
+	/**
+	 * Return the bandwidth limit for sending files
+	 *
+	 * @return the limit in bytes per second or 0 if there is none
+	 */
+	public long getUploadMaxBytesPerSecond() {
+		return uploadMaxBytesPerSecond;
+	}
+
+	/**
+	 * Set a limit on the average rate at which each file passed to
+	 * {@link Session#importMetaData(java.nio.file.Path, Session.DuplicateAction, Session.Attributes)}
+	 * is sent, so that a large import can share a link with other traffic.
+	 * The limit applies to the bytes of the file before any compression. The
+	 * default of 0 means no limit.
+	 *
+	 * @param uploadMaxBytesPerSecond
+	 *                                the limit in bytes per second or 0 for
+	 *                                none
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setUploadMaxBytesPerSecond(long uploadMaxBytesPerSecond) {
+		if (uploadMaxBytesPerSecond < 0) {
+			throw new IllegalArgumentException("uploadMaxBytesPerSecond must not be negative");
+		}
+		this.uploadMaxBytesPerSecond = uploadMaxBytesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Return the receiver of request measurements
+	 *
+	 * @return the metrics or null if requests are not measured
+	 */
+	public ClientMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set a receiver for the timing, size and outcome of each request, such as
+	 * a {@link JmxClientMetrics}. The default of null means that requests are
+	 * not measured.
+	 *
+	 * @param metrics
+	 *                the metrics or null for none
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setMetrics(ClientMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+
+	/**
+	 * Return the tracers of requests
+	 *
+	 * @return an unmodifiable list of the tracers in the order in which they
+	 *         were added
+	 */
+	public List<RequestTracer> getTracers() {
+		return Collections.unmodifiableList(tracers);
+	}
+
+	/**
+	 * Add a tracer to be told of the start and end of each request. Tracers
+	 * are called in the order in which they were added.
+	 *
+	 * @param tracer
+	 *               the tracer
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings addTracer(RequestTracer tracer) {
+		if (tracer == null) {
+			throw new IllegalArgumentException("tracer must not be null");
+		}
+		tracers.add(tracer);
+		return this;
+	}
+
+	/**
+	 * Return the name of the header carrying the correlation id
+	 *
+	 * @return the name of the header or null if none is sent
+	 */
+	public String getCorrelationHeader() {
+		return correlationHeader;
+	}
+
+	/**
+	 * Set the name of a header, such as "X-Correlation-ID", in which to send
+	 * the {@link CorrelationId} of each request so that the server's logs of
+	 * it can be found. The default of null means that no header is sent.
+	 *
+	 * @param correlationHeader
+	 *                          the name of the header or null for none
+	 *
+	 * @return these settings
+	 */
+	public ClientSettings setCorrelationHeader(String correlationHeader) {
+		if (correlationHeader != null && correlationHeader.isBlank()) {
+			throw new IllegalArgumentException("correlationHeader must not be blank");
+		}
+		this.correlationHeader = correlationHeader;
+		return this;
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.icatproject.icat.client;
+
+/**
+ * Associates the requests made by the current thread with a correlation id so
+ * that the requests made for one action can be linked, by a
+ * {@link RequestTracer} and, if {@link ClientSettings#setCorrelationHeader(String)}
+ * is used, in the server logs. For example:
+ *
+ * <pre>
+ * try (CorrelationId.Scope scope = CorrelationId.begin("ingest-" + runNumber)) {
+ * 	session.search(...);
+ * 	session.write(...);
+ * }
+ * </pre>
+ *
+ * The id is passed on to the requests which the client makes on its own
+ * threads while doing the work of a call, such as the pages fetched by a
+ * {@link SearchPager} or the batches of a {@link MetaDataImporter}. Requests
+ * made outside a scope are each given a new random id.
+ */
+public final class CorrelationId {
+
+	/** The extent of a correlation id, which ends when it is closed */
+	public static final class Scope implements AutoCloseable {
+
+		private String previous;
+
+		private Scope(String previous) {
+			this.previous = previous;
+		}
+
+		/** Restore the id, if any, which was current when the scope began */
+		@Override
+		public void close() {
+			if (previous == null) {
+				current.remove();
+			} else {
+				current.set(previous);
+			}
+		}
+	}
+
+	private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+	private CorrelationId() {
+	}
+
+	/**
+	 * Make an id current for this thread until the returned scope is closed.
+	 * Scopes may be nested.
+	 *
+	 * @param id
+	 *           the correlation id
+	 *
+	 * @return the scope, which must be closed by the same thread
+	 */
+	public static Scope begin(String id) {
+		if (id == null || id.isEmpty()) {
+			throw new IllegalArgumentException("id must not be empty");
+		}
+		Scope scope = new Scope(current.get());
+		current.set(id);
+		return scope;
+	}
+
+	/**
+	 * Return the id which is current for this thread
+	 *
+	 * @return the id or null if there is none
+	 */
+	public static String current() {
+		return current.get();
+	}
+
+	/** Return a runnable which runs the task with the id which is current now */
+	static Runnable wrap(Runnable task) {
+		String id = current.get();
+		if (id == null) {
+			return task;
+		}
+		return () -> {
+			Scope scope = begin(id);
+			try {
+				task.run();
+			} finally {
+				scope.close();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,153 @@
+package org.icatproject.icat.client;
+
+import java.io.StringReader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Walks through the documents found by a free text search of investigations,
+ * datasets or datafiles one at a time.
+ * <p>
+ * The search is made repeatedly, passing the search_after value returned with
+ * each page to obtain the next, until no search_after value is returned.
+ * While the caller is working through one page the next is fetched in the
+ * background. Each document is returned as the Json object found in the
+ * results array, holding for example the id, score and source of the
+ * document. The facets, if any were requested, are only requested with the
+ * first page, so later pages are not slowed by counting them again.
+ * <p>
+ * Obtain a DocumentPager from
+ * {@link Session#searchInvestigationDocuments(String, String, java.util.Date, java.util.Date, java.util.List, String, int, String, JsonArray)}
+ * or one of the similar methods and call {@link #close()} if it is abandoned
+ * before {@link #hasNext()} has returned false.
+ */
+public class DocumentPager implements AutoCloseable {
+
+	/** Obtains the page which follows the specified search_after value */
+	interface PageSource {
+		String getPage(String searchAfter) throws IcatException;
+	}
+
+	private PageSource source;
+	private ExecutorService executor;
+	private Future<JsonObject> pending;
+	private JsonArray results;
+	private int index;
+	private boolean first = true;
+	private JsonValue facets;
+	private ExecutionException failure;
+
+	DocumentPager(PageSource source, ExecutorService executor) {
+		this.source = source;
+		this.executor = executor;
+		fetch(null);
+	}
+
+	private void fetch(String searchAfter) {
+		pending = executor.submit(() -> {
+			try (JsonReader reader = Json.createReader(new StringReader(source.getPage(searchAfter)))) {
+				return reader.readObject();
+			}
+		});
+	}
+
+	/**
+	 * Return true if there is another document, waiting for the next page to
+	 * arrive if necessary
+	 *
+	 * @return true if there is another document
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors. Once a page has failed
+	 *                       every later call throws the same error.
+	 */
+	public boolean hasNext() throws IcatException {
+		if (failure != null) {
+			throw IcatException.ofFailure(failure);
+		}
+		while ((results == null || index == results.size()) && pending != null) {
+			JsonObject page;
+			try {
+				page = pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+			} catch (CancellationException e) {
+				throw new IcatException(IcatExceptionType.INTERNAL, "Document search has been closed");
+			} catch (ExecutionException e) {
+				pending = null;
+				failure = e;
+				throw IcatException.ofFailure(e);
+			}
+			pending = null;
+			if (first) {
+				facets = page.get("dimensions");
+				first = false;
+			}
+			results = page.getJsonArray("results");
+			index = 0;
+			JsonValue searchAfter = page.get("search_after");
+			if (results != null && !results.isEmpty() && searchAfter != null
+					&& searchAfter.getValueType() != ValueType.NULL) {
+				fetch(searchAfter.toString());
+			}
+		}
+		return results != null && index < results.size();
+	}
+
+	/**
+	 * Return the next document. When the last document of a page is returned
+	 * the following page, if there may be one, is already being fetched.
+	 *
+	 * @return the Json object describing the next document
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors and if there are no more
+	 *                       documents
+	 */
+	public JsonObject next() throws IcatException {
+		if (!hasNext()) {
+			throw new IcatException(IcatExceptionType.VALIDATION, "No more documents");
+		}
+		return results.getJsonObject(index++);
+	}
+
+	/**
+	 * Return the facets returned with the first page, waiting for it to
+	 * arrive if necessary
+	 *
+	 * @return the value of "dimensions" in the first page or null if there
+	 *         were none
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public JsonValue getFacets() throws IcatException {
+		if (first) {
+			hasNext();
+		}
+		return facets;
+	}
+
+	/** Abandon the walk, cancelling any page which is being fetched */
+	@Override
+	public void close() {
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+		results = null;
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.icatproject.icat.client;
+
+import java.util.Map;
+
+/**
+ * The measurements of one endpoint made by {@link JmxClientMetrics}. Times are
+ * in milliseconds and percentiles are accurate to about 6%.
+ */
+public interface EndpointMetricsMXBean {
+
+	/**
+	 * @return the endpoint such as "entityManager"
+	 */
+	String getEndpoint();
+
+	/**
+	 * @return the number of requests completed
+	 */
+	long getRequests();
+
+	/**
+	 * @return the number of requests started but not yet completed
+	 */
+	long getInFlight();
+
+	/**
+	 * @return the total number of bytes of request body sent
+	 */
+	long getBytesSent();
+
+	/**
+	 * @return the total number of bytes of response body read
+	 */
+	long getBytesReceived();
+
+	/**
+	 * @return the mean time of the completed requests
+	 */
+	double getMeanMillis();
+
+	/**
+	 * @return the median time of the completed requests
+	 */
+	double getP50Millis();
+
+	/**
+	 * @return the 90th percentile of the time of the completed requests
+	 */
+	double getP90Millis();
+
+	/**
+	 * @return the 99th percentile of the time of the completed requests
+	 */
+	double getP99Millis();
+
+	/**
+	 * @return the longest time of a completed request
+	 */
+	double getMaxMillis();
+
+	/**
+	 * @return the number of failed requests keyed by the name of their
+	 *         IcatExceptionType
+	 */
+	Map<String, Long> getErrors();
+
+	/** Set all the counts, except that of requests in flight, to zero */
+	void reset();
+
+}
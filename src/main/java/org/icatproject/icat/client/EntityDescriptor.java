@@ -0,0 +1,159 @@
+package org.icatproject.icat.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * The entity descriptor which heads a section of a metadata file in the
+ * format described in {@link Session}, such as
+ * "Investigation(facility(name:0), name:1, visitId:2)".
+ * <p>
+ * The columns are identified by the path of field names leading to them, so
+ * the descriptor above has columns "facility.name", "name" and "visitId". An
+ * anonymous variable appears as "?" so "dataCollection(?:5)" gives a column
+ * "dataCollection.?". The same offset may appear under more than one path.
+ */
+public class EntityDescriptor {
+
+	private String text;
+	private String entityType;
+	private Map<String, Integer> offsets = new LinkedHashMap<>();
+	private int columnCount;
+	private int pos;
+
+	/**
+	 * Parse an entity descriptor
+	 *
+	 * @param text
+	 *             the descriptor line
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if the text is not a valid descriptor
+	 */
+	public EntityDescriptor(String text) throws IcatException {
+		this.text = text;
+		int open = text.indexOf('(');
+		if (open < 0) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "No '(' in entity descriptor " + text);
+		}
+		entityType = text.substring(0, open).trim();
+		if (entityType.isEmpty()) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "No entity type in entity descriptor " + text);
+		}
+		pos = open + 1;
+		parseFields("");
+		skipSpaces();
+		if (pos != text.length()) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER,
+					"Unexpected text after ')' in entity descriptor " + text);
+		}
+	}
+
+	/** Parse a comma separated list of fields up to and including the closing ')' */
+	private void parseFields(String prefix) throws IcatException {
+		while (true) {
+			skipSpaces();
+			int start = pos;
+			while (pos < text.length()
+					&& (Character.isJavaIdentifierPart(text.charAt(pos)) || text.charAt(pos) == '?')) {
+				pos++;
+			}
+			String name = text.substring(start, pos);
+			skipSpaces();
+			if (name.isEmpty() || pos == text.length()) {
+				throw error();
+			}
+			char c = text.charAt(pos++);
+			if (c == '(') {
+				parseFields(prefix + name + ".");
+			} else if (c == ':') {
+				skipSpaces();
+				int digits = pos;
+				while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+					pos++;
+				}
+				if (digits == pos) {
+					throw error();
+				}
+				int offset = Integer.parseInt(text.substring(digits, pos));
+				offsets.put(prefix + name, offset);
+				columnCount = Math.max(columnCount, offset + 1);
+			} else {
+				throw error();
+			}
+			skipSpaces();
+			if (pos == text.length()) {
+				throw error();
+			}
+			c = text.charAt(pos++);
+			if (c == ')') {
+				return;
+			} else if (c != ',') {
+				throw error();
+			}
+		}
+	}
+
+	private void skipSpaces() {
+		while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private IcatException error() {
+		return new IcatException(IcatExceptionType.BAD_PARAMETER,
+				"Invalid entity descriptor at position " + pos + " of " + text);
+	}
+
+	/**
+	 * Return the name of the entity type
+	 *
+	 * @return the name of the entity type
+	 */
+	public String getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * Return the offsets of the columns keyed by the path of field names, in
+	 * the order in which they appear in the descriptor
+	 *
+	 * @return an unmodifiable map from path to offset
+	 */
+	public Map<String, Integer> getOffsets() {
+		return Collections.unmodifiableMap(offsets);
+	}
+
+	/**
+	 * Return the number of values expected in each row, one more than the
+	 * highest offset
+	 *
+	 * @return the number of values in a row
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * Return true if the descriptor uses an anonymous variable
+	 *
+	 * @return true if "?" appears in the descriptor
+	 */
+	public boolean hasAnonymousVariable() {
+		return text.indexOf('?') >= 0;
+	}
+
+	/**
+	 * Return the descriptor as it appears in the file
+	 *
+	 * @return the descriptor text
+	 */
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
@@ -0,0 +1,55 @@
+package org.icatproject.icat.client;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/** Identifies the result of a get call in the entity cache */
+class EntityKey implements ResponseCache.Key {
+
+	private static final Pattern include = Pattern.compile("\\bINCLUDE\\b", Pattern.CASE_INSENSITIVE);
+
+	private String user;
+	private String query;
+	private long id;
+	private String entityType;
+	private boolean includes;
+
+	EntityKey(String user, String query, long id) {
+		this.user = user;
+		this.query = query;
+		this.id = id;
+		entityType = query.trim().split("[\\s\\[]", 2)[0];
+		includes = include.matcher(query).find();
+	}
+
+	/**
+	 * Return true if the cached result may be changed by writing or deleting
+	 * entities of the specified types. As the types of related entities are
+	 * not known all results with an INCLUDE clause are considered to be
+	 * affected.
+	 */
+	boolean isAffectedBy(Set<String> entityTypes) {
+		return includes || entityTypes.contains(entityType);
+	}
+
+	@Override
+	public int getCharacters() {
+		return user.length() + query.length() + 20;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof EntityKey)) {
+			return false;
+		}
+		EntityKey other = (EntityKey) obj;
+		return id == other.id && user.equals(other.user) && query.equals(other.query);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(user, query, id);
+	}
+
+}
@@ -0,0 +1,108 @@
+package org.icatproject.icat.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+/**
+ * The body of a multipart part taken from a file whose length is known in
+ * advance, so that the request can be sent with a Content-Length. The file is
+ * passed to the connection in blocks by FileChannel.transferTo, which avoids
+ * copying through the Java heap where the platform allows. After each block
+ * the listener, if any, is told of the progress and, if a bandwidth limit is
+ * set, the sending thread waits for as long as is needed to keep the average
+ * rate within the limit.
+ */
+class FileContentBody extends AbstractContentBody {
+
+	private static final long blockSize = 65536;
+
+	private Path path;
+	private long length;
+	private UploadProgressListener listener;
+	private long maxBytesPerSecond;
+
+	/**
+	 * @param path
+	 *                          the file which must not change while it is sent
+	 * @param length
+	 *                          the length of the file
+	 * @param listener
+	 *                          the listener or null
+	 * @param maxBytesPerSecond
+	 *                          the bandwidth limit or 0 for none
+	 */
+	FileContentBody(Path path, long length, UploadProgressListener listener, long maxBytesPerSecond) {
+		super(ContentType.APPLICATION_OCTET_STREAM);
+		this.path = path;
+		this.length = length;
+		this.listener = listener;
+		this.maxBytesPerSecond = maxBytesPerSecond;
+	}
+
+	@Override
+	public String getFilename() {
+		return "";
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		WritableByteChannel target = Channels.newChannel(out);
+		long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long position = 0;
+			while (position < length) {
+				long sent = channel.transferTo(position, Math.min(blockSize, length - position), target);
+				if (sent <= 0) {
+					throw new IOException(path + " is shorter than the expected " + length + " bytes");
+				}
+				position += sent;
+				if (listener != null) {
+					listener.progress(position, length);
+				}
+				if (maxBytesPerSecond > 0) {
+					long aheadNanos = getSendNanos(position, maxBytesPerSecond) - (System.nanoTime() - start);
+					if (aheadNanos > 0) {
+						try {
+							Thread.sleep(aheadNanos / 1_000_000, (int) (aheadNanos % 1_000_000));
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new InterruptedIOException("Upload of " + path + " interrupted");
+						}
+					}
+				}
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Return the time in nanoseconds that sending the specified number of
+	 * bytes should take at the specified rate. The whole seconds and the
+	 * remainder are calculated separately so that large files do not overflow.
+	 */
+	static long getSendNanos(long bytes, long maxBytesPerSecond) {
+		return bytes / maxBytesPerSecond * 1_000_000_000L
+				+ bytes % maxBytesPerSecond * 1_000_000_000L / maxBytesPerSecond;
+	}
+
+	@Override
+	public String getTransferEncoding() {
+		return MIME.ENC_BINARY;
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.icatproject.icat.client;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Applies application/x-www-form-urlencoded encoding to the bytes written to
+ * it in the same way as {@link java.net.URLEncoder}. Closing the stream only
+ * flushes it; the underlying stream is left open.
+ */
+class FormEncodingOutputStream extends FilterOutputStream {
+
+	private static final byte[] hex = "0123456789ABCDEF".getBytes();
+
+	private byte[] buffer = new byte[8192];
+	private int count;
+
+	FormEncodingOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count > buffer.length - 3) {
+			flushBuffer();
+		}
+		if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '.' || b == '-'
+				|| b == '*' || b == '_') {
+			buffer[count++] = (byte) b;
+		} else if (b == ' ') {
+			buffer[count++] = '+';
+		} else {
+			buffer[count++] = '%';
+			buffer[count++] = hex[(b >> 4) & 0xF];
+			buffer[count++] = hex[b & 0xF];
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		for (int i = off; i < off + len; i++) {
+			write(b[i]);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+}
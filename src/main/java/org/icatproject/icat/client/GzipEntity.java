@@ -0,0 +1,65 @@
+package org.icatproject.icat.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+/**
+ * Wraps an entity so that it is gzip compressed, at the specified level, as it
+ * is written to the connection. The compressed length is not known in advance
+ * so the entity is sent chunked. The content, which is only needed if the
+ * entity is read rather than written, is compressed into memory.
+ */
+class GzipEntity extends HttpEntityWrapper {
+
+	private int level;
+
+	GzipEntity(HttpEntity entity, int level) {
+		super(entity);
+		this.level = level;
+	}
+
+	@Override
+	public Header getContentEncoding() {
+		return new BasicHeader(HTTP.CONTENT_ENCODING, "gzip");
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public boolean isChunked() {
+		return true;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		writeTo(baos);
+		return new ByteArrayInputStream(baos.toByteArray());
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		GZIPOutputStream gzip = new GZIPOutputStream(outstream, 65536) {
+			{
+				def.setLevel(level);
+			}
+		};
+		wrappedEntity.writeTo(gzip);
+		/* This finishes the chunked encoding without closing the connection */
+		gzip.close();
+	}
+
+}
@@ -4,27 +4,22 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.impl.client.CloseableHttpClient;
 
 class HttpInputStream extends FilterInputStream {
 
 	private CloseableHttpResponse response;
-	private CloseableHttpClient httpclient;
 
 	/**
-	 * Creates an input stream using the specified response.
-	 * 
-	 * @param httpclient
-	 *            the CloseableHttpClient to close
+	 * Creates an input stream using the specified response. The connection
+	 * belongs to the pool of the ICAT instance and is returned to it when the
+	 * stream is closed.
 	 * 
 	 * @param response
 	 *            the response to use and ultimately close
 	 */
-	HttpInputStream(CloseableHttpClient httpclient, CloseableHttpResponse response)
-			throws IllegalStateException, IOException {
+	HttpInputStream(CloseableHttpResponse response) throws IllegalStateException, IOException {
 		super(response.getEntity().getContent());
 		this.response = response;
-		this.httpclient = httpclient;
 	}
 
 	/** Ensure that response is closed as well as the underlying inputstream */
@@ -43,13 +38,6 @@ class HttpInputStream extends FilterInputStream {
 				exception = e;
 			}
 		}
-		try {
-			httpclient.close();
-		} catch (IOException e) {
-			if (exception == null) {
-				exception = e;
-			}
-		}
 		if (exception != null) {
 			throw exception;
 		}
@@ -1,21 +1,36 @@
 package org.icatproject.icat.client;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -29,38 +44,81 @@ import jakarta.json.stream.JsonParser.Event;
 import jakarta.json.stream.JsonParsingException;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.icatproject.icat.client.IcatException.IcatExceptionType;
 import org.icatproject.icat.client.Session.Attributes;
 import org.icatproject.icat.client.Session.DuplicateAction;
 
-/** Represents a RESTful ICAT instance from which sessions may be obtained. */
-public class ICAT {
+/**
+ * Represents a RESTful ICAT instance from which sessions may be obtained.
+ * <p>
+ * Each instance owns a pool of HTTP connections which is shared by all calls
+ * made through it and through the sessions obtained from it, so an instance
+ * should be created once and reused. Call {@link #close()} when it is no
+ * longer needed to release the connections.
+ */
+public class ICAT implements AutoCloseable {
 
 	private static final String basePath = "/icat";
 
+	private static final int maxUriLength = 2048;
+
+	private static final int splitSearchParallelism = 4;
+
 	private URI uri;
 
+	private CloseableHttpClient httpclient;
+
+	private ExecutorService executor;
+
+	private ExecutorService asyncExecutor;
+
+	private RetryPolicy retryPolicy;
+
+	private volatile int maxEntities;
+
+	private volatile int lifetimeMinutes;
+
+	private ClientSettings settings;
+
+	private SessionKeeper sessionKeeper;
+
+	private ResponseCache<EntityKey> entityCache;
+
+	private ResponseCache<SearchKey> searchCache;
+
+	private Map<String, String> userNames = new ConcurrentHashMap<>();
+
+	private Map<URI, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+	private static final int maxUserNames = 1000;
+
 	/**
 	 * Create a RESTful ICAT instance connected to the server at the specified
-	 * URI
+	 * URI using default {@link ClientSettings}
 	 * 
 	 * @param urlString
 	 *                  The URI of a server in the form https://example.com:443.
@@ -69,10 +127,169 @@ public class ICAT {
 	 *                            If the urlString is not a valid URI
 	 */
 	public ICAT(String urlString) throws URISyntaxException {
+		this(urlString, new ClientSettings());
+	}
+
+	/**
+	 * Create a RESTful ICAT instance connected to the server at the specified
+	 * URI
+	 * 
+	 * @param urlString
+	 *                  The URI of a server in the form https://example.com:443.
+	 * @param settings
+	 *                  Settings controlling the pool of HTTP connections
+	 * 
+	 * @throws URISyntaxException
+	 *                            If the urlString is not a valid URI
+	 */
+	public ICAT(String urlString, ClientSettings settings) throws URISyntaxException {
 		this.uri = new URI(urlString);
+		this.settings = settings;
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(settings.getMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+		connectionManager.setValidateAfterInactivity(settings.getValidateAfterInactivityMillis());
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(settings.getConnectTimeoutMillis())
+				.setSocketTimeout(settings.getSocketTimeoutMillis())
+				.setConnectionRequestTimeout(settings.getConnectionRequestTimeoutMillis()).build();
+		HttpClientBuilder builder = HttpClients.custom().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig).evictExpiredConnections()
+				.evictIdleConnections(settings.getIdleTimeoutSeconds(), TimeUnit.SECONDS)
+				// Retries are made only by execute, according to the RetryPolicy
+				.disableAutomaticRetries();
+		if (!settings.isResponseCompression()) {
+			builder.disableContentCompression();
+		}
+		httpclient = builder.build();
+		retryPolicy = settings.getRetryPolicy();
+		if (settings.getEntityCache() != null) {
+			entityCache = new ResponseCache<>(settings.getEntityCache());
+		}
+		if (settings.getSearchCache() != null) {
+			searchCache = new ResponseCache<>(settings.getSearchCache());
+		}
+		executor = newPool(settings.getMaxConcurrentRequests());
+		asyncExecutor = newPool(settings.getMaxConcurrentRequests());
+	}
+
+	/** Return a pool of daemon threads which keep the correlation id of the caller */
+	private static ExecutorService newPool(int threads) {
+		ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = defaultFactory.newThread(runnable);
+					thread.setDaemon(true);
+					return thread;
+				}) {
+			@Override
+			public void execute(Runnable command) {
+				// Requests made for the caller keep its correlation id
+				super.execute(CorrelationId.wrap(command));
+			}
+		};
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Release the pooled HTTP connections. Neither this ICAT nor any session
+	 * obtained from it may be used afterwards.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (sessionKeeper != null) {
+				sessionKeeper.close();
+			}
+		}
+		asyncExecutor.shutdownNow();
+		executor.shutdownNow();
+		try {
+			httpclient.close();
+		} catch (IOException e) {
+			// Ignore it
+		}
+	}
+
+	/**
+	 * Execute a request using the pooled client. GET requests, which only read
+	 * from ICAT, are retried according to the retry policy.
+	 */
+	private CloseableHttpResponse execute(HttpUriRequest request) throws IcatException, IOException {
+		boolean idempotent = request instanceof HttpGet;
+		ClientMetrics metrics = settings.getMetrics();
+		List<RequestTracer> tracers = settings.getTracers();
+		boolean metered = metrics != null || !tracers.isEmpty();
+		String correlationId = CorrelationId.current();
+		if (correlationId == null && (metered || settings.getCorrelationHeader() != null)) {
+			correlationId = UUID.randomUUID().toString();
+		}
+		if (settings.getCorrelationHeader() != null) {
+			request.setHeader(settings.getCorrelationHeader(), correlationId);
+		}
+		String endpoint = metered ? RequestMeter.getEndpoint(basePath, request.getURI().getPath()) : null;
+		HttpEntity body = request instanceof HttpEntityEnclosingRequest
+				? ((HttpEntityEnclosingRequest) request).getEntity()
+				: null;
+		int attempt = 1;
+		while (true) {
+			RequestMeter meter = null;
+			if (metered) {
+				meter = new RequestMeter(metrics, tracers, new RequestTrace(correlationId, request.getMethod(),
+						endpoint, attempt, body == null ? 0 : body.getContentLength()));
+				meter.start(request, body);
+			}
+			CloseableHttpResponse response;
+			try {
+				response = httpclient.execute(request);
+			} catch (IOException e) {
+				if (meter != null) {
+					meter.failed(IcatExceptionType.INTERNAL);
+				}
+				if (!idempotent || attempt == retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(e)) {
+					throw e;
+				}
+				backOff(++attempt);
+				continue;
+			}
+			if (meter != null) {
+				meter.attach(response);
+			}
+			if (idempotent && attempt < retryPolicy.getMaxAttempts()
+					&& retryPolicy.isRetryable(response.getStatusLine().getStatusCode())) {
+				if (meter != null) {
+					meter.failed(IcatExceptionType.INTERNAL);
+				}
+				response.close();
+				backOff(++attempt);
+				continue;
+			}
+			return response;
+		}
+	}
+
+	private void backOff(int attempt) throws IcatException {
+		try {
+			Thread.sleep(retryPolicy.getDelayMillis(attempt));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
 	}
 
 	private void checkStatus(HttpResponse response) throws IcatException, IOException {
+		RequestMeter meter = RequestMeter.of(response);
+		try {
+			checkStatusCode(response);
+		} catch (IcatException e) {
+			if (meter != null) {
+				meter.failed(e.getType());
+			}
+			throw e;
+		}
+	}
+
+	private void checkStatusCode(HttpResponse response) throws IcatException, IOException {
 		StatusLine status = response.getStatusLine();
 		if (status == null) {
 			throw new IcatException(IcatExceptionType.INTERNAL, "Status line returned is empty");
@@ -84,9 +301,9 @@ public class ICAT {
 			if (entity == null) {
 				throw new IcatException(IcatExceptionType.INTERNAL, "No explanation provided");
 			} else {
-				error = EntityUtils.toString(entity, Charset.defaultCharset());
+				error = EntityUtils.toString(entity, StandardCharsets.UTF_8);
 			}
-			try (JsonParser parser = Json.createParser(new ByteArrayInputStream(error.getBytes()))) {
+			try (JsonParser parser = Json.createParser(new StringReader(error))) {
 				String code = null;
 				String message = null;
 				String key = "";
@@ -120,17 +337,24 @@ public class ICAT {
 	}
 
 	List<Long> write(String sessionId, String entities) throws IcatException {
-		URI uri = getUri(getUriBuilder("entityManager"));
 		List<NameValuePair> formparams = new ArrayList<>();
 		formparams.add(new BasicNameValuePair("sessionId", sessionId));
 		formparams.add(new BasicNameValuePair("entities", entities));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		return write(new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8), () -> getEntityTypes(entities));
+	}
+
+	List<Long> write(String sessionId, JsonEntityWriter writer) throws IcatException {
+		return write(new StreamingFormEntity(sessionId, writer), () -> null);
+	}
+
+	private List<Long> write(HttpEntity entity, Supplier<Set<String>> entityTypes) throws IcatException {
+		URI uri = getUri(getUriBuilder("entityManager"));
+		try {
 			HttpPost httpPost = new HttpPost(uri);
-			httpPost.setEntity(new UrlEncodedFormEntity(formparams));
+			httpPost.setEntity(entity);
 			List<Long> result = new ArrayList<>();
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
-				checkStatus(response);
-				try (JsonParser parser = Json.createParser(new ByteArrayInputStream(getString(response).getBytes()))) {
+			try (CloseableHttpResponse response = executeChange(httpPost, entityTypes)) {
+				try (JsonParser parser = Json.createParser(getEntity(response).getContent())) {
 					JsonParser.Event event = parser.next();
 					if (event != Event.START_ARRAY) {
 						throw new IcatException(IcatExceptionType.INTERNAL, "Not a valid JSON array of longs");
@@ -156,9 +380,10 @@ public class ICAT {
 		uriBuilder.setParameter("sessionId", sessionId);
 		uriBuilder.setParameter("entities", entities);
 		URI uri = getUri(uriBuilder);
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpDelete httpDelete = new HttpDelete(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpDelete)) {
+			// Deletes cascade to related entities of types which are not known here
+			try (CloseableHttpResponse response = executeChange(httpDelete, () -> null)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -166,15 +391,146 @@ public class ICAT {
 		}
 	}
 
+	/**
+	 * Execute a request which may change entities and then remove cached
+	 * results which may be affected. This is done even if the request fails
+	 * as the server may have acted on it before the response was lost.
+	 */
+	private CloseableHttpResponse executeChange(HttpUriRequest request, Supplier<Set<String>> entityTypes)
+			throws IcatException, IOException {
+		try {
+			return execute(request);
+		} finally {
+			invalidate(entityTypes);
+		}
+	}
+
+	/**
+	 * Return the names of the types of the entities which may be changed by
+	 * writing a Json representation of one entity or an array of entities or
+	 * null if they are not known. They are not known if the Json cannot be
+	 * parsed or if any entity holds an array of related entities, as the
+	 * types of those are not named.
+	 */
+	static Set<String> getEntityTypes(String entities) {
+		Set<String> types = new HashSet<>();
+		try (JsonParser parser = Json.createParser(new StringReader(entities))) {
+			int depth = 0;
+			int typeDepth = -1;
+			while (parser.hasNext()) {
+				JsonParser.Event event = parser.next();
+				if (typeDepth < 0) {
+					typeDepth = event == Event.START_ARRAY ? 2 : 1;
+				} else if (event == Event.START_ARRAY) {
+					return null;
+				}
+				if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+					depth++;
+				} else if (event == Event.END_OBJECT || event == Event.END_ARRAY) {
+					depth--;
+				} else if (event == Event.KEY_NAME && depth == typeDepth) {
+					types.add(parser.getString());
+				}
+			}
+		} catch (JsonException e) {
+			return null;
+		}
+		return types;
+	}
+
+	/**
+	 * Remove cached results which may be changed by writing or deleting
+	 * entities of the supplied types or all cached results if the types are
+	 * not known. The types are only obtained if there is a cache.
+	 */
+	private void invalidate(Supplier<Set<String>> entityTypeSupplier) {
+		if (entityCache == null && searchCache == null) {
+			return;
+		}
+		Set<String> entityTypes = entityTypeSupplier.get();
+		if (entityCache != null) {
+			if (entityTypes == null) {
+				entityCache.clear();
+			} else {
+				entityCache.invalidate(key -> key.isAffectedBy(entityTypes));
+			}
+		}
+		if (searchCache != null) {
+			if (entityTypes == null) {
+				searchCache.clear();
+			} else {
+				searchCache.invalidate(key -> key.isAffectedBy(entityTypes));
+			}
+		}
+	}
+
+	/**
+	 * Return the name of the user of the session, remembering it so that it
+	 * need only be obtained once
+	 */
+	private String getCachedUserName(String sessionId) throws IcatException {
+		String userName = userNames.get(sessionId);
+		if (userName == null) {
+			userName = getUserName(sessionId);
+			if (userNames.size() >= maxUserNames) {
+				userNames.clear();
+			}
+			userNames.put(sessionId, userName);
+		}
+		return userName;
+	}
+
+	/**
+	 * Return statistics of the entity cache
+	 * 
+	 * @return the statistics or null if the cache is not enabled
+	 * 
+	 * @see ClientSettings#setEntityCache(CacheSettings)
+	 */
+	public CacheStatistics getEntityCacheStatistics() {
+		return entityCache == null ? null : entityCache.getStatistics();
+	}
+
+	/**
+	 * Remove all entries from the entity cache. This should be called if
+	 * entities may have been changed by another client and the change must be
+	 * seen before the cached entries expire.
+	 */
+	public void clearEntityCache() {
+		if (entityCache != null) {
+			entityCache.clear();
+		}
+	}
+
+	/**
+	 * Return statistics of the search cache
+	 * 
+	 * @return the statistics or null if the cache is not enabled
+	 * 
+	 * @see ClientSettings#setSearchCache(CacheSettings)
+	 */
+	public CacheStatistics getSearchCacheStatistics() {
+		return searchCache == null ? null : searchCache.getStatistics();
+	}
+
+	/**
+	 * Remove all entries from the search cache. This should be called if
+	 * entities may have been changed by another client and the change must be
+	 * seen before the cached entries expire.
+	 */
+	public void clearSearchCache() {
+		if (searchCache != null) {
+			searchCache.clear();
+		}
+	}
+
 	private void expectNothing(CloseableHttpResponse response) throws IcatException, IOException {
 		checkStatus(response);
 		HttpEntity entity = response.getEntity();
 		if (entity != null) {
-			String error = EntityUtils.toString(entity, Charset.defaultCharset());
+			String error = EntityUtils.toString(entity, StandardCharsets.UTF_8);
 			if (!error.isEmpty()) {
-				try (JsonParser parser = Json.createParser(new ByteArrayInputStream(error.getBytes()))) {
-					throw new IcatException(IcatExceptionType.INTERNAL, "No http entity expected in response " + error);
-				}
+				throw new IcatException(IcatExceptionType.INTERNAL, "No http entity expected in response " + error);
 			}
 		}
 	}
@@ -190,33 +546,24 @@ public class ICAT {
 		gen.write("attributes", attributes.name().toLowerCase()).writeEnd().close();
 
 		URIBuilder uriBuilder = getUriBuilder("port");
-		uriBuilder.setParameter("json", baos.toString());
+		uriBuilder.setParameter("json", baos.toString(StandardCharsets.UTF_8));
 		URI uri = getUri(uriBuilder);
 
 		CloseableHttpResponse response = null;
-		CloseableHttpClient httpclient = null;
 		HttpGet httpGet = new HttpGet(uri);
 
 		boolean closeNeeded = true;
 		try {
-			httpclient = HttpClients.createDefault();
-			response = httpclient.execute(httpGet);
+			response = execute(httpGet);
 			checkStatus(response);
 			closeNeeded = false;
-			return new HttpInputStream(httpclient, response);
+			return new HttpInputStream(response);
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
 		} finally {
-			if (closeNeeded && httpclient != null) {
+			if (closeNeeded && response != null) {
 				try {
-					if (response != null) {
-						try {
-							response.close();
-						} catch (Exception e) {
-							// Ignore it
-						}
-					}
-					httpclient.close();
+					response.close();
 				} catch (IOException e) {
 					// Ignore it
 				}
@@ -232,18 +579,26 @@ public class ICAT {
 		uriBuilder.setParameter("id", Long.toString(id));
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
+		EntityKey key = null;
+		long generation = 0;
+		if (entityCache != null) {
+			key = new EntityKey(getCachedUserName(sessionId), query, id);
+			generation = entityCache.getGeneration();
+			String cached = entityCache.get(key);
+			if (cached != null) {
+				return cached;
 			}
-		} catch (IOException e) {
-			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
 		}
+
+		String result = getString(uri);
+		if (key != null) {
+			entityCache.put(key, result, generation);
+		}
+		return result;
 	}
 
-	private String getStringFromJson(String input, String sought) throws IcatException {
-		try (JsonParser parser = Json.createParser(new ByteArrayInputStream(input.getBytes()))) {
+	private String getStringFromJson(CloseableHttpResponse response, String sought) throws IcatException, IOException {
+		try (JsonParser parser = Json.createParser(getEntity(response).getContent())) {
 			String key = "";
 			while (parser.hasNext()) {
 				JsonParser.Event event = parser.next();
@@ -255,12 +610,12 @@ public class ICAT {
 					}
 				}
 			}
-			throw new IcatException(IcatExceptionType.INTERNAL, "No " + sought + " in " + input);
+			throw new IcatException(IcatExceptionType.INTERNAL, "No " + sought + " in response");
 		}
 	}
 
-	private long getLongFromJson(String input, String sought) throws IcatException {
-		try (JsonParser parser = Json.createParser(new ByteArrayInputStream(input.getBytes()))) {
+	private long getLongFromJson(CloseableHttpResponse response, String sought) throws IcatException, IOException {
+		try (JsonParser parser = Json.createParser(getEntity(response).getContent())) {
 			String key = "";
 			while (parser.hasNext()) {
 				JsonParser.Event event = parser.next();
@@ -272,12 +627,12 @@ public class ICAT {
 					}
 				}
 			}
-			throw new IcatException(IcatExceptionType.INTERNAL, "No " + sought + " in " + input);
+			throw new IcatException(IcatExceptionType.INTERNAL, "No " + sought + " in response");
 		}
 	}
 
-	private boolean getBooleanFromJson(String input, String sought) throws IcatException {
-		try (JsonParser parser = Json.createParser(new ByteArrayInputStream(input.getBytes()))) {
+	private boolean getBooleanFromJson(CloseableHttpResponse response, String sought) throws IcatException, IOException {
+		try (JsonParser parser = Json.createParser(getEntity(response).getContent())) {
 			String key = "";
 			while (parser.hasNext()) {
 				JsonParser.Event event = parser.next();
@@ -293,40 +648,84 @@ public class ICAT {
 					}
 				}
 			}
-			throw new IcatException(IcatExceptionType.INTERNAL, "No " + sought + " in " + input);
+			throw new IcatException(IcatExceptionType.INTERNAL, "No " + sought + " in response");
 		}
 	}
 
 	double getRemainingMinutes(String sessionId) throws IcatException {
 		URI uri = getUri(getUriBuilder("session/" + sessionId));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				String responseString = getString(response);
-				return Double.parseDouble(getStringFromJson(responseString, "remainingMinutes"));
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				return Double.parseDouble(getStringFromJson(response, "remainingMinutes"));
 			}
 		} catch (IOException | NumberFormatException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
 		}
 	}
 
-	private String getString(CloseableHttpResponse response) throws IcatException, IOException {
+	private HttpEntity getEntity(CloseableHttpResponse response) throws IcatException, IOException {
 		checkStatus(response);
 		HttpEntity entity = response.getEntity();
 		if (entity == null) {
 			throw new IcatException(IcatExceptionType.INTERNAL, "No http entity returned in response");
 		}
-		return EntityUtils.toString(entity, Charset.defaultCharset());
+		return entity;
 	}
 
-	private URI getUri(URIBuilder uriBuilder) throws IcatException {
+	/**
+	 * Carry out a GET request and return the body of the response. Identical
+	 * requests made concurrently share a single exchange with the server and
+	 * all receive its result or failure.
+	 */
+	private String getString(URI uri) throws IcatException {
+		CompletableFuture<String> flight = new CompletableFuture<>();
+		CompletableFuture<String> leader = inFlight.putIfAbsent(uri, flight);
+		if (leader != null) {
+			try {
+				return leader.get();
+			} catch (ExecutionException e) {
+				throw IcatException.ofFailure(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+			}
+		}
 		try {
-			URI uri = uriBuilder.build();
-			if (uri.toString().length() > 2048) {
-				throw new IcatException(IcatExceptionType.BAD_PARAMETER,
-						"Generated URI is of length " + uri.toString().length() + " which exceeds 2048");
+			HttpGet httpGet = new HttpGet(uri);
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				String result = getString(response);
+				flight.complete(result);
+				return result;
 			}
-			return uri;
+		} catch (IOException e) {
+			IcatException ie = new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+			flight.completeExceptionally(ie);
+			throw ie;
+		} catch (IcatException | RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(uri, flight);
+		}
+	}
+
+	private String getString(CloseableHttpResponse response) throws IcatException, IOException {
+		return EntityUtils.toString(getEntity(response), StandardCharsets.UTF_8);
+	}
+
+	private URI getUri(URIBuilder uriBuilder) throws IcatException {
+		URI uri = buildUri(uriBuilder);
+		if (uri.toString().length() > maxUriLength) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER,
+					"Generated URI is of length " + uri.toString().length() + " which exceeds " + maxUriLength);
+		}
+		return uri;
+	}
+
+	private URI buildUri(URIBuilder uriBuilder) throws IcatException {
+		try {
+			return uriBuilder.build();
 		} catch (URISyntaxException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
 		}
@@ -338,18 +737,36 @@ public class ICAT {
 
 	String getUserName(String sessionId) throws IcatException {
 		URI uri = getUri(getUriBuilder("session/" + sessionId));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				String responseString = getString(response);
-				return getStringFromJson(responseString, "userName");
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				return getStringFromJson(response, "userName");
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
 		}
 	}
 
-	void importMetaData(String sessionId, Path path, DuplicateAction duplicate, Attributes attributes)
+	void importMetaData(String sessionId, Path path, DuplicateAction duplicate, Attributes attributes,
+			UploadProgressListener listener) throws IcatException {
+		long length;
+		try {
+			length = Files.size(path);
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+		importMetaData(sessionId,
+				new FileContentBody(path, length, listener, settings.getUploadMaxBytesPerSecond()), duplicate,
+				attributes);
+	}
+
+	void importMetaData(String sessionId, InputStream stream, DuplicateAction duplicate, Attributes attributes)
+			throws IcatException {
+		importMetaData(sessionId, new InputStreamBody(stream, ContentType.APPLICATION_OCTET_STREAM, ""), duplicate,
+				attributes);
+	}
+
+	private void importMetaData(String sessionId, ContentBody file, DuplicateAction duplicate, Attributes attributes)
 			throws IcatException {
 
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -359,15 +776,16 @@ public class ICAT {
 
 		URI uri = getUri(getUriBuilder("port"));
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			InputStream stream = new BufferedInputStream(Files.newInputStream(path));
-
+		try {
 			HttpEntity httpEntity = MultipartEntityBuilder.create()
-					.addPart("json", new StringBody(baos.toString(), ContentType.TEXT_PLAIN))
-					.addPart("file", new InputStreamBody(stream, ContentType.APPLICATION_OCTET_STREAM, "")).build();
+					.addPart("json", new StringBody(baos.toString(StandardCharsets.UTF_8), ContentType.TEXT_PLAIN))
+					.addPart("file", file).build();
+			if (settings.isUploadCompression()) {
+				httpEntity = new GzipEntity(httpEntity, settings.getCompressionLevel());
+			}
 			HttpPost httpPost = new HttpPost(uri);
 			httpPost.setEntity(httpEntity);
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
+			try (CloseableHttpResponse response = executeChange(httpPost, () -> null)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -390,11 +808,10 @@ public class ICAT {
 	 */
 	public boolean isLoggedIn(String userName) throws IcatException {
 		URI uri = getUri(getUriBuilder("user/" + userName));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				String responseString = getString(response);
-				return getBooleanFromJson(responseString, "loggedIn");
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				return getBooleanFromJson(response, "loggedIn");
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
@@ -414,6 +831,37 @@ public class ICAT {
 	 *                       For various ICAT errors
 	 */
 	public Session login(String plugin, Map<String, String> credentials) throws IcatException {
+		return new Session(this, loginForSessionId(plugin, credentials));
+	}
+
+	/**
+	 * Login to a RESTful ICAT instance and return a session which renews
+	 * itself when it expires.
+	 * <p>
+	 * If a call fails because the session has expired the credentials are
+	 * obtained again from the supplier and used to log in. This happens once
+	 * however many threads are using the session and the new sessionId is used
+	 * by all subsequent calls. Calls which only read from ICAT are then made
+	 * again so that the caller does not see the failure. Calls which may
+	 * change ICAT, such as write and delete, still throw the SESSION exception
+	 * but may safely be repeated by the caller. Once {@link Session#logout()}
+	 * has been called the session no longer logs in again.
+	 * 
+	 * @param plugin
+	 *                    The mnemonic of the authentication plugin
+	 * @param credentials
+	 *                    Supplies the credentials whenever a login is needed
+	 * 
+	 * @return a session which renews itself when it expires
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public Session loginRenewing(String plugin, Supplier<Map<String, String>> credentials) throws IcatException {
+		return new Session(this, loginForSessionId(plugin, credentials.get()), plugin, credentials);
+	}
+
+	String loginForSessionId(String plugin, Map<String, String> credentials) throws IcatException {
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		JsonGenerator gen = Json.createGenerator(baos);
 		gen.writeStartObject().write("plugin", plugin).writeStartArray("credentials");
@@ -425,14 +873,12 @@ public class ICAT {
 
 		URI uri = getUri(getUriBuilder("session"));
 		List<NameValuePair> formparams = new ArrayList<>();
-		formparams.add(new BasicNameValuePair("json", baos.toString()));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		formparams.add(new BasicNameValuePair("json", baos.toString(StandardCharsets.UTF_8)));
+		try {
 			HttpPost httpPost = new HttpPost(uri);
-			httpPost.setEntity(new UrlEncodedFormEntity(formparams));
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
-				String responseString = getString(response);
-				String sessionId = getStringFromJson(responseString, "sessionId");
-				return new Session(this, sessionId);
+			httpPost.setEntity(new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8));
+			try (CloseableHttpResponse response = execute(httpPost)) {
+				return getStringFromJson(response, "sessionId");
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
@@ -454,10 +900,11 @@ public class ICAT {
 	}
 
 	void logout(String sessionId) throws IcatException {
+		userNames.remove(sessionId);
 		URI uri = getUri(getUriBuilder("session/" + sessionId));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpDelete httpDelete = new HttpDelete(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpDelete)) {
+			try (CloseableHttpResponse response = execute(httpDelete)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -468,9 +915,9 @@ public class ICAT {
 
 	void refresh(String sessionId) throws IcatException {
 		URI uri = getUri(getUriBuilder("session/" + sessionId));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpPut httpPut = new HttpPut(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpPut)) {
+			try (CloseableHttpResponse response = execute(httpPut)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -479,20 +926,96 @@ public class ICAT {
 	}
 
 	String search(String sessionId, String query) throws IcatException {
+		return search(sessionId, query, -1);
+	}
+
+	/**
+	 * Carry out a search using the search cache, if enabled, with the
+	 * specified time to live. A negative time to live selects the default for
+	 * the cache and zero bypasses it.
+	 */
+	String search(String sessionId, String query, long ttlSeconds) throws IcatException {
+		if (searchCache == null || ttlSeconds == 0) {
+			return searchUncached(sessionId, query);
+		}
+		SearchKey key = new SearchKey(getCachedUserName(sessionId), query);
+		long generation = searchCache.getGeneration();
+		String result = searchCache.get(key);
+		if (result == null) {
+			result = searchUncached(sessionId, query);
+			if (ttlSeconds < 0) {
+				searchCache.put(key, result, generation);
+			} else {
+				searchCache.put(key, result, ttlSeconds * 1000, generation);
+			}
+		}
+		return result;
+	}
+
+	private String searchUncached(String sessionId, String query) throws IcatException {
 		URIBuilder uriBuilder = getUriBuilder("entityManager");
 		uriBuilder.setParameter("sessionId", sessionId);
 		uriBuilder.setParameter("query", query);
+		if (buildUri(uriBuilder).toString().length() > maxUriLength) {
+			InListSplitter splitter = InListSplitter.of(query);
+			if (splitter != null) {
+				uriBuilder.setParameter("query", "");
+				List<String> queries = splitter.split(buildUri(uriBuilder).toString().length(), maxUriLength);
+				if (queries != null) {
+					return searchSplit(sessionId, queries, splitter);
+				}
+				uriBuilder.setParameter("query", query);
+			}
+		}
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
+		return getString(uri);
+
+	}
+
+	/**
+	 * Run the parts of a query which has been split because it was too long
+	 * and merge the results
+	 */
+	private String searchSplit(String sessionId, List<String> queries, InListSplitter splitter)
+			throws IcatException {
+		return splitter.merge(ParallelRunner.run(executor, queries.size(), splitSearchParallelism,
+				i -> searchUncached(sessionId, queries.get(i))));
+	}
+
+	Stream<JsonValue> searchStream(String sessionId, String query) throws IcatException {
+		URIBuilder uriBuilder = getUriBuilder("entityManager");
+		uriBuilder.setParameter("sessionId", sessionId);
+		uriBuilder.setParameter("query", query);
+		URI uri = getUri(uriBuilder);
+
+		CloseableHttpResponse response = null;
+		HttpGet httpGet = new HttpGet(uri);
+
+		boolean closeNeeded = true;
+		try {
+			response = execute(httpGet);
+			checkStatus(response);
+			if (response.getEntity() == null) {
+				throw new IcatException(IcatExceptionType.INTERNAL, "No http entity returned in response");
 			}
-		} catch (IOException e) {
+			JsonArrayIterator iterator = new JsonArrayIterator(response);
+			closeNeeded = false;
+			return StreamSupport
+					.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+							false)
+					.onClose(iterator::close);
+		} catch (IOException | JsonException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		} finally {
+			if (closeNeeded && response != null) {
+				try {
+					response.close();
+				} catch (IOException e) {
+					// Ignore it
+				}
+			}
 		}
-
 	}
 
 	/**
@@ -506,11 +1029,10 @@ public class ICAT {
 	@Deprecated
 	public String getApiVersion() throws IcatException {
 		URI uri = getUri(getUriBuilder("version"));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				String responseString = getString(response);
-				return getStringFromJson(responseString, "version");
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				return getStringFromJson(response, "version");
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
@@ -527,11 +1049,10 @@ public class ICAT {
 	 */
 	public String getVersion() throws IcatException {
 		URI uri = getUri(getUriBuilder("version"));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				String responseString = getString(response);
-				return getStringFromJson(responseString, "version");
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				return getStringFromJson(response, "version");
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
@@ -575,19 +1096,11 @@ public class ICAT {
 			gen.writeEnd();
 		}
 
-		uriBuilder.setParameter("query", baos.toString());
+		uriBuilder.setParameter("query", baos.toString(StandardCharsets.UTF_8));
 		uriBuilder.setParameter("maxCount", Integer.toString(maxResults));
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
-			}
-		} catch (IOException e) {
-			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
-
-		}
+		return getString(uri);
 	}
 
 	private String searchDocuments(String target, String sessionId, String user, String text, Date lower, Date upper,
@@ -623,21 +1136,13 @@ public class ICAT {
 			gen.writeEnd();
 		}
 
-		uriBuilder.setParameter("query", baos.toString());
+		uriBuilder.setParameter("query", baos.toString(StandardCharsets.UTF_8));
 		uriBuilder.setParameter("search_after", searchAfter);
 		uriBuilder.setParameter("maxCount", Integer.toString(maxCount));
 		uriBuilder.setParameter("sort", sort);
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
-			}
-		} catch (IOException e) {
-			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
-
-		}
+		return getString(uri);
 	}
 
 	String searchInvestigations(String sessionId, String user, String text, Date lower, Date upper,
@@ -673,19 +1178,11 @@ public class ICAT {
 			gen.writeEnd();
 		}
 
-		uriBuilder.setParameter("query", baos.toString());
+		uriBuilder.setParameter("query", baos.toString(StandardCharsets.UTF_8));
 		uriBuilder.setParameter("maxCount", Integer.toString(maxResults));
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
-			}
-		} catch (IOException e) {
-			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
-
-		}
+		return getString(uri);
 	}
 
 	String searchDatasets(String sessionId, String user, String text, Date lower, Date upper,
@@ -748,14 +1245,129 @@ public class ICAT {
 	 */
 	public String getProperties() throws IcatException {
 		URI uri = getUri(getUriBuilder("properties"));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		return getString(uri);
+	}
+
+	/**
+	 * Return the value of maxEntities from the server properties. It is only
+	 * requested from the server the first time.
+	 */
+	int getMaxEntities() throws IcatException {
+		if (maxEntities == 0) {
+			loadProperties();
+		}
+		return maxEntities;
+	}
+
+	/**
+	 * Return the value of lifetimeMinutes from the server properties. It is
+	 * only requested from the server the first time.
+	 */
+	int getLifetimeMinutes() throws IcatException {
+		if (lifetimeMinutes == 0) {
+			loadProperties();
+		}
+		return lifetimeMinutes;
+	}
+
+	private void loadProperties() throws IcatException {
+		URI uri = getUri(getUriBuilder("properties"));
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
+			try (CloseableHttpResponse response = execute(httpGet)) {
+				try (JsonParser parser = Json.createParser(getEntity(response).getContent())) {
+					int depth = 0;
+					String key = "";
+					while (parser.hasNext()) {
+						JsonParser.Event event = parser.next();
+						if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+							depth++;
+						} else if (event == Event.END_OBJECT || event == Event.END_ARRAY) {
+							depth--;
+						} else if (event == Event.KEY_NAME) {
+							key = parser.getString();
+						} else if (event == Event.VALUE_NUMBER && depth == 1) {
+							if (key.equals("maxEntities")) {
+								maxEntities = (int) parser.getLong();
+							} else if (key.equals("lifetimeMinutes")) {
+								lifetimeMinutes = (int) parser.getLong();
+							}
+						}
+					}
+				}
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
 		}
+		if (maxEntities == 0 || lifetimeMinutes == 0) {
+			throw new IcatException(IcatExceptionType.INTERNAL, "No maxEntities or lifetimeMinutes in properties");
+		}
+	}
+
+	/**
+	 * Keep a session alive by refreshing it in the background shortly before
+	 * it would expire. The sessions are refreshed by a single background
+	 * thread, shared by all the sessions registered with this ICAT, which is
+	 * started when the first session is registered. A session is no longer
+	 * refreshed once it has been logged out, is passed to
+	 * {@link #stopKeepAlive(Session)} or is found to have expired. See
+	 * {@link ClientSettings#setKeepAliveMarginSeconds(int)} for when sessions
+	 * are refreshed.
+	 * 
+	 * @param session
+	 *                a session obtained from this ICAT
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public void keepAlive(Session session) throws IcatException {
+		if (session.getIcat() != this) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Session was not obtained from this ICAT");
+		}
+		SessionKeeper keeper;
+		synchronized (this) {
+			if (sessionKeeper == null) {
+				sessionKeeper = new SessionKeeper(this, settings.getKeepAliveIntervalSeconds() * 1000L,
+						settings.getKeepAliveMarginSeconds() * 1000L);
+			}
+			keeper = sessionKeeper;
+		}
+		keeper.add(session);
+	}
+
+	/**
+	 * Stop keeping a session alive
+	 * 
+	 * @param session
+	 *                a session previously passed to
+	 *                {@link #keepAlive(Session)}
+	 * 
+	 * @return true if the session was being kept alive
+	 */
+	public boolean stopKeepAlive(Session session) {
+		SessionKeeper keeper;
+		synchronized (this) {
+			keeper = sessionKeeper;
+		}
+		return keeper != null && keeper.remove(session);
+	}
+
+	/**
+	 * Return the executor for background work such as fetching pages ahead
+	 * and running the parts of a parallel call. Its tasks never wait for
+	 * other tasks queued on it.
+	 */
+	ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Return the executor for the calls of an {@link AsyncSession}. It is
+	 * separate from {@link #getExecutor()} because an async call may wait for
+	 * background work which would otherwise be queued behind it.
+	 */
+	ExecutorService getAsyncExecutor() {
+		return asyncExecutor;
 	}
 
 	void luceneClear(String sessionId) throws IcatException {
@@ -763,9 +1375,9 @@ public class ICAT {
 		uriBuilder.setParameter("sessionId", sessionId);
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpDelete httpDelete = new HttpDelete(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpDelete)) {
+			try (CloseableHttpResponse response = execute(httpDelete)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -778,10 +1390,10 @@ public class ICAT {
 		List<NameValuePair> formparams = new ArrayList<>();
 		formparams.add(new BasicNameValuePair("sessionId", sessionId));
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpPost httpPost = new HttpPost(uri);
-			httpPost.setEntity(new UrlEncodedFormEntity(formparams));
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
+			httpPost.setEntity(new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8));
+			try (CloseableHttpResponse response = execute(httpPost)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -793,12 +1405,11 @@ public class ICAT {
 		URIBuilder uriBuilder = getUriBuilder("lucene/db");
 		uriBuilder.setParameter("sessionId", sessionId);
 		URI uri = getUri(uriBuilder);
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				String result = getString(response);
+			try (CloseableHttpResponse response = execute(httpGet)) {
 				List<String> rvalues = new ArrayList<>();
-				try (JsonReader jsonReader = Json.createReader(new StringReader(result))) {
+				try (JsonReader jsonReader = Json.createReader(getEntity(response).getContent())) {
 					for (JsonValue jv : jsonReader.readArray()) {
 						JsonString o = (JsonString) jv;
 						rvalues.add(o.getString());
@@ -822,10 +1433,10 @@ public class ICAT {
 		}
 		formparams.add(new BasicNameValuePair("delete", delete.toString()));
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpPost httpPost = new HttpPost(uri);
-			httpPost.setEntity(new UrlEncodedFormEntity(formparams));
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
+			httpPost.setEntity(new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8));
+			try (CloseableHttpResponse response = execute(httpPost)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -859,18 +1470,11 @@ public class ICAT {
 			gen.writeEnd();
 		}
 
-		uriBuilder.setParameter("query", baos.toString());
+		uriBuilder.setParameter("query", baos.toString(StandardCharsets.UTF_8));
 		uriBuilder.setParameter("maxCount", Integer.toString(maxResults));
 		URI uri = getUri(uriBuilder);
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
-			}
-		} catch (IOException e) {
-			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
-		}
+		return getString(uri);
 	}
 
 	String searchDatafiles(String sessionId, String user, String text, Date lower, Date upper,
@@ -894,14 +1498,14 @@ public class ICAT {
 			}
 			gen.writeEnd();
 		}
-		formparams.add(new BasicNameValuePair("keys", baos.toString()));
+		formparams.add(new BasicNameValuePair("keys", baos.toString(StandardCharsets.UTF_8)));
 
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpPost httpPost = new HttpPost(uri);
-			httpPost.setEntity(new UrlEncodedFormEntity(formparams));
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
-				String responseString = getString(response);
-				return getLongFromJson(responseString, "id");
+			httpPost.setEntity(new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8));
+			// Related entities are cloned too and their types are not known here
+			try (CloseableHttpResponse response = executeChange(httpPost, () -> null)) {
+				return getLongFromJson(response, "id");
 			}
 		} catch (IOException e) {
 			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
@@ -914,10 +1518,10 @@ public class ICAT {
 		List<NameValuePair> formparams = new ArrayList<>();
 		formparams.add(new BasicNameValuePair("sessionId", sessionId));
 		formparams.add(new BasicNameValuePair("ms", Long.toString(ms)));
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+		try {
 			HttpPost httpPost = new HttpPost(uri);
-			httpPost.setEntity(new UrlEncodedFormEntity(formparams));
-			try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
+			httpPost.setEntity(new UrlEncodedFormEntity(formparams, StandardCharsets.UTF_8));
+			try (CloseableHttpResponse response = execute(httpPost)) {
 				expectNothing(response);
 			}
 		} catch (IOException e) {
@@ -930,14 +1534,7 @@ public class ICAT {
 		uriBuilder.setParameter("sessionId", sessionId);
 		uriBuilder.setParameter("path", path);
 		URI uri = getUri(uriBuilder);
-		try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-			HttpGet httpGet = new HttpGet(uri);
-			try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-				return getString(response);
-			}
-		} catch (IOException e) {
-			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
-		}
+		return getString(uri);
 	}
 
 	/**
@@ -1,5 +1,9 @@
 package org.icatproject.icat.client;
 
+import java.util.concurrent.ExecutionException;
+
+import jakarta.json.JsonException;
+
 /** An ICAT Exception with various types */
 @SuppressWarnings("serial")
 public class IcatException extends Exception {
@@ -44,6 +48,27 @@ public class IcatException extends Exception {
 		this.offset = offset;
 	}
 
+	/**
+	 * Return the exception to be thrown by a caller waiting for a task which
+	 * has failed. An IcatException is copied so that each caller has its own
+	 * stack trace, a failure to parse Json is reported as INTERNAL, other
+	 * unchecked exceptions are rethrown and anything else is wrapped.
+	 */
+	static IcatException ofFailure(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof IcatException) {
+			IcatException ie = (IcatException) cause;
+			return new IcatException(ie.getType(), ie.getMessage(), ie.getOffset());
+		} else if (cause instanceof JsonException || cause instanceof ClassCastException) {
+			return new IcatException(IcatExceptionType.INTERNAL, cause.getClass() + " " + cause.getMessage());
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new IcatException(IcatExceptionType.INTERNAL, cause.getClass() + " " + cause.getMessage());
+	}
+
 	/**
 	 * Return the offset in "many" calls. If the offset has not been set this
 	 * will return -1
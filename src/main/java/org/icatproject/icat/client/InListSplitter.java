@@ -0,0 +1,168 @@
+package org.icatproject.icat.client;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Splits a query containing a long list of numeric literals in an IN clause,
+ * such as "SELECT d FROM Dataset d WHERE d.id IN (1, 2, 3 ...)", into several
+ * queries each of which holds part of the list.
+ * <p>
+ * The union of the results of the parts is only the result of the original
+ * query if the IN clause is not negated, the query has no OR, which would let
+ * each part return the rows matched by the other side, and it does not
+ * aggregate, order or limit the results. Queries which may not satisfy these
+ * conditions are not split. Duplicates can arise when the original query has
+ * a DISTINCT clause and are removed when the results are merged.
+ */
+class InListSplitter {
+
+	private static final Pattern stringLiteral = Pattern.compile("'([^']|'')*'");
+	private static final Pattern inList = Pattern
+			.compile("\\bIN\\s*\\(\\s*(-?\\d+\\s*(,\\s*-?\\d+\\s*)*)\\)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern notBefore = Pattern.compile("\\bNOT\\s*$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern unsplittable = Pattern.compile(
+			"\\bORDER\\s+BY\\b|\\bGROUP\\s+BY\\b|\\bLIMIT\\b|\\bOR\\b|\\bNOT\\s*\\("
+					+ "|\\b(COUNT|SUM|AVG|MIN|MAX)\\s*\\(",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern distinct = Pattern.compile("\\bDISTINCT\\b", Pattern.CASE_INSENSITIVE);
+
+	private String prefix;
+	private String suffix;
+	private String[] items;
+	private boolean distinctResults;
+
+	private InListSplitter(String prefix, String suffix, String[] items, boolean distinctResults) {
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.items = items;
+		this.distinctResults = distinctResults;
+	}
+
+	/**
+	 * Return a splitter for the longest IN list of the query or null if the
+	 * query cannot safely be split.
+	 */
+	static InListSplitter of(String query) {
+		/* Blank out string literals, keeping positions, so they are not matched */
+		StringBuilder sb = new StringBuilder(query);
+		Matcher m = stringLiteral.matcher(query);
+		while (m.find()) {
+			for (int i = m.start() + 1; i < m.end() - 1; i++) {
+				sb.setCharAt(i, ' ');
+			}
+		}
+		String masked = sb.toString();
+		if (unsplittable.matcher(masked).find()) {
+			return null;
+		}
+
+		m = inList.matcher(masked);
+		int keyword = -1;
+		int start = -1;
+		int end = -1;
+		String[] items = null;
+		while (m.find()) {
+			String[] found = m.group(1).split(",");
+			if (items == null || found.length > items.length) {
+				items = found;
+				keyword = m.start();
+				start = m.start(1);
+				end = m.end(1);
+			}
+		}
+		if (items == null || items.length < 2 || notBefore.matcher(masked.substring(0, keyword)).find()) {
+			return null;
+		}
+		for (int i = 0; i < items.length; i++) {
+			items[i] = items[i].trim();
+		}
+		return new InListSplitter(query.substring(0, start), query.substring(end), items,
+				distinct.matcher(masked).find());
+	}
+
+	/**
+	 * Split the query into the fewest parts for which the encoded length does
+	 * not exceed the specified length or return null if even a single item
+	 * does not fit.
+	 *
+	 * @param baseLength
+	 *                   the encoded length of the request with the query
+	 *                   omitted
+	 * @param maxLength
+	 *                   the maximum encoded length of the request
+	 */
+	List<String> split(int baseLength, int maxLength) {
+		int fixed = baseLength + encodedLength(prefix) + encodedLength(suffix);
+		int separator = encodedLength(", ");
+		List<String> queries = new ArrayList<>();
+		StringBuilder list = new StringBuilder();
+		int length = fixed;
+		for (String item : items) {
+			int itemLength = encodedLength(item);
+			if (list.length() > 0 && length + separator + itemLength > maxLength) {
+				queries.add(prefix + list + suffix);
+				list.setLength(0);
+				length = fixed;
+			}
+			if (list.length() == 0) {
+				if (length + itemLength > maxLength) {
+					return null;
+				}
+				length += itemLength;
+			} else {
+				list.append(", ");
+				length += separator + itemLength;
+			}
+			list.append(item);
+		}
+		queries.add(prefix + list + suffix);
+		return queries;
+	}
+
+	/**
+	 * Merge the Json arrays returned by the parts into a single array,
+	 * removing duplicates if the original query has a DISTINCT clause.
+	 */
+	String merge(List<String> results) throws IcatException {
+		StringWriter merged = new StringWriter();
+		Set<JsonValue> seen = distinctResults ? new HashSet<>() : null;
+		try (JsonGenerator gen = Json.createGenerator(merged)) {
+			gen.writeStartArray();
+			for (String result : results) {
+				try (JsonReader reader = Json.createReader(new StringReader(result))) {
+					for (JsonValue value : reader.readArray()) {
+						if (seen == null || seen.add(value)) {
+							gen.write(value);
+						}
+					}
+				}
+			}
+			gen.writeEnd();
+		} catch (JsonException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+		return merged.toString();
+	}
+
+	private static int encodedLength(String s) {
+		return URLEncoder.encode(s, StandardCharsets.UTF_8).length();
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.icatproject.icat.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A {@link RequestTracer} which keeps the most recent finished traces in
+ * memory, for use in tests or to look for slow requests in a running
+ * application.
+ */
+public class InMemoryTracer implements RequestTracer {
+
+	private int capacity;
+	private Deque<RequestTrace> traces = new ArrayDeque<>();
+
+	/** Create a tracer which keeps up to 10000 traces */
+	public InMemoryTracer() {
+		this(10000);
+	}
+
+	/**
+	 * Create a tracer which keeps up to the specified number of traces,
+	 * discarding the oldest when it is full
+	 *
+	 * @param capacity
+	 *                 the number of traces to keep
+	 */
+	public InMemoryTracer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void requestStarted(RequestTrace trace) {
+		// Only finished requests are kept
+	}
+
+	@Override
+	public synchronized void requestFinished(RequestTrace trace) {
+		if (traces.size() == capacity) {
+			traces.removeFirst();
+		}
+		traces.addLast(trace);
+	}
+
+	/**
+	 * Return the traces kept, oldest first
+	 *
+	 * @return a copy of the traces
+	 */
+	public synchronized List<RequestTrace> getTraces() {
+		return new ArrayList<>(traces);
+	}
+
+	/**
+	 * Return the traces kept with the specified correlation id, oldest first
+	 *
+	 * @param correlationId
+	 *                      the correlation id
+	 *
+	 * @return the traces with that id
+	 */
+	public synchronized List<RequestTrace> getTraces(String correlationId) {
+		List<RequestTrace> result = new ArrayList<>();
+		for (RequestTrace trace : traces) {
+			if (trace.getCorrelationId().equals(correlationId)) {
+				result.add(trace);
+			}
+		}
+		return result;
+	}
+
+	/** Discard all the traces kept */
+	public synchronized void clear() {
+		traces.clear();
+	}
+
+}
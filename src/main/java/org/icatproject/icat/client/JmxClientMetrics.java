@@ -0,0 +1,206 @@
+package org.icatproject.icat.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * A {@link ClientMetrics} which keeps counts and a latency histogram for each
+ * endpoint and registers them with the platform MBean server as an
+ * {@link EndpointMetricsMXBean} named
+ * "org.icatproject.icat.client:type=ClientMetrics,name=<i>name</i>,endpoint=<i>endpoint</i>"
+ * when the endpoint is first used. For example:
+ *
+ * <pre>
+ * JmxClientMetrics metrics = new JmxClientMetrics("ingest");
+ * ICAT icat = new ICAT(url, new ClientSettings().setMetrics(metrics));
+ * </pre>
+ *
+ * If the MBean cannot be registered, perhaps because another instance has the
+ * same name, the measurements are still made and may be obtained from
+ * {@link #getEndpointMetrics()}. Call {@link #close()} to unregister the
+ * MBeans.
+ */
+public class JmxClientMetrics implements ClientMetrics, AutoCloseable {
+
+	private class EndpointMetrics implements EndpointMetricsMXBean {
+
+		private String endpoint;
+		private ObjectName objectName;
+		private LatencyHistogram histogram = new LatencyHistogram();
+		private AtomicLong inFlight = new AtomicLong();
+		private AtomicLong bytesSent = new AtomicLong();
+		private AtomicLong bytesReceived = new AtomicLong();
+		private Map<IcatExceptionType, AtomicLong> errors = new EnumMap<>(IcatExceptionType.class);
+
+		EndpointMetrics(String endpoint) {
+			this.endpoint = endpoint;
+			for (IcatExceptionType type : IcatExceptionType.values()) {
+				errors.put(type, new AtomicLong());
+			}
+		}
+
+		@Override
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		@Override
+		public long getRequests() {
+			return histogram.getCount();
+		}
+
+		@Override
+		public long getInFlight() {
+			return inFlight.get();
+		}
+
+		@Override
+		public long getBytesSent() {
+			return bytesSent.get();
+		}
+
+		@Override
+		public long getBytesReceived() {
+			return bytesReceived.get();
+		}
+
+		@Override
+		public double getMeanMillis() {
+			return histogram.getMean() / 1e6;
+		}
+
+		@Override
+		public double getP50Millis() {
+			return histogram.getPercentile(0.5) / 1e6;
+		}
+
+		@Override
+		public double getP90Millis() {
+			return histogram.getPercentile(0.9) / 1e6;
+		}
+
+		@Override
+		public double getP99Millis() {
+			return histogram.getPercentile(0.99) / 1e6;
+		}
+
+		@Override
+		public double getMaxMillis() {
+			return histogram.getMax() / 1e6;
+		}
+
+		@Override
+		public Map<String, Long> getErrors() {
+			Map<String, Long> result = new TreeMap<>();
+			for (Map.Entry<IcatExceptionType, AtomicLong> entry : errors.entrySet()) {
+				long n = entry.getValue().get();
+				if (n != 0) {
+					result.put(entry.getKey().name(), n);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public void reset() {
+			histogram.reset();
+			bytesSent.set(0);
+			bytesReceived.set(0);
+			for (AtomicLong n : errors.values()) {
+				n.set(0);
+			}
+		}
+	}
+
+	private String name;
+	private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	private Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+	private volatile boolean closed;
+
+	/**
+	 * Create metrics to be registered under the specified name
+	 *
+	 * @param name
+	 *             distinguishes the MBeans of this instance from those of any
+	 *             other in the same JVM
+	 */
+	public JmxClientMetrics(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("name must not be empty");
+		}
+		this.name = name;
+	}
+
+	private EndpointMetrics getMetrics(String endpoint) {
+		return endpoints.computeIfAbsent(endpoint, e -> {
+			EndpointMetrics metrics = new EndpointMetrics(e);
+			if (!closed) {
+				try {
+					ObjectName objectName = new ObjectName("org.icatproject.icat.client:type=ClientMetrics,name="
+							+ ObjectName.quote(name) + ",endpoint=" + ObjectName.quote(e));
+					server.registerMBean(metrics, objectName);
+					metrics.objectName = objectName;
+				} catch (JMException ex) {
+					// Still measured but only visible through getEndpointMetrics
+				}
+			}
+			return metrics;
+		});
+	}
+
+	/**
+	 * Return the measurements made so far
+	 *
+	 * @return an unmodifiable map of the measurements keyed by endpoint
+	 */
+	public Map<String, EndpointMetricsMXBean> getEndpointMetrics() {
+		return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+	}
+
+	@Override
+	public void requestStarted(String endpoint) {
+		getMetrics(endpoint).inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void requestCompleted(String endpoint, long nanos, long bytesSent, long bytesReceived) {
+		EndpointMetrics metrics = getMetrics(endpoint);
+		metrics.inFlight.decrementAndGet();
+		metrics.histogram.record(nanos);
+		metrics.bytesSent.addAndGet(bytesSent);
+		metrics.bytesReceived.addAndGet(bytesReceived);
+	}
+
+	@Override
+	public void requestFailed(String endpoint, IcatExceptionType type) {
+		getMetrics(endpoint).errors.get(type).incrementAndGet();
+	}
+
+	/** Unregister the MBeans. Measurements continue to be made. */
+	@Override
+	public void close() {
+		closed = true;
+		for (EndpointMetrics metrics : endpoints.values()) {
+			if (metrics.objectName != null) {
+				try {
+					server.unregisterMBean(metrics.objectName);
+				} catch (JMException e) {
+					// Already gone
+				}
+				metrics.objectName = null;
+			}
+		}
+	}
+
+}
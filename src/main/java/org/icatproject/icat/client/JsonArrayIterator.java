@@ -0,0 +1,88 @@
+package org.icatproject.icat.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import jakarta.json.Json;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParser.Event;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Iterates over the elements of a Json array held in the body of a response,
+ * parsing one element at a time.
+ */
+class JsonArrayIterator implements Iterator<JsonValue>, Closeable {
+
+	private CloseableHttpResponse response;
+	private JsonParser parser;
+	private JsonValue next;
+	private boolean finished;
+
+	/**
+	 * Creates an iterator over the array in the body of the specified
+	 * response.
+	 *
+	 * @param response
+	 *            the response to read and ultimately close
+	 */
+	JsonArrayIterator(CloseableHttpResponse response) throws IcatException, IOException {
+		this.response = response;
+		parser = Json.createParser(response.getEntity().getContent());
+		if (!parser.hasNext() || parser.next() != Event.START_ARRAY) {
+			throw new IcatException(IcatExceptionType.INTERNAL, "Not a valid JSON array");
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (finished) {
+			return false;
+		}
+		Event event = parser.next();
+		if (event == Event.END_ARRAY) {
+			close();
+			return false;
+		}
+		next = parser.getValue();
+		return true;
+	}
+
+	@Override
+	public JsonValue next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		JsonValue result = next;
+		next = null;
+		return result;
+	}
+
+	/** Close the parser and the response, returning the connection to the pool */
+	@Override
+	public void close() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		try {
+			parser.close();
+		} catch (Exception e) {
+			// Ignore it
+		}
+		try {
+			response.close();
+		} catch (IOException e) {
+			// Ignore it
+		}
+	}
+
+}
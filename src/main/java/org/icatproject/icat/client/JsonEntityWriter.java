@@ -0,0 +1,21 @@
+package org.icatproject.icat.client;
+
+import jakarta.json.stream.JsonGenerator;
+
+/**
+ * Writes the Json representation of ICAT entities to a generator. It is used
+ * by {@link Session#write(JsonEntityWriter)} to stream entities to the server
+ * without building the whole request in memory.
+ */
+public interface JsonEntityWriter {
+
+	/**
+	 * Write the entities, each as a Json object, to the generator which is
+	 * already positioned within a Json array.
+	 * 
+	 * @param generator
+	 *                  the generator to write to. It must not be closed.
+	 */
+	void writeEntities(JsonGenerator generator);
+
+}
@@ -0,0 +1,93 @@
+package org.icatproject.icat.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of durations in nanoseconds. Each power of two is
+ * divided into 16 equal buckets so that any value is recorded with a relative
+ * error of at most one part in 16 while the whole range of a long needs fewer
+ * than a thousand counters.
+ */
+class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * SUB_COUNT);
+	private AtomicLong count = new AtomicLong();
+	private AtomicLong sum = new AtomicLong();
+	private AtomicLong max = new AtomicLong();
+
+	static int index(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/** Return the highest value which falls in a bucket */
+	static long highestValue(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_COUNT - 1;
+		long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(index(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		max.accumulateAndGet(nanos, Math::max);
+	}
+
+	long getCount() {
+		return count.get();
+	}
+
+	double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Return the value below which the specified fraction of recorded values
+	 * fall, to within the resolution of the buckets
+	 */
+	long getPercentile(double fraction) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(highestValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+}
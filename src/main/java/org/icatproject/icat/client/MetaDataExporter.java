@@ -0,0 +1,290 @@
+package org.icatproject.icat.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.Session.Attributes;
+
+/**
+ * Exports metadata in chunks which are obtained concurrently and can be
+ * resumed after a failure.
+ * <p>
+ * The export is split by entity type and then by ranges of id, each chunk
+ * being obtained by a separate call to
+ * {@link Session#exportMetaData(String, Attributes)}. Each completed chunk is
+ * written to a file in a work directory and recorded in a manifest held in
+ * the same directory. When all the chunks are present they are stitched
+ * together into a single file in the format described in {@link Session}.
+ * <p>
+ * If the export fails it may be resumed by calling {@link #export(Path)}
+ * again, on a new exporter with the same work directory if need be. The
+ * chunks are planned when the work directory is first used and the plan is
+ * kept in the manifest, so only the chunks which had not been completed are
+ * requested again. The work directory may be deleted once the export has
+ * completed.
+ * <p>
+ * The entity types must be listed so that each type follows those it refers
+ * to, as the file will be imported in that order. Entities which are created
+ * while the export is in progress may or may not be included. All setters
+ * return the exporter so that calls may be chained.
+ */
+public class MetaDataExporter {
+
+	private static final String manifestName = "manifest";
+
+	private static class Chunk {
+		String entityType;
+		long minId;
+		long maxId;
+	}
+
+	private Session session;
+	private List<String> entityTypes;
+	private Path workDir;
+	private Attributes attributes = Attributes.USER;
+	private long idsPerChunk = 10000;
+	private int parallelism = 4;
+
+	/**
+	 * Create an exporter
+	 *
+	 * @param session
+	 *                    the session to use
+	 * @param entityTypes
+	 *                    the names of the entity types to export, each one
+	 *                    after those it refers to
+	 * @param workDir
+	 *                    the directory to hold the chunks and manifest. It is
+	 *                    created if it does not exist.
+	 */
+	public MetaDataExporter(Session session, List<String> entityTypes, Path workDir) {
+		this.session = session;
+		this.entityTypes = new ArrayList<>(entityTypes);
+		this.workDir = workDir;
+	}
+
+	/**
+	 * Set which attributes to export. The default is
+	 * {@link Attributes#USER}.
+	 *
+	 * @param attributes
+	 *                   which attributes to export
+	 *
+	 * @return this exporter
+	 */
+	public MetaDataExporter setAttributes(Attributes attributes) {
+		this.attributes = attributes;
+		return this;
+	}
+
+	/**
+	 * Set the size of the range of ids exported in one chunk. The default is
+	 * 10000.
+	 *
+	 * @param idsPerChunk
+	 *                    the size of the range of ids
+	 *
+	 * @return this exporter
+	 */
+	public MetaDataExporter setIdsPerChunk(long idsPerChunk) {
+		if (idsPerChunk < 1) {
+			throw new IllegalArgumentException("idsPerChunk must be positive");
+		}
+		this.idsPerChunk = idsPerChunk;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of chunks exported concurrently. The default is 4.
+	 *
+	 * @param parallelism
+	 *                    the maximum number of concurrent exports
+	 *
+	 * @return this exporter
+	 */
+	public MetaDataExporter setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Export the metadata, resuming a previous export using the same work
+	 * directory if there is one, and write it to the specified file.
+	 *
+	 * @param target
+	 *               the file to write. It is only written once all the
+	 *               chunks have been obtained.
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors. Chunks which were
+	 *                       completed are kept in the work directory.
+	 */
+	public void export(Path target) throws IcatException {
+		try {
+			Files.createDirectories(workDir);
+			Path manifest = workDir.resolve(manifestName);
+			if (!Files.exists(manifest)) {
+				writePlan(manifest);
+			}
+			List<Chunk> chunks = new ArrayList<>();
+			Set<Integer> done = new HashSet<>();
+			readManifest(manifest, chunks, done);
+
+			ParallelRunner.run(session.getIcat().getExecutor(), chunks.size(), parallelism, i -> {
+				if (!done.contains(i)) {
+					exportChunk(chunks.get(i), i, manifest);
+				}
+				return null;
+			});
+
+			stitch(chunks.size(), target);
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	private void writePlan(Path manifest) throws IcatException, IOException {
+		StringBuilder sb = new StringBuilder("attributes ").append(attributes.name()).append('\n');
+		for (String entityType : entityTypes) {
+			Long min = getId("MIN", entityType);
+			Long max = getId("MAX", entityType);
+			if (min == null) {
+				continue;
+			}
+			for (long lo = min; lo <= max; lo += idsPerChunk) {
+				long hi = Math.min(max, lo + idsPerChunk - 1);
+				sb.append("chunk ").append(entityType).append(' ').append(lo).append(' ').append(hi).append('\n');
+				if (hi == Long.MAX_VALUE) {
+					break;
+				}
+			}
+		}
+		Path tmp = workDir.resolve(manifestName + ".tmp");
+		Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+		Files.move(tmp, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private Long getId(String function, String entityType) throws IcatException {
+		/* Bypass the search cache so that the plan covers the current ids */
+		String result = session.search("SELECT " + function + "(e.id) FROM " + entityType + " e", 0);
+		try (JsonReader reader = Json.createReader(new StringReader(result))) {
+			JsonArray array = reader.readArray();
+			if (array.isEmpty() || array.get(0).getValueType() != JsonValue.ValueType.NUMBER) {
+				return null;
+			}
+			return ((JsonNumber) array.get(0)).longValue();
+		}
+	}
+
+	/**
+	 * Read the manifest. Lines which cannot be understood, such as one only
+	 * partly written before a crash, are ignored.
+	 */
+	private void readManifest(Path manifest, List<Chunk> chunks, Set<Integer> done)
+			throws IcatException, IOException {
+		for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			String[] words = line.split(" ");
+			if (words[0].equals("attributes") && words.length == 2) {
+				if (!words[1].equals(attributes.name())) {
+					throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Work directory " + workDir
+							+ " holds an export of " + words[1] + " attributes rather than " + attributes.name());
+				}
+			} else if (words[0].equals("chunk") && words.length == 4) {
+				Chunk chunk = new Chunk();
+				chunk.entityType = words[1];
+				chunk.minId = Long.parseLong(words[2]);
+				chunk.maxId = Long.parseLong(words[3]);
+				chunks.add(chunk);
+			} else if (words[0].equals("done") && words.length == 2) {
+				try {
+					done.add(Integer.parseInt(words[1]));
+				} catch (NumberFormatException e) {
+					// Ignore it
+				}
+			}
+		}
+	}
+
+	private void exportChunk(Chunk chunk, int index, Path manifest) throws IcatException {
+		String query = "SELECT e FROM " + chunk.entityType + " e WHERE e.id BETWEEN " + chunk.minId + " AND "
+				+ chunk.maxId;
+		Path file = getChunkPath(index);
+		Path tmp = workDir.resolve(file.getFileName() + ".tmp");
+		try {
+			try (InputStream in = session.exportMetaData(query, attributes)) {
+				Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			synchronized (this) {
+				Files.writeString(manifest, "done " + index + "\n", StandardCharsets.UTF_8,
+						StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+			}
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	private Path getChunkPath(int index) {
+		return workDir.resolve("chunk-" + index);
+	}
+
+	/**
+	 * Join the chunks into one file with a single version line. Consecutive
+	 * sections with the same entity descriptor are merged.
+	 */
+	private void stitch(int count, Path target) throws IcatException, IOException {
+		Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+		if (count == 0) {
+			Files.write(tmp, new byte[0]);
+		} else {
+			String version;
+			try (PortReader in = new PortReader(getChunkPath(0))) {
+				version = in.getVersion();
+			}
+			String lastDescriptor = null;
+			try (PortWriter out = new PortWriter(tmp, version)) {
+				for (int i = 0; i < count; i++) {
+					try (PortReader in = new PortReader(getChunkPath(i))) {
+						if (!version.equals(in.getVersion())) {
+							throw new IcatException(IcatExceptionType.INTERNAL,
+									"Chunk " + i + " has version " + in.getVersion() + " rather than " + version);
+						}
+						EntityDescriptor descriptor;
+						while ((descriptor = in.nextDescriptor()) != null) {
+							if (!descriptor.toString().equals(lastDescriptor)) {
+								out.writeDescriptor(descriptor);
+								lastDescriptor = descriptor.toString();
+							}
+							String row;
+							while ((row = in.nextRowText()) != null) {
+								out.writeRowText(row);
+							}
+						}
+					}
+				}
+			}
+		}
+		Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
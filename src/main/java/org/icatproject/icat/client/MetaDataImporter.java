@@ -0,0 +1,288 @@
+package org.icatproject.icat.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.icatproject.icat.client.Session.Attributes;
+import org.icatproject.icat.client.Session.DuplicateAction;
+
+/**
+ * Imports a metadata file, in the format described in {@link Session}, in
+ * batches which are uploaded separately so that no single server transaction
+ * has to hold the whole import.
+ * <p>
+ * Each section of the file, an entity descriptor and its rows, is split into
+ * batches of rows. Sections are imported in the order in which they appear in
+ * the file, so that entities are created before those which refer to them,
+ * while the batches of one section, which cannot refer to each other, are
+ * uploaded concurrently. The {@link DuplicateAction} applies to each row just
+ * as it would if the file were imported in one call.
+ * <p>
+ * A batch which fails may be retried, according to the {@link RetryPolicy},
+ * without repeating any other batch. An import is not idempotent: a batch
+ * which fails with an INTERNAL error, as happens when the connection is lost,
+ * may have been committed before its response was lost. Such a batch is only
+ * retried if the DuplicateAction is not {@link DuplicateAction#THROW}, so that
+ * rows which were imported by the first attempt are not reported as
+ * duplicates. A batch which fails with a SESSION error is only retried if the
+ * session renews itself, as described in
+ * {@link ICAT#loginRenewing(String, java.util.function.Supplier)}.
+ * <p>
+ * Anonymous variables, written as "?", are only remembered for the duration
+ * of one upload. All the sections whose descriptors use them are therefore
+ * held back and imported together in one final upload.
+ * <p>
+ * If the import fails the batches already imported are not removed. The
+ * import may be completed by running it again with
+ * {@link DuplicateAction#IGNORE} or {@link DuplicateAction#CHECK}. All setters
+ * return the importer so that calls may be chained.
+ */
+public class MetaDataImporter {
+
+	/** Receives reports of the progress of an import */
+	public interface ProgressListener {
+		/**
+		 * Called after each batch has been imported. Calls are not made
+		 * concurrently but may come from different threads.
+		 *
+		 * @param rowsImported
+		 *                     the number of rows imported so far
+		 * @param totalRows
+		 *                     the number of rows in the file
+		 */
+		void progress(long rowsImported, long totalRows);
+	}
+
+	private Session session;
+	private int rowsPerBatch = 1000;
+	private int parallelism = 4;
+	private RetryPolicy retryPolicy = new RetryPolicy();
+	private ProgressListener listener;
+	private long rowsImported;
+	private long totalRows;
+
+	/**
+	 * Create an importer
+	 *
+	 * @param session
+	 *                the session to use
+	 */
+	public MetaDataImporter(Session session) {
+		this.session = session;
+	}
+
+	/**
+	 * Set the maximum number of rows uploaded in one batch. The default is
+	 * 1000.
+	 *
+	 * @param rowsPerBatch
+	 *                     the maximum number of rows in a batch
+	 *
+	 * @return this importer
+	 */
+	public MetaDataImporter setRowsPerBatch(int rowsPerBatch) {
+		if (rowsPerBatch < 1) {
+			throw new IllegalArgumentException("rowsPerBatch must be positive");
+		}
+		this.rowsPerBatch = rowsPerBatch;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of batches uploaded concurrently. The default is
+	 * 4.
+	 *
+	 * @param parallelism
+	 *                    the maximum number of concurrent uploads
+	 *
+	 * @return this importer
+	 */
+	public MetaDataImporter setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Set the policy for retrying a batch which fails with an INTERNAL or
+	 * SESSION error when, as described above, it is safe to do so. The default
+	 * makes up to 3 attempts.
+	 *
+	 * @param retryPolicy
+	 *                    the retry policy
+	 *
+	 * @return this importer
+	 */
+	public MetaDataImporter setRetryPolicy(RetryPolicy retryPolicy) {
+		if (retryPolicy == null) {
+			throw new IllegalArgumentException("retryPolicy must not be null");
+		}
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Set a listener to be told of the progress of the import
+	 *
+	 * @param listener
+	 *                 the listener or null for none
+	 *
+	 * @return this importer
+	 */
+	public MetaDataImporter setProgressListener(ProgressListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Import metadata from a file
+	 *
+	 * @param path
+	 *                        the path of the import file
+	 * @param duplicateAction
+	 *                        what to do when a duplicate is encountered
+	 * @param attributes
+	 *                        which attributes to import. See
+	 *                        {@link Session#importMetaData(Path, DuplicateAction, Attributes)}
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors. The offset is not set.
+	 */
+	public void importMetaData(Path path, DuplicateAction duplicateAction, Attributes attributes)
+			throws IcatException {
+		totalRows = countRows(path);
+		rowsImported = 0;
+		try {
+			Path deferred = Files.createTempFile("icat-import", ".txt");
+			try {
+				long deferredRows = 0;
+				try (PortReader reader = new PortReader(path);
+						PortWriter deferredWriter = new PortWriter(deferred, reader.getVersion())) {
+					EntityDescriptor descriptor;
+					while ((descriptor = reader.nextDescriptor()) != null) {
+						if (descriptor.hasAnonymousVariable()) {
+							deferredRows += copySection(reader, descriptor, deferredWriter);
+						} else {
+							importSection(reader, descriptor, duplicateAction, attributes);
+						}
+					}
+				}
+				if (deferredRows > 0) {
+					long rows = deferredRows;
+					withRetry(() -> session.importMetaData(deferred, duplicateAction, attributes), duplicateAction);
+					reportProgress(rows);
+				}
+			} finally {
+				Files.deleteIfExists(deferred);
+			}
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	private long countRows(Path path) throws IcatException {
+		long rows = 0;
+		try (PortReader reader = new PortReader(path)) {
+			while (reader.nextDescriptor() != null) {
+				while (reader.nextRowText() != null) {
+					rows++;
+				}
+			}
+		}
+		return rows;
+	}
+
+	private long copySection(PortReader reader, EntityDescriptor descriptor, PortWriter writer)
+			throws IcatException {
+		writer.writeDescriptor(descriptor);
+		long rows = 0;
+		String row;
+		while ((row = reader.nextRowText()) != null) {
+			writer.writeRowText(row);
+			rows++;
+		}
+		return rows;
+	}
+
+	private void importSection(PortReader reader, EntityDescriptor descriptor, DuplicateAction duplicateAction,
+			Attributes attributes) throws IcatException {
+		ParallelRunner.run(session.getIcat().getExecutor(), parallelism, () -> {
+			List<String> rows = new ArrayList<>();
+			String row;
+			while (rows.size() < rowsPerBatch && (row = reader.nextRowText()) != null) {
+				rows.add(row);
+			}
+			if (rows.isEmpty()) {
+				return null;
+			}
+			byte[] batch = getBatch(reader.getVersion(), descriptor, rows);
+			return () -> {
+				withRetry(() -> session.importMetaData(batch, duplicateAction, attributes), duplicateAction);
+				reportProgress(rows.size());
+				return null;
+			};
+		});
+	}
+
+	private static byte[] getBatch(String version, EntityDescriptor descriptor, List<String> rows)
+			throws IcatException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (PortWriter writer = new PortWriter(baos, version)) {
+			writer.writeDescriptor(descriptor);
+			for (String row : rows) {
+				writer.writeRowText(row);
+			}
+		}
+		return baos.toByteArray();
+	}
+
+	private interface Upload {
+		void run() throws IcatException;
+	}
+
+	private void withRetry(Upload upload, DuplicateAction duplicateAction) throws IcatException {
+		int attempt = 1;
+		while (true) {
+			try {
+				upload.run();
+				return;
+			} catch (IcatException e) {
+				if (attempt >= retryPolicy.getMaxAttempts() || !isRetryable(e.getType(), duplicateAction)) {
+					throw e;
+				}
+			}
+			attempt++;
+			try {
+				Thread.sleep(retryPolicy.getDelayMillis(attempt));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+			}
+		}
+	}
+
+	/** Return true if a batch which failed with the specified type of error may safely be uploaded again */
+	private boolean isRetryable(IcatExceptionType type, DuplicateAction duplicateAction) {
+		if (type == IcatExceptionType.SESSION) {
+			// Nothing was imported and a renewing session now has a new sessionId
+			return session.isRenewing();
+		}
+		// The batch may have been committed, which only THROW reports on a second attempt
+		return type == IcatExceptionType.INTERNAL && duplicateAction != DuplicateAction.THROW;
+	}
+
+	private synchronized void reportProgress(long rows) {
+		rowsImported += rows;
+		if (listener != null) {
+			listener.progress(rowsImported, totalRows);
+		}
+	}
+
+}
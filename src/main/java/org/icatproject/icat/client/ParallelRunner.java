@@ -0,0 +1,163 @@
+package org.icatproject.icat.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Runs a sequence of tasks with bounded parallelism and collects their results
+ * in order.
+ * <p>
+ * The calling thread works through the tasks alongside up to parallelism - 1
+ * helpers taken from the executor, so progress is made even if the executor
+ * is saturated. Tasks are taken from the source one at a time, so only those
+ * being run need be held in memory. Once a task fails no further tasks are
+ * started; those already running are allowed to finish and then the failure
+ * of the task with the lowest index is thrown.
+ */
+class ParallelRunner<T> {
+
+	interface Task<T> {
+		T call() throws IcatException;
+	}
+
+	interface IndexedTask<T> {
+		T call(int index) throws IcatException;
+	}
+
+	/** Supplies tasks in order and null when there are no more */
+	interface TaskSource<T> {
+		Task<T> next() throws IcatException;
+	}
+
+	private TaskSource<T> source;
+	private List<T> results = new ArrayList<>();
+	private boolean exhausted;
+	private int running;
+	private int failedIndex = Integer.MAX_VALUE;
+	private Throwable failure;
+
+	private ParallelRunner(TaskSource<T> source) {
+		this.source = source;
+	}
+
+	/**
+	 * Run the tasks numbered 0 to count - 1 and return their results in order.
+	 */
+	static <T> List<T> run(ExecutorService executor, int count, int parallelism, IndexedTask<T> task)
+			throws IcatException {
+		if (parallelism < 1) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Parallelism must be positive");
+		}
+		int[] next = new int[1];
+		return run(executor, Math.max(1, Math.min(parallelism, count)), () -> {
+			if (next[0] == count) {
+				return null;
+			}
+			int index = next[0]++;
+			return () -> task.call(index);
+		});
+	}
+
+	/**
+	 * Run the tasks supplied by the source and return their results in order.
+	 * The source is only called by one thread at a time.
+	 */
+	static <T> List<T> run(ExecutorService executor, int parallelism, TaskSource<T> source) throws IcatException {
+		if (parallelism < 1) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Parallelism must be positive");
+		}
+		return new ParallelRunner<>(source).run(executor, parallelism);
+	}
+
+	private List<T> run(ExecutorService executor, int parallelism) throws IcatException {
+		List<Future<?>> helpers = new ArrayList<>();
+		try {
+			for (int i = 1; i < parallelism; i++) {
+				try {
+					helpers.add(executor.submit(this::work));
+				} catch (RejectedExecutionException e) {
+					break;
+				}
+			}
+			work();
+			synchronized (this) {
+				while (running > 0) {
+					wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			synchronized (this) {
+				/* Stop helpers picking up further tasks */
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		} finally {
+			for (Future<?> helper : helpers) {
+				helper.cancel(false);
+			}
+		}
+
+		if (failure instanceof IcatException) {
+			throw (IcatException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new IcatException(IcatExceptionType.INTERNAL, failure.getClass() + " " + failure.getMessage());
+		}
+		return results;
+	}
+
+	private void work() {
+		while (true) {
+			int index;
+			Task<T> task;
+			synchronized (this) {
+				if (failure != null || exhausted) {
+					return;
+				}
+				index = results.size();
+				try {
+					task = source.next();
+				} catch (Throwable e) {
+					failedIndex = index;
+					failure = e;
+					return;
+				}
+				if (task == null) {
+					exhausted = true;
+					return;
+				}
+				results.add(null);
+				running++;
+			}
+			T result = null;
+			Throwable thrown = null;
+			try {
+				result = task.call();
+			} catch (Throwable e) {
+				thrown = e;
+			}
+			synchronized (this) {
+				running--;
+				if (thrown == null) {
+					results.set(index, result);
+				} else if (index < failedIndex) {
+					failedIndex = index;
+					failure = thrown;
+				}
+				notifyAll();
+			}
+		}
+	}
+
+}
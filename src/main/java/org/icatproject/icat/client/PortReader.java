@@ -0,0 +1,310 @@
+package org.icatproject.icat.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Reads a metadata file in the format described in {@link Session}, such as
+ * one obtained from {@link Session#exportMetaData(Session.Attributes)}, one
+ * section and one row at a time so that files of any size may be processed.
+ * <p>
+ * Values are converted to Java types: a quoted string to a String with the
+ * escape sequences replaced, true and false to a Boolean, null to null, a
+ * timestamp to a Date, an integer to a Long and any other number to a
+ * Double. A timestamp without a time zone is taken to be in the local time
+ * zone.
+ * <p>
+ * For example:
+ *
+ * <pre>
+ * try (PortReader reader = new PortReader(path)) {
+ * 	EntityDescriptor descriptor;
+ * 	while ((descriptor = reader.nextDescriptor()) != null) {
+ * 		List&lt;Object&gt; row;
+ * 		while ((row = reader.nextRow()) != null) {
+ * 			...
+ * 		}
+ * 	}
+ * }
+ * </pre>
+ */
+public class PortReader implements AutoCloseable {
+
+	private BufferedReader reader;
+	private String version;
+	private String pending;
+	private long lineNumber;
+	private StringBuilder sb = new StringBuilder();
+	private List<Object> row = new ArrayList<>();
+
+	/**
+	 * Create a reader of a stream, which is closed when the reader is closed.
+	 * The stream is read as UTF-8.
+	 *
+	 * @param in
+	 *           the stream to read
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if there is no version line and
+	 *                       INTERNAL if the stream cannot be read
+	 */
+	public PortReader(InputStream in) throws IcatException {
+		this(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 65536));
+	}
+
+	/**
+	 * Create a reader of a file
+	 *
+	 * @param path
+	 *             the file to read
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if there is no version line and
+	 *                       INTERNAL if the file cannot be read
+	 */
+	public PortReader(Path path) throws IcatException {
+		this(open(path));
+	}
+
+	private static BufferedReader open(Path path) throws IcatException {
+		try {
+			return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	private PortReader(BufferedReader reader) throws IcatException {
+		this.reader = reader;
+		String line;
+		while ((line = readLine()) != null) {
+			if (!line.startsWith("#") && !line.isBlank()) {
+				version = line.trim();
+				return;
+			}
+		}
+		throw new IcatException(IcatExceptionType.BAD_PARAMETER, "No version line");
+	}
+
+	private String readLine() throws IcatException {
+		try {
+			String line = reader.readLine();
+			if (line != null) {
+				lineNumber++;
+			}
+			return line;
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Return the version of the file format
+	 *
+	 * @return the version such as "1.0"
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Return the descriptor of the next section, skipping any rows of the
+	 * current section which have not been read
+	 *
+	 * @return the descriptor or null at the end of the file
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if the file is not valid and INTERNAL
+	 *                       if it cannot be read
+	 */
+	public EntityDescriptor nextDescriptor() throws IcatException {
+		while (nextRowText() != null) {
+			// Skip it
+		}
+		String line;
+		while ((line = pending != null ? pending : readLine()) != null) {
+			pending = null;
+			if (!line.startsWith("#") && !line.isBlank()) {
+				return new EntityDescriptor(line.trim());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the values of the next row of the current section. The list is
+	 * reused by the next call, so it must be copied if it is to be kept.
+	 *
+	 * @return the values or null at the end of the section
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if the row is not valid and INTERNAL
+	 *                       if the file cannot be read
+	 */
+	public List<Object> nextRow() throws IcatException {
+		String line = nextRowText();
+		if (line == null) {
+			return null;
+		}
+		row.clear();
+		int n = line.length();
+		int i = 0;
+		while (true) {
+			while (i < n && Character.isWhitespace(line.charAt(i))) {
+				i++;
+			}
+			if (i < n && line.charAt(i) == '"') {
+				i = parseString(line, i + 1);
+			} else {
+				int start = i;
+				while (i < n && line.charAt(i) != ',') {
+					i++;
+				}
+				row.add(parseLiteral(line.substring(start, i).trim()));
+			}
+			while (i < n && Character.isWhitespace(line.charAt(i))) {
+				i++;
+			}
+			if (i == n) {
+				return row;
+			}
+			if (line.charAt(i) != ',') {
+				throw error("Expected ',' at position " + i);
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Return the text of the next row of the current section, without
+	 * parsing it, or null at its end. This lets a row be copied unchanged,
+	 * keeping for example a timestamp without a time zone as it was written.
+	 */
+	String nextRowText() throws IcatException {
+		if (pending != null) {
+			return null;
+		}
+		String line;
+		while ((line = readLine()) != null) {
+			if (line.isBlank()) {
+				pending = line;
+				return null;
+			}
+			if (!line.startsWith("#")) {
+				return line;
+			}
+		}
+		return null;
+	}
+
+	/** Parse a string starting after the opening quote and return the position after the closing one */
+	private int parseString(String line, int i) throws IcatException {
+		sb.setLength(0);
+		int n = line.length();
+		while (i < n) {
+			char c = line.charAt(i++);
+			if (c == '"') {
+				row.add(sb.toString());
+				return i;
+			} else if (c == '\\') {
+				if (i == n) {
+					break;
+				}
+				char e = line.charAt(i++);
+				switch (e) {
+				case 't':
+					sb.append('\t');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case '"':
+				case '\'':
+				case '\\':
+					sb.append(e);
+					break;
+				default:
+					throw error("Invalid escape sequence \\" + e);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private Object parseLiteral(String literal) throws IcatException {
+		if (literal.isEmpty()) {
+			throw error("Missing value");
+		} else if (literal.equalsIgnoreCase("null")) {
+			return null;
+		} else if (literal.equalsIgnoreCase("true")) {
+			return Boolean.TRUE;
+		} else if (literal.equalsIgnoreCase("false")) {
+			return Boolean.FALSE;
+		} else if (literal.indexOf('T') > 0 && literal.indexOf(':') > 0) {
+			return parseTimestamp(literal);
+		}
+		try {
+			if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+				return Long.parseLong(literal);
+			}
+			return Double.parseDouble(literal);
+		} catch (NumberFormatException e) {
+			throw error("Invalid literal " + literal);
+		}
+	}
+
+	private Date parseTimestamp(String literal) throws IcatException {
+		try {
+			Instant instant;
+			char last = literal.charAt(literal.length() - 1);
+			if (last == 'Z' || literal.lastIndexOf('+') > 0 || literal.lastIndexOf('-') > literal.indexOf('T')) {
+				instant = OffsetDateTime.parse(literal).toInstant();
+			} else {
+				instant = LocalDateTime.parse(literal).atZone(ZoneId.systemDefault()).toInstant();
+			}
+			return Date.from(instant);
+		} catch (DateTimeParseException e) {
+			throw error("Invalid timestamp " + literal);
+		}
+	}
+
+	private IcatException error(String msg) {
+		return new IcatException(IcatExceptionType.BAD_PARAMETER, msg + " on line " + lineNumber);
+	}
+
+	@Override
+	public void close() throws IcatException {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.icatproject.icat.client;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Writes a metadata file in the format described in {@link Session}, which
+ * may be imported with
+ * {@link Session#importMetaData(Path, Session.DuplicateAction, Session.Attributes)}
+ * or read with a {@link PortReader}.
+ * <p>
+ * Values may be a String, which is quoted and escaped, a Boolean, a finite
+ * Number, a Date or Instant, which is written as an ISO 8601 timestamp in
+ * UTC, or null. Output is buffered and is only complete once the writer has
+ * been closed.
+ */
+public class PortWriter implements AutoCloseable {
+
+	private Writer writer;
+	private StringBuilder sb = new StringBuilder();
+
+	/**
+	 * Create a writer to a stream, which is closed when the writer is closed.
+	 * The stream is written as UTF-8.
+	 *
+	 * @param out
+	 *                the stream to write
+	 * @param version
+	 *                the version of the file format, such as that returned
+	 *                by {@link PortReader#getVersion()}
+	 *
+	 * @throws IcatException
+	 *                       INTERNAL if the version cannot be written
+	 */
+	public PortWriter(OutputStream out, String version) throws IcatException {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536), version);
+	}
+
+	/**
+	 * Create a writer to a file
+	 *
+	 * @param path
+	 *                the file to write
+	 * @param version
+	 *                the version of the file format
+	 *
+	 * @throws IcatException
+	 *                       INTERNAL if the file cannot be written
+	 */
+	public PortWriter(Path path, String version) throws IcatException {
+		this(open(path), version);
+	}
+
+	private static Writer open(Path path) throws IcatException {
+		try {
+			return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	private PortWriter(Writer writer, String version) throws IcatException {
+		this.writer = writer;
+		write("# Version of file format\n" + version + "\n");
+	}
+
+	private void write(CharSequence text) throws IcatException {
+		try {
+			writer.append(text);
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Start a new section
+	 *
+	 * @param descriptor
+	 *                   the entity descriptor of the section
+	 *
+	 * @throws IcatException
+	 *                       INTERNAL if it cannot be written
+	 */
+	public void writeDescriptor(EntityDescriptor descriptor) throws IcatException {
+		write("\n" + descriptor + "\n");
+	}
+
+	/**
+	 * Write a row of the current section
+	 *
+	 * @param values
+	 *               the values in column order
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if a value is of an unsupported type
+	 *                       or is not finite and INTERNAL if it cannot be
+	 *                       written
+	 */
+	public void writeRow(List<?> values) throws IcatException {
+		sb.setLength(0);
+		boolean first = true;
+		for (Object value : values) {
+			if (!first) {
+				sb.append(", ");
+			}
+			first = false;
+			if (value == null) {
+				sb.append("null");
+			} else if (value instanceof String) {
+				appendString((String) value);
+			} else if (value instanceof Boolean) {
+				sb.append(value);
+			} else if (value instanceof Number) {
+				if ((value instanceof Double || value instanceof Float)
+						&& !Double.isFinite(((Number) value).doubleValue())) {
+					throw new IcatException(IcatExceptionType.BAD_PARAMETER,
+							"Value " + value + " cannot be represented in the file");
+				}
+				sb.append(value);
+			} else if (value instanceof Date) {
+				sb.append(((Date) value).toInstant());
+			} else if (value instanceof Instant) {
+				sb.append(value);
+			} else {
+				throw new IcatException(IcatExceptionType.BAD_PARAMETER,
+						"Unsupported value type " + value.getClass().getName());
+			}
+		}
+		sb.append('\n');
+		write(sb);
+	}
+
+	/**
+	 * Write a row of the current section
+	 *
+	 * @param values
+	 *               the values in column order
+	 *
+	 * @throws IcatException
+	 *                       BAD_PARAMETER if a value is of an unsupported type
+	 *                       or is not finite and INTERNAL if it cannot be
+	 *                       written
+	 */
+	public void writeRow(Object... values) throws IcatException {
+		writeRow(Arrays.asList(values));
+	}
+
+	/**
+	 * Write a row of the current section as obtained from
+	 * {@link PortReader#nextRowText()}
+	 */
+	void writeRowText(String row) throws IcatException {
+		write(row + "\n");
+	}
+
+	private void appendString(String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\t':
+				sb.append("\\t");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\f':
+				sb.append("\\f");
+				break;
+			case '\b':
+				sb.append("\\b");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	@Override
+	public void close() throws IcatException {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+		}
+	}
+
+}
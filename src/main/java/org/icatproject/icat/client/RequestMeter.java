@@ -0,0 +1,216 @@
+package org.icatproject.icat.client;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Measures one attempt of a request for {@link ClientMetrics} and the
+ * {@link RequestTracer}s. The request and response entities are wrapped to
+ * count the bytes passing through them. A successful request is complete when
+ * the response body reaches its end or is closed while one which fails is
+ * complete once the type of its failure is known.
+ */
+class RequestMeter {
+
+	/** Wraps a response entity so that the meter can be found from the response */
+	private class ResponseEntity extends HttpEntityWrapper {
+
+		ResponseEntity(HttpEntity entity) {
+			super(entity);
+		}
+
+		RequestMeter getMeter() {
+			return RequestMeter.this;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new FilterInputStream(wrappedEntity.getContent()) {
+
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					if (b < 0) {
+						endOfBody();
+					} else {
+						bytesReceived++;
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int n = super.read(b, off, len);
+					if (n < 0) {
+						endOfBody();
+					} else {
+						bytesReceived += n;
+					}
+					return n;
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						endOfBody();
+					}
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream outstream) throws IOException {
+			try (InputStream in = getContent()) {
+				in.transferTo(outstream);
+			}
+		}
+	}
+
+	private ClientMetrics metrics;
+	private List<RequestTracer> tracers;
+	private RequestTrace trace;
+	private long start;
+	private volatile long bytesSent;
+	private volatile long bytesReceived;
+	private volatile int statusCode;
+	private volatile IcatExceptionType failure;
+	private AtomicBoolean completed = new AtomicBoolean();
+
+	RequestMeter(ClientMetrics metrics, List<RequestTracer> tracers, RequestTrace trace) {
+		this.metrics = metrics;
+		this.tracers = tracers;
+		this.trace = trace;
+	}
+
+	/**
+	 * Report the start of the request, add any headers set by the tracers and
+	 * wrap the body, if there is one, to count the bytes sent
+	 */
+	void start(HttpUriRequest request, HttpEntity body) {
+		if (metrics != null) {
+			metrics.requestStarted(trace.getEndpoint());
+		}
+		for (RequestTracer tracer : tracers) {
+			tracer.requestStarted(trace);
+		}
+		for (Map.Entry<String, String> header : trace.getHeaders().entrySet()) {
+			request.setHeader(header.getKey(), header.getValue());
+		}
+		if (body != null) {
+			((HttpEntityEnclosingRequest) request).setEntity(wrapRequest(body));
+		}
+		start = System.nanoTime();
+		trace.start(start);
+	}
+
+	/** Return the endpoint of a path such as /icat/session/abc */
+	static String getEndpoint(String basePath, String path) {
+		if (path.startsWith(basePath + "/")) {
+			path = path.substring(basePath.length() + 1);
+		}
+		String[] segments = path.split("/", 3);
+		if (segments.length > 1 && (segments[0].equals("lucene") || segments[0].equals("search"))) {
+			return segments[0] + "/" + segments[1];
+		}
+		return segments[0];
+	}
+
+	/** Return the meter of a response which is being measured or null */
+	static RequestMeter of(HttpResponse response) {
+		HttpEntity entity = response.getEntity();
+		if (entity instanceof RequestMeter.ResponseEntity) {
+			return ((RequestMeter.ResponseEntity) entity).getMeter();
+		}
+		return null;
+	}
+
+	private HttpEntity wrapRequest(HttpEntity entity) {
+		return new HttpEntityWrapper(entity) {
+			@Override
+			public void writeTo(OutputStream outstream) throws IOException {
+				wrappedEntity.writeTo(new FilterOutputStream(outstream) {
+
+					@Override
+					public void write(int b) throws IOException {
+						out.write(b);
+						bytesSent++;
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						out.write(b, off, len);
+						bytesSent += len;
+					}
+
+					@Override
+					public void close() throws IOException {
+						out.close();
+					}
+				});
+			}
+		};
+	}
+
+	void attach(HttpResponse response) {
+		statusCode = response.getStatusLine() == null ? 0 : response.getStatusLine().getStatusCode();
+		if (!tracers.isEmpty()) {
+			trace.responseReceived(System.nanoTime() - start, statusCode);
+			for (RequestTracer tracer : tracers) {
+				tracer.responseReceived(trace);
+			}
+		}
+		HttpEntity entity = response.getEntity();
+		if (entity != null) {
+			response.setEntity(new ResponseEntity(entity));
+		} else if (statusCode / 100 == 2) {
+			complete();
+		} else {
+			failed(IcatExceptionType.INTERNAL);
+		}
+	}
+
+	/** An error response is only complete when its failure has been reported */
+	private void endOfBody() {
+		if (statusCode / 100 == 2) {
+			complete();
+		}
+	}
+
+	void failed(IcatExceptionType type) {
+		failure = type;
+		complete();
+	}
+
+	void complete() {
+		if (completed.compareAndSet(false, true)) {
+			long nanos = System.nanoTime() - start;
+			String endpoint = trace.getEndpoint();
+			if (metrics != null) {
+				if (failure != null) {
+					metrics.requestFailed(endpoint, failure);
+				}
+				metrics.requestCompleted(endpoint, nanos, bytesSent, bytesReceived);
+			}
+			trace.finish(nanos, bytesSent, bytesReceived, statusCode, failure);
+			for (RequestTracer tracer : tracers) {
+				tracer.requestFinished(trace);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+package org.icatproject.icat.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Describes one attempt of a request for a {@link RequestTracer}. The values
+ * which are only known when the request has finished are -1, 0 or null
+ * before then.
+ * <p>
+ * Tracers may keep their own state, such as a span object, in the attributes
+ * of the trace and may add headers to the request while it is being started.
+ */
+public class RequestTrace {
+
+	private String correlationId;
+	private String method;
+	private String endpoint;
+	private int attempt;
+	private long requestLength;
+	private long startNanos;
+	private volatile long responseNanos = -1;
+	private volatile long durationNanos = -1;
+	private volatile long bytesSent;
+	private volatile long bytesReceived;
+	private volatile int statusCode;
+	private volatile IcatExceptionType failure;
+	private Map<String, String> headers = new LinkedHashMap<>();
+	private Map<String, Object> attributes = new ConcurrentHashMap<>();
+	private boolean started;
+
+	RequestTrace(String correlationId, String method, String endpoint, int attempt, long requestLength) {
+		this.correlationId = correlationId;
+		this.method = method;
+		this.endpoint = endpoint;
+		this.attempt = attempt;
+		this.requestLength = requestLength;
+	}
+
+	/**
+	 * @return the correlation id, which is the one from {@link CorrelationId}
+	 *         if there was one when the request was made
+	 */
+	public String getCorrelationId() {
+		return correlationId;
+	}
+
+	/**
+	 * @return the HTTP method such as "GET"
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the endpoint, the REST path without any variable parts, as
+	 *         described in {@link ClientMetrics}
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return the number of the attempt, starting from 1
+	 */
+	public int getAttempt() {
+		return attempt;
+	}
+
+	/**
+	 * @return the length of the request body as declared when the request was
+	 *         built, 0 if there is none or -1 if it is not known in advance
+	 */
+	public long getRequestLength() {
+		return requestLength;
+	}
+
+	/**
+	 * @return the value of {@link System#nanoTime()} when the request was sent
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * @return the time from sending the request until the status and headers
+	 *         of the response arrived or -1 if they have not. The rest of the
+	 *         duration was spent reading the body, which includes parsing it
+	 *         where it is parsed as it is read.
+	 */
+	public long getResponseNanos() {
+		return responseNanos;
+	}
+
+	/**
+	 * @return the time from sending the request until the response had been
+	 *         read or -1 if it has not finished
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	/**
+	 * @return the number of bytes of request body sent
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * @return the number of bytes of response body read, after any
+	 *         decompression
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * @return the HTTP status code or 0 if no response was received
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return the type of the failure or null if the request succeeded
+	 */
+	public IcatExceptionType getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Set a header to be sent with the request. This has no effect once the
+	 * request has been started.
+	 *
+	 * @param name
+	 *              the name of the header
+	 * @param value
+	 *              its value
+	 */
+	public void setHeader(String name, String value) {
+		if (!started) {
+			headers.put(name, value);
+		}
+	}
+
+	/**
+	 * Return an attribute set by a tracer
+	 *
+	 * @param name
+	 *             the name of the attribute
+	 *
+	 * @return the value or null if it has not been set
+	 */
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	/**
+	 * Set an attribute for the use of a tracer
+	 *
+	 * @param name
+	 *              the name of the attribute
+	 * @param value
+	 *              its value, which must not be null
+	 */
+	public void setAttribute(String name, Object value) {
+		attributes.put(name, value);
+	}
+
+	Map<String, String> getHeaders() {
+		return Collections.unmodifiableMap(headers);
+	}
+
+	void start(long startNanos) {
+		started = true;
+		this.startNanos = startNanos;
+	}
+
+	void responseReceived(long responseNanos, int statusCode) {
+		this.statusCode = statusCode;
+		this.responseNanos = responseNanos;
+	}
+
+	void finish(long durationNanos, long bytesSent, long bytesReceived, int statusCode, IcatExceptionType failure) {
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.statusCode = statusCode;
+		this.failure = failure;
+		this.durationNanos = durationNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(correlationId).append(' ').append(method).append(' ').append(endpoint);
+		if (attempt > 1) {
+			sb.append(" attempt ").append(attempt);
+		}
+		if (durationNanos >= 0) {
+			sb.append(' ').append(statusCode).append(' ').append(durationNanos / 1000000).append("ms sent ")
+					.append(bytesSent).append(" received ").append(bytesReceived);
+			if (failure != null) {
+				sb.append(' ').append(failure);
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,51 @@
+package org.icatproject.icat.client;
+
+/**
+ * Follows the requests made by an {@link ICAT} instance. Add tracers with
+ * {@link ClientSettings#addTracer(RequestTracer)}; they are called in the
+ * order in which they were added. {@link InMemoryTracer} keeps the traces so
+ * that they can be examined.
+ * <p>
+ * Each attempt of a request has its own {@link RequestTrace}. It is passed to
+ * {@link #requestStarted(RequestTrace)} once the request has been built and
+ * before it is sent, when headers may still be added to it, to
+ * {@link #responseReceived(RequestTrace)} when the status and headers of the
+ * response have arrived and to {@link #requestFinished(RequestTrace)} once the
+ * response body has been read or the attempt has failed. The time spent
+ * waiting for the server is thus separated from that spent reading the
+ * response, which includes parsing it where a large response is parsed as it
+ * is read. The calls are made by the thread making the request, so they must
+ * be thread safe, should be fast and should not throw exceptions.
+ */
+public interface RequestTracer {
+
+	/**
+	 * Called before a request is sent
+	 *
+	 * @param trace
+	 *              the trace of the request
+	 */
+	void requestStarted(RequestTrace trace);
+
+	/**
+	 * Called when the status and headers of the response have arrived, before
+	 * the body is read. It is not called if no response is received. The
+	 * default does nothing.
+	 *
+	 * @param trace
+	 *              the trace of the request, now including the response time
+	 *              and status code
+	 */
+	default void responseReceived(RequestTrace trace) {
+	}
+
+	/**
+	 * Called once for each started request when it has finished
+	 *
+	 * @param trace
+	 *              the trace of the request, now including the timing, sizes
+	 *              and outcome
+	 */
+	void requestFinished(RequestTrace trace);
+
+}
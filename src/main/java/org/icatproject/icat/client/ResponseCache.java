@@ -0,0 +1,124 @@
+package org.icatproject.icat.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A cache of Json responses bounded by the number of characters held which
+ * evicts the least recently used entries first. Entries also expire after a
+ * time to live.
+ */
+class ResponseCache<K extends ResponseCache.Key> {
+
+	/** A key which knows its own size */
+	interface Key {
+		int getCharacters();
+	}
+
+	private static class Entry {
+		String value;
+		long expires;
+		int characters;
+	}
+
+	private LinkedHashMap<K, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxCharacters;
+	private long ttlMillis;
+	private long characters;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long generation;
+
+	ResponseCache(CacheSettings settings) {
+		maxCharacters = settings.getMaxCharacters();
+		ttlMillis = settings.getTtlSeconds() * 1000;
+	}
+
+	/** Return the cached value or null if there is no live entry */
+	synchronized String get(K key) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.expires - System.currentTimeMillis() <= 0) {
+			remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value;
+	}
+
+	/**
+	 * Return the generation which changes whenever entries are invalidated. It
+	 * should be obtained before requesting a value from the server and passed
+	 * to put so that a value which may have been made stale while it was being
+	 * obtained is not stored.
+	 */
+	synchronized long getGeneration() {
+		return generation;
+	}
+
+	/** Store a value with the default time to live */
+	void put(K key, String value, long generation) {
+		put(key, value, ttlMillis, generation);
+	}
+
+	/** Store a value with the specified time to live */
+	synchronized void put(K key, String value, long ttlMillis, long generation) {
+		if (generation != this.generation) {
+			return;
+		}
+		Entry entry = new Entry();
+		entry.value = value;
+		entry.expires = System.currentTimeMillis() + ttlMillis;
+		entry.characters = key.getCharacters() + value.length();
+		if (entry.characters > maxCharacters) {
+			return;
+		}
+		remove(key);
+		entries.put(key, entry);
+		characters += entry.characters;
+		Iterator<Entry> iter = entries.values().iterator();
+		while (characters > maxCharacters) {
+			characters -= iter.next().characters;
+			iter.remove();
+			evictions++;
+		}
+	}
+
+	private void remove(K key) {
+		Entry old = entries.remove(key);
+		if (old != null) {
+			characters -= old.characters;
+		}
+	}
+
+	/** Remove all entries whose key satisfies the predicate */
+	synchronized void invalidate(Predicate<? super K> predicate) {
+		generation++;
+		Iterator<Map.Entry<K, Entry>> iter = entries.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<K, Entry> mapEntry = iter.next();
+			if (predicate.test(mapEntry.getKey())) {
+				characters -= mapEntry.getValue().characters;
+				iter.remove();
+			}
+		}
+	}
+
+	/** Remove all entries */
+	synchronized void clear() {
+		generation++;
+		entries.clear();
+		characters = 0;
+	}
+
+	synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(hits, misses, evictions, entries.size(), characters);
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.icatproject.icat.client;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Controls how idempotent calls, those which only read from ICAT such as
+ * search, get, getRemainingMinutes, getProperties and getVersion, are retried
+ * after a transient failure.
+ * <p>
+ * A failure is considered transient if the connection could not be made or
+ * was lost, other than because the host is unknown or TLS failed, or if the
+ * server replied with a status of 502, 503 or 504. Before each retry the
+ * calling thread waits for a random time between zero and an exponentially
+ * growing limit ("full jitter") so that many clients do not retry in step.
+ * <p>
+ * The default policy makes up to 3 attempts with a base delay of 100 ms and a
+ * maximum delay of 5 s. All setters return the policy so that calls may be
+ * chained.
+ */
+public class RetryPolicy {
+
+	private int maxAttempts = 3;
+	private long baseDelayMillis = 100;
+	private long maxDelayMillis = 5000;
+
+	/**
+	 * Return a policy which makes no retries
+	 *
+	 * @return a policy which makes no retries
+	 */
+	public static RetryPolicy none() {
+		return new RetryPolicy().setMaxAttempts(1);
+	}
+
+	/**
+	 * Return the maximum number of attempts including the first
+	 *
+	 * @return the maximum number of attempts
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Set the maximum number of attempts including the first. A value of one
+	 * disables retries.
+	 *
+	 * @param maxAttempts
+	 *                    the maximum number of attempts
+	 *
+	 * @return this policy
+	 */
+	public RetryPolicy setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * Return the limit on the delay before the first retry
+	 *
+	 * @return the base delay in milliseconds
+	 */
+	public long getBaseDelayMillis() {
+		return baseDelayMillis;
+	}
+
+	/**
+	 * Set the limit on the delay before the first retry. The limit doubles for
+	 * each subsequent retry.
+	 *
+	 * @param baseDelayMillis
+	 *                        the base delay in milliseconds
+	 *
+	 * @return this policy
+	 */
+	public RetryPolicy setBaseDelayMillis(long baseDelayMillis) {
+		if (baseDelayMillis < 0) {
+			throw new IllegalArgumentException("baseDelayMillis must not be negative");
+		}
+		this.baseDelayMillis = baseDelayMillis;
+		return this;
+	}
+
+	/**
+	 * Return the upper bound on the delay before any retry
+	 *
+	 * @return the maximum delay in milliseconds
+	 */
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	/**
+	 * Set the upper bound on the delay before any retry
+	 *
+	 * @param maxDelayMillis
+	 *                       the maximum delay in milliseconds
+	 *
+	 * @return this policy
+	 */
+	public RetryPolicy setMaxDelayMillis(long maxDelayMillis) {
+		if (maxDelayMillis < 0) {
+			throw new IllegalArgumentException("maxDelayMillis must not be negative");
+		}
+		this.maxDelayMillis = maxDelayMillis;
+		return this;
+	}
+
+	boolean isRetryable(IOException e) {
+		return !(e instanceof UnknownHostException || e instanceof SSLException);
+	}
+
+	boolean isRetryable(int statusCode) {
+		return statusCode == 502 || statusCode == 503 || statusCode == 504;
+	}
+
+	/** Return the time to wait before the specified attempt which must be 2 or more */
+	long getDelayMillis(int attempt) {
+		long limit = baseDelayMillis << Math.min(attempt - 2, 30);
+		if (limit < 0 || limit > maxDelayMillis) {
+			limit = maxDelayMillis;
+		}
+		return limit == 0 ? 0 : ThreadLocalRandom.current().nextLong(limit + 1);
+	}
+
+}
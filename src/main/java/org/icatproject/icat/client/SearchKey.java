@@ -0,0 +1,124 @@
+package org.icatproject.icat.client;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies the result of a search in the search cache. The query is
+ * normalised so that queries differing only in the amount of white space or
+ * the case of keywords share an entry.
+ */
+class SearchKey implements ResponseCache.Key {
+
+	private static final Set<String> keywords = Set.of("ABS", "ALL", "AND", "ANY", "AS", "ASC", "AVG", "BETWEEN",
+			"BY", "CONCAT", "COUNT", "DESC", "DISTINCT", "EMPTY", "EXISTS", "FALSE", "FETCH", "FROM", "GROUP",
+			"HAVING", "IN", "INCLUDE", "INNER", "IS", "JOIN", "LEFT", "LENGTH", "LIKE", "LIMIT", "LOCATE", "LOWER",
+			"MAX", "MEMBER", "MIN", "MOD", "NOT", "NULL", "OF", "OR", "ORDER", "OUTER", "SELECT", "SIZE", "SOME",
+			"SQRT", "SUBSTRING", "SUM", "TRIM", "TRUE", "UPPER", "WHERE");
+
+	private static final Pattern include = Pattern.compile("\\bINCLUDE\\b");
+
+	private String user;
+	private String query;
+	private boolean includes;
+
+	SearchKey(String user, String query) {
+		this.user = user;
+		this.query = normalise(query);
+		includes = include.matcher(this.query).find();
+	}
+
+	/**
+	 * Collapse runs of white space outside string literals to a single space
+	 * and convert keywords to upper case. Words following a "." are attribute
+	 * names and are left alone.
+	 */
+	static String normalise(String query) {
+		StringBuilder sb = new StringBuilder(query.length());
+		int n = query.length();
+		int i = 0;
+		while (i < n) {
+			char c = query.charAt(i);
+			if (c == '\'') {
+				int end = i + 1;
+				while (end < n) {
+					if (query.charAt(end) == '\'') {
+						if (end + 1 < n && query.charAt(end + 1) == '\'') {
+							end += 2;
+							continue;
+						}
+						break;
+					}
+					end++;
+				}
+				end = Math.min(end + 1, n);
+				sb.append(query, i, end);
+				i = end;
+			} else if (Character.isWhitespace(c)) {
+				while (i < n && Character.isWhitespace(query.charAt(i))) {
+					i++;
+				}
+				if (sb.length() > 0 && i < n) {
+					sb.append(' ');
+				}
+			} else if (Character.isJavaIdentifierStart(c)) {
+				int end = i + 1;
+				while (end < n && Character.isJavaIdentifierPart(query.charAt(end))) {
+					end++;
+				}
+				String word = query.substring(i, end);
+				String upper = word.toUpperCase();
+				boolean attribute = sb.length() > 0 && sb.charAt(sb.length() - 1) == '.';
+				sb.append(!attribute && keywords.contains(upper) ? upper : word);
+				i = end;
+			} else {
+				sb.append(c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Return true if the cached result may be changed by writing entities of
+	 * the specified types, which must include every type written. This is the
+	 * case if the query contains any of the type names, ignoring case so that
+	 * relationships such as "df.dataset" and "inv.datasets" are matched, or if
+	 * it has an INCLUDE clause. Some results are removed needlessly. Writes
+	 * which create related entities and deletes, which may cascade, clear the
+	 * whole cache instead as the types they change are not known.
+	 */
+	boolean isAffectedBy(Set<String> entityTypes) {
+		if (includes) {
+			return true;
+		}
+		String lower = query.toLowerCase();
+		for (String entityType : entityTypes) {
+			if (lower.contains(entityType.toLowerCase())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int getCharacters() {
+		return user.length() + query.length() + 20;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof SearchKey)) {
+			return false;
+		}
+		SearchKey other = (SearchKey) obj;
+		return user.equals(other.user) && query.equals(other.query);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(user, query);
+	}
+
+}
@@ -0,0 +1,143 @@
+package org.icatproject.icat.client;
+
+import java.io.StringReader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonReader;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Walks through the results of an ICAT search one page at a time.
+ * <p>
+ * The query is run repeatedly with a LIMIT clause appended to select
+ * successive windows of the results. While the caller is working on one page
+ * the next is fetched in the background. Pages are only guaranteed to be
+ * consistent if the query has an ORDER BY clause which gives a total ordering
+ * (for example by id) and the data are not being modified during the walk.
+ * <p>
+ * Obtain a SearchPager from {@link Session#searchPages(String)} and call
+ * {@link #close()} if it is abandoned before {@link #hasNext()} has returned
+ * false.
+ */
+public class SearchPager implements AutoCloseable {
+
+	private static final Pattern stringLiteral = Pattern.compile("'([^']|'')*'");
+	private static final Pattern limitClause = Pattern.compile("\\bLIMIT\\b", Pattern.CASE_INSENSITIVE);
+
+	private Session session;
+	private ExecutorService executor;
+	private String query;
+	private int pageSize;
+	private long offset;
+	private Future<JsonArray> pending;
+	private JsonArray page;
+	private ExecutionException failure;
+
+	SearchPager(Session session, ExecutorService executor, String query, int pageSize) throws IcatException {
+		if (pageSize < 1) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Page size must be positive");
+		}
+		if (limitClause.matcher(stringLiteral.matcher(query).replaceAll("''")).find()) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER,
+					"A query to be paged must not have its own LIMIT clause");
+		}
+		this.session = session;
+		this.executor = executor;
+		this.query = query;
+		this.pageSize = pageSize;
+		fetchNext();
+	}
+
+	private void fetchNext() {
+		String pageQuery = query + " LIMIT " + offset + ", " + pageSize;
+		offset += pageSize;
+		pending = executor.submit(() -> {
+			try (JsonReader reader = Json.createReader(new StringReader(session.search(pageQuery)))) {
+				return reader.readArray();
+			}
+		});
+	}
+
+	/**
+	 * Return true if there is another page of results, waiting for it to
+	 * arrive if necessary
+	 *
+	 * @return true if there is another page
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors. Once a page has failed
+	 *                       every later call throws the same error.
+	 */
+	public boolean hasNext() throws IcatException {
+		if (failure != null) {
+			throw IcatException.ofFailure(failure);
+		}
+		if (page == null && pending != null) {
+			try {
+				page = pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+			} catch (CancellationException e) {
+				throw new IcatException(IcatExceptionType.INTERNAL, "Paged search has been closed");
+			} catch (ExecutionException e) {
+				pending = null;
+				failure = e;
+				throw IcatException.ofFailure(e);
+			}
+			pending = null;
+			if (page.size() == pageSize) {
+				fetchNext();
+			} else if (page.isEmpty()) {
+				page = null;
+			}
+		}
+		return page != null;
+	}
+
+	/**
+	 * Return the next page of results. The following page, if there may be
+	 * one, is already being fetched when this returns.
+	 *
+	 * @return the Json array holding the next page of results
+	 *
+	 * @throws IcatException
+	 *                       For various ICAT errors and if there are no more
+	 *                       pages
+	 */
+	public JsonArray next() throws IcatException {
+		if (!hasNext()) {
+			throw new IcatException(IcatExceptionType.VALIDATION, "No more pages");
+		}
+		JsonArray result = page;
+		page = null;
+		return result;
+	}
+
+	/**
+	 * Return the number of results requested for each page
+	 *
+	 * @return the page size
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/** Abandon the walk, cancelling any page which is being fetched */
+	@Override
+	public void close() {
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+		page = null;
+	}
+
+}
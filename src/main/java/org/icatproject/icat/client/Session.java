@@ -1,12 +1,18 @@
 package org.icatproject.icat.client;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import jakarta.json.JsonArray;
+import jakarta.json.JsonValue;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
 
 /**
  * A RESTful ICAT session.
@@ -135,12 +141,112 @@ public class Session {
 		THROW
 	}
 
+	private interface Call<T> {
+		T call(String sessionId) throws IcatException;
+	}
+
+	private interface VoidCall {
+		void call(String sessionId) throws IcatException;
+	}
+
 	private ICAT icat;
-	private String sessionId;
+	private volatile String sessionId;
+	private String plugin;
+	private Supplier<Map<String, String>> credentials;
+	private boolean loggedOut;
+	private AsyncSession async;
 
 	Session(ICAT icat, String sessionId) {
+		this(icat, sessionId, null, null);
+	}
+
+	Session(ICAT icat, String sessionId, String plugin, Supplier<Map<String, String>> credentials) {
 		this.icat = icat;
 		this.sessionId = sessionId;
+		this.plugin = plugin;
+		this.credentials = credentials;
+		async = new AsyncSession(this, icat.getAsyncExecutor());
+	}
+
+	/**
+	 * Make a call which only reads from ICAT. If the session has expired and
+	 * it can be renewed it is renewed and the call is made again.
+	 */
+	private <T> T idempotent(Call<T> call) throws IcatException {
+		String current = sessionId;
+		try {
+			return call.call(current);
+		} catch (IcatException e) {
+			if (e.getType() != IcatExceptionType.SESSION || credentials == null || !renew(current)) {
+				throw e;
+			}
+			return call.call(sessionId);
+		}
+	}
+
+	private void idempotentVoid(VoidCall call) throws IcatException {
+		idempotent(sessionId -> {
+			call.call(sessionId);
+			return null;
+		});
+	}
+
+	/**
+	 * Make a call which may change ICAT. If the session has expired and it can
+	 * be renewed it is renewed, so that the caller may try again, but the
+	 * exception is still thrown.
+	 */
+	private <T> T renewing(Call<T> call) throws IcatException {
+		String current = sessionId;
+		try {
+			return call.call(current);
+		} catch (IcatException e) {
+			if (e.getType() == IcatExceptionType.SESSION && credentials != null) {
+				renew(current);
+			}
+			throw e;
+		}
+	}
+
+	private void renewingVoid(VoidCall call) throws IcatException {
+		renewing(sessionId -> {
+			call.call(sessionId);
+			return null;
+		});
+	}
+
+	/**
+	 * Log in again unless another thread has already replaced the expired
+	 * sessionId. Return false, without logging in, if the session has been
+	 * logged out.
+	 */
+	private synchronized boolean renew(String expired) throws IcatException {
+		if (loggedOut) {
+			return false;
+		}
+		if (sessionId.equals(expired)) {
+			sessionId = icat.loginForSessionId(plugin, credentials.get());
+		}
+		return true;
+	}
+
+	ICAT getIcat() {
+		return icat;
+	}
+
+	/** Return true if the session logs in again when it expires */
+	boolean isRenewing() {
+		return credentials != null;
+	}
+
+	/**
+	 * Return a non-blocking view of this session whose calls return a
+	 * CompletableFuture
+	 * 
+	 * @return the non-blocking view of this session
+	 */
+	public AsyncSession async() {
+		return async;
 	}
 
 	/**
@@ -157,7 +263,80 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public List<Long> write(String entities) throws IcatException {
-		return icat.write(sessionId, entities);
+		return renewing(sessionId -> icat.write(sessionId, entities));
+	}
+
+	/**
+	 * Write (create or update) ICAT entities which are streamed to the server
+	 * as they are generated, so that the whole request is never held in
+	 * memory.
+	 * 
+	 * @param writer
+	 *               called once to write the Json representation of the ICAT
+	 *               entities and their related entities into an array
+	 * 
+	 * @return the ids of the top level entities created
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public List<Long> write(JsonEntityWriter writer) throws IcatException {
+		return renewing(sessionId -> icat.write(sessionId, writer));
+	}
+
+	/**
+	 * Write (create or update) ICAT entities which are streamed to the server
+	 * one at a time as they are obtained from the Iterable.
+	 * 
+	 * @param entities
+	 *                 Json representations of ICAT entities and their related
+	 *                 entities
+	 * 
+	 * @return the ids of the top level entities created
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public List<Long> write(Iterable<? extends JsonValue> entities) throws IcatException {
+		return renewing(sessionId -> icat.write(sessionId, generator -> {
+			for (JsonValue entity : entities) {
+				generator.write(entity);
+			}
+		}));
+	}
+
+	/**
+	 * Write (create or update) a sequence of ICAT entities of any length by
+	 * splitting it into chunks, each of which is written by a separate call.
+	 * <p>
+	 * A chunk holds at most maxEntities entities and, unless it contains only
+	 * one entity, at most maxCharacters characters of Json. Up to parallelism
+	 * chunks are written concurrently. Each chunk is written in its own
+	 * transaction so if an IcatException is thrown the chunks before the
+	 * failing one, and possibly some after it, will have been written. The
+	 * offset of the exception, if set, is the position of the failing entity
+	 * in the whole sequence.
+	 * 
+	 * @param entities
+	 *                      Json representations of ICAT entities and their
+	 *                      related entities, each without an outer "[" "]".
+	 *                      They are read one at a time as chunks are built.
+	 * @param maxEntities
+	 *                      the maximum number of entities in a chunk
+	 * @param maxCharacters
+	 *                      the maximum number of characters of Json in a chunk
+	 * @param parallelism
+	 *                      the maximum number of chunks to write at once
+	 * 
+	 * @return the ids of the top level entities created in the order in which
+	 *         they were supplied
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public List<Long> writeChunked(Iterable<String> entities, int maxEntities, int maxCharacters, int parallelism)
+			throws IcatException {
+		return ChunkedWriter.write(this, entities, maxEntities, maxCharacters, parallelism);
 	}
 
 	/**
@@ -176,7 +355,7 @@ public class Session {
 	 */
 	@Deprecated
 	public List<Long> create(String entities) throws IcatException {
-		return icat.write(sessionId, entities);
+		return renewing(sessionId -> icat.write(sessionId, entities));
 	}
 
 	/**
@@ -190,7 +369,7 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public void delete(String entities) throws IcatException {
-		icat.delete(sessionId, entities);
+		renewingVoid(sessionId -> icat.delete(sessionId, entities));
 	}
 
 	/**
@@ -209,11 +388,13 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public InputStream exportMetaData(Attributes attributes) throws IcatException {
-		return icat.exportMetaData(sessionId, null, attributes);
+		return idempotent(sessionId -> icat.exportMetaData(sessionId, null, attributes));
 	}
 
 	/**
-	 * Export metadata from ICAT as specified in the query
+	 * Export metadata from ICAT as specified in the query. For large exports
+	 * which should be split into chunks and be resumable see
+	 * {@link MetaDataExporter}.
 	 * 
 	 * @param query
 	 *                   a normal ICAT query which may have an INCLUDE clause. This
@@ -231,7 +412,7 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public InputStream exportMetaData(String query, Attributes attributes) throws IcatException {
-		return icat.exportMetaData(sessionId, query, attributes);
+		return idempotent(sessionId -> icat.exportMetaData(sessionId, query, attributes));
 	}
 
 	/**
@@ -243,7 +424,7 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public double getRemainingMinutes() throws IcatException {
-		return icat.getRemainingMinutes(sessionId);
+		return idempotent(sessionId -> icat.getRemainingMinutes(sessionId));
 	}
 
 	/**
@@ -264,11 +445,13 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public String getUserName() throws IcatException {
-		return icat.getUserName(sessionId);
+		return idempotent(sessionId -> icat.getUserName(sessionId));
 	}
 
 	/**
-	 * Import metadata into ICAT for a file specified by a Path
+	 * Import metadata into ICAT for a file specified by a Path. The whole file
+	 * is imported in one transaction; to import a large file in batches see
+	 * {@link MetaDataImporter}.
 	 * 
 	 * @param path
 	 *                        the path of the import file. The structure of the
@@ -288,27 +471,67 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public void importMetaData(Path path, DuplicateAction duplicateAction, Attributes attributes) throws IcatException {
-		icat.importMetaData(sessionId, path, duplicateAction, attributes);
+		importMetaData(path, duplicateAction, attributes, null);
 	}
 
 	/**
-	 * Logout of the session after which the session cannot be re-used
+	 * Import metadata into ICAT for a file specified by a Path, reporting the
+	 * progress of sending the file. The file is sent with its length known in
+	 * advance and must not change while it is being sent. The rate at which it
+	 * is sent may be limited with
+	 * {@link ClientSettings#setUploadMaxBytesPerSecond(long)}.
+	 * 
+	 * @param path
+	 *                        the path of the import file. The structure of the
+	 *                        import file is described at {@link Session}
+	 * @param duplicateAction
+	 *                        what to do when a duplicate is encountered
+	 * @param attributes
+	 *                        which attributes to import. See
+	 *                        {@link #importMetaData(Path, DuplicateAction, Attributes)}
+	 * @param listener
+	 *                        told of the number of bytes sent, or null
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public void importMetaData(Path path, DuplicateAction duplicateAction, Attributes attributes,
+			UploadProgressListener listener) throws IcatException {
+		renewingVoid(sessionId -> icat.importMetaData(sessionId, path, duplicateAction, attributes, listener));
+	}
+
+	/** Import metadata held in memory, as a file would be */
+	void importMetaData(byte[] data, DuplicateAction duplicateAction, Attributes attributes) throws IcatException {
+		renewingVoid(sessionId -> icat.importMetaData(sessionId, new ByteArrayInputStream(data), duplicateAction,
+				attributes));
+	}
+
+	/**
+	 * Logout of the session after which the session cannot be re-used. A
+	 * session which renews itself no longer does so.
 	 * 
 	 * @throws IcatException
 	 *                       For various ICAT errors
 	 */
 	public void logout() throws IcatException {
-		icat.logout(sessionId);
+		icat.stopKeepAlive(this);
+		String current;
+		synchronized (this) {
+			loggedOut = true;
+			current = sessionId;
+		}
+		icat.logout(current);
 	}
 
 	/**
-	 * Refresh the session by resetting the time remaining
+	 * Refresh the session by resetting the time remaining. To have this done
+	 * automatically see {@link ICAT#keepAlive(Session)}.
 	 * 
 	 * @throws IcatException
 	 *                       For various ICAT errors
 	 */
 	public void refresh() throws IcatException {
-		icat.refresh(sessionId);
+		idempotentVoid(sessionId -> icat.refresh(sessionId));
 	}
 
 	/**
@@ -316,6 +539,13 @@ public class Session {
 	 * 
 	 * Note that this call is experimental and should not be relied upon to
 	 * continue in its present form.
+	 * <p>
+	 * If the query is too long to be sent in one request because it holds a
+	 * long list of numbers in an IN clause, such as a list of ids, it is split
+	 * into several requests each holding part of the list and the results are
+	 * merged. This is only done when the query has no ORDER BY, GROUP BY or
+	 * LIMIT clause, no aggregate function and the IN clause is not negated;
+	 * otherwise a BAD_PARAMETER exception is thrown.
 	 * 
 	 * @param query
 	 *              a normal ICAT query with optional INCLUDE and LIMIT clauses.
@@ -326,12 +556,131 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public String search(String query) throws IcatException {
-		return icat.search(sessionId, query);
+		return idempotent(sessionId -> icat.search(sessionId, query));
+	}
+
+	/**
+	 * Carry out an ICAT search as {@link #search(String)} but with a time to
+	 * live for the result in the search cache which overrides the default for
+	 * the cache. This has no effect unless the cache has been enabled (see
+	 * {@link ClientSettings#setSearchCache(CacheSettings)}).
+	 * 
+	 * @param query
+	 *                   a normal ICAT query with optional INCLUDE and LIMIT
+	 *                   clauses.
+	 * @param ttlSeconds
+	 *                   how long the result may be reused. A value of zero
+	 *                   bypasses the cache.
+	 * 
+	 * @return the Json holding the results
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public String search(String query, long ttlSeconds) throws IcatException {
+		if (ttlSeconds < 0) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "ttlSeconds must not be negative");
+		}
+		return idempotent(sessionId -> icat.search(sessionId, query, ttlSeconds));
+	}
+
+	/**
+	 * Carry out an ICAT search returning a stream of the Json values making up
+	 * the results. The values are parsed from the response one at a time as the
+	 * stream is consumed so memory use does not grow with the number of
+	 * results.
+	 * <p>
+	 * The stream holds a pooled connection until it has been consumed or is
+	 * closed, so it should be used within a try-with-resources statement. A
+	 * failure while reading the results is reported as an unchecked
+	 * JsonException.
+	 * 
+	 * @param query
+	 *              a normal ICAT query with optional INCLUDE and LIMIT clauses.
+	 * 
+	 * @return a stream of the Json values holding the results
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public Stream<JsonValue> searchStream(String query) throws IcatException {
+		return idempotent(sessionId -> icat.searchStream(sessionId, query));
+	}
+
+	/**
+	 * Carry out an ICAT search one page at a time so that it is not limited by
+	 * the maxEntities property of the server. Each page holds up to
+	 * maxEntities results and the next page is fetched in the background while
+	 * the current one is being processed.
+	 * 
+	 * @param query
+	 *              a normal ICAT query with optional INCLUDE clause but without
+	 *              a LIMIT clause. It should have an ORDER BY clause, typically
+	 *              on the id, so that successive pages are consistent.
+	 * 
+	 * @return a pager from which the pages of results may be obtained
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public SearchPager searchPages(String query) throws IcatException {
+		return searchPages(query, icat.getMaxEntities());
+	}
+
+	/**
+	 * Carry out an ICAT search one page at a time. The next page is fetched in
+	 * the background while the current one is being processed.
+	 * 
+	 * @param query
+	 *                 a normal ICAT query with optional INCLUDE clause but
+	 *                 without a LIMIT clause. It should have an ORDER BY clause,
+	 *                 typically on the id, so that successive pages are
+	 *                 consistent.
+	 * @param pageSize
+	 *                 the number of results in each page which must not exceed
+	 *                 the maxEntities property of the server
+	 * 
+	 * @return a pager from which the pages of results may be obtained
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public SearchPager searchPages(String query, int pageSize) throws IcatException {
+		return new SearchPager(this, icat.getExecutor(), query, pageSize);
+	}
+
+	/**
+	 * Carry out a number of independent ICAT searches concurrently. The data
+	 * are returned as a list of Json strings in the same order as the queries.
+	 * <p>
+	 * The searches are shared between the calling thread and up to
+	 * parallelism - 1 background threads of the ICAT instance. If a search
+	 * fails no further searches are started and, once those already in
+	 * progress have finished, the exception from the failing search with the
+	 * lowest index is thrown.
+	 * 
+	 * @param queries
+	 *                    normal ICAT queries with optional INCLUDE and LIMIT
+	 *                    clauses.
+	 * @param parallelism
+	 *                    the maximum number of searches to carry out at once
+	 * 
+	 * @return the Json holding the results of each query
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors
+	 */
+	public List<String> searchAll(List<String> queries, int parallelism) throws IcatException {
+		return ParallelRunner.run(icat.getExecutor(), queries.size(), parallelism, i -> search(queries.get(i)));
 	}
 
 	/**
 	 * Carry out an ICAT get. The data are returned as a Json string
 	 * 
+	 * If an entity cache has been enabled (see
+	 * {@link ClientSettings#setEntityCache(CacheSettings)}) the result may be
+	 * returned from the cache.
+	 * 
 	 * Note that this call is experimental and should not be relied upon to
 	 * continue in its present form.
 	 * 
@@ -346,7 +695,7 @@ public class Session {
 	 *                       For various ICAT errors
 	 */
 	public String get(String query, long id) throws IcatException {
-		return icat.get(sessionId, query, id);
+		return idempotent(sessionId -> icat.get(sessionId, query, id));
 	}
 
 	/**
@@ -404,8 +753,8 @@ public class Session {
 	public String searchInvestigations(String user, String text, Date lower, Date upper,
 			List<ParameterForLucene> parameters, List<String> samples, String userFullName, int maxResults)
 			throws IcatException {
-		return icat.searchInvestigations(sessionId, user, text, lower, upper, parameters, samples, userFullName,
-				maxResults);
+		return idempotent(sessionId -> icat.searchInvestigations(sessionId, user, text, lower, upper, parameters,
+				samples, userFullName, maxResults));
 	}
 
 	/**
@@ -467,8 +816,8 @@ public class Session {
 	public String searchInvestigations(String user, String text, Date lower, Date upper,
 			List<ParameterForLucene> parameters, String userFullName, String searchAfter, int maxCount, String sort,
 			JsonArray facets) throws IcatException {
-		return icat.searchInvestigations(sessionId, user, text, lower, upper, parameters, userFullName,
-				searchAfter, maxCount, sort, facets);
+		return idempotent(sessionId -> icat.searchInvestigations(sessionId, user, text, lower, upper, parameters,
+				userFullName, searchAfter, maxCount, sort, facets));
 	}
 
 	/**
@@ -506,7 +855,8 @@ public class Session {
 	@Deprecated
 	public String searchDatasets(String user, String text, Date lower, Date upper, List<ParameterForLucene> parameters,
 			int maxResults) throws IcatException {
-		return icat.searchDatasets(sessionId, user, text, lower, upper, parameters, maxResults);
+		return idempotent(
+				sessionId -> icat.searchDatasets(sessionId, user, text, lower, upper, parameters, maxResults));
 	}
 
 	/**
@@ -553,8 +903,8 @@ public class Session {
 	 */
 	public String searchDatasets(String user, String text, Date lower, Date upper, List<ParameterForLucene> parameters,
 			String searchAfter, int maxCount, String sort, JsonArray facets) throws IcatException {
-		return icat.searchDatasets(sessionId, user, text, lower, upper, parameters, searchAfter, maxCount, sort,
-				facets);
+		return idempotent(sessionId -> icat.searchDatasets(sessionId, user, text, lower, upper, parameters,
+				searchAfter, maxCount, sort, facets));
 	}
 
 	/**
@@ -564,7 +914,7 @@ public class Session {
 	 *                       For various ICAT errors.
 	 */
 	public void luceneClear() throws IcatException {
-		icat.luceneClear(sessionId);
+		renewingVoid(sessionId -> icat.luceneClear(sessionId));
 	}
 
 	/**
@@ -574,7 +924,7 @@ public class Session {
 	 *                       For various ICAT errors.
 	 */
 	public void luceneCommit() throws IcatException {
-		icat.luceneCommit(sessionId);
+		renewingVoid(sessionId -> icat.luceneCommit(sessionId));
 	}
 
 	/**
@@ -592,7 +942,7 @@ public class Session {
 	 */
 	@Deprecated
 	public void lucenePopulate(String entityName, long minId) throws IcatException {
-		icat.lucenePopulate(sessionId, entityName, minId, null, true);
+		renewingVoid(sessionId -> icat.lucenePopulate(sessionId, entityName, minId, null, true));
 	}
 
 	/**
@@ -611,7 +961,7 @@ public class Session {
 	 * @throws IcatException For various ICAT errors.
 	 */
 	public void searchPopulate(String entityName, long minId, long maxId, boolean delete) throws IcatException {
-		icat.lucenePopulate(sessionId, entityName, minId, maxId, delete);
+		renewingVoid(sessionId -> icat.lucenePopulate(sessionId, entityName, minId, maxId, delete));
 	}
 
 	/**
@@ -623,7 +973,7 @@ public class Session {
 	 *                       For various ICAT errors.
 	 */
 	public List<String> luceneGetPopulating() throws IcatException {
-		return icat.luceneGetPopulating(sessionId);
+		return idempotent(sessionId -> icat.luceneGetPopulating(sessionId));
 	}
 
 	/**
@@ -662,7 +1012,8 @@ public class Session {
 	@Deprecated
 	public String searchDatafiles(String user, String text, Date lower, Date upper, List<ParameterForLucene> parameters,
 			int maxResults) throws IcatException {
-		return icat.searchDatafiles(sessionId, user, text, lower, upper, parameters, maxResults);
+		return idempotent(
+				sessionId -> icat.searchDatafiles(sessionId, user, text, lower, upper, parameters, maxResults));
 	}
 
 	/**
@@ -710,8 +1061,135 @@ public class Session {
 	 */
 	public String searchDatafiles(String user, String text, Date lower, Date upper, List<ParameterForLucene> parameters,
 			String searchAfter, int maxCount, String sort, JsonArray facets) throws IcatException {
-		return icat.searchDatafiles(sessionId, user, text, lower, upper, parameters, searchAfter, maxCount, sort,
-				facets);
+		return idempotent(sessionId -> icat.searchDatafiles(sessionId, user, text, lower, upper, parameters,
+				searchAfter, maxCount, sort, facets));
+	}
+
+	/**
+	 * Return a pager which walks through all the indexed documents
+	 * representing Investigations that satisfy the search constraints, fetching
+	 * the next page in the background. See {@link DocumentPager}.
+	 * 
+	 * @param user
+	 *                     If not null must exactly match the name of a user
+	 *                     related to the investigation.
+	 * @param text
+	 *                     If not null a text search for any text in the
+	 *                     investigation fields.
+	 * @param lower
+	 *                     If not null the investigation end date must be greater than or
+	 *                     equal to this.
+	 * @param upper
+	 *                     If not null the investigation start date must be less than or
+	 *                     equal to this.
+	 * @param parameters
+	 *                     If not null all the parameters must match.
+	 * @param userFullName
+	 *                     If not null the full name of a user related to the
+	 *                     investigation must match this.
+	 * @param pageSize
+	 *                     The number of documents requested in each call.
+	 * @param sort
+	 *                     Json sort specification or null for the default
+	 *                     order by score.
+	 * @param facets
+	 *                     Json array of facet specifications or null for none.
+	 * 
+	 * @return the pager
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors.
+	 */
+	public DocumentPager searchInvestigationDocuments(String user, String text, Date lower, Date upper,
+			List<ParameterForLucene> parameters, String userFullName, int pageSize, String sort, JsonArray facets)
+			throws IcatException {
+		checkPageSize(pageSize);
+		return new DocumentPager(searchAfter -> searchInvestigations(user, text, lower, upper, parameters,
+				userFullName, searchAfter, pageSize, sort, searchAfter == null ? facets : null), icat.getExecutor());
+	}
+
+	/**
+	 * Return a pager which walks through all the indexed documents
+	 * representing Datasets that satisfy the search constraints, fetching
+	 * the next page in the background. See {@link DocumentPager}.
+	 * 
+	 * @param user
+	 *                     If not null must exactly match the name of a user
+	 *                     related to the data set.
+	 * @param text
+	 *                     If not null a text search for any text in the
+	 *                     data set fields.
+	 * @param lower
+	 *                     If not null the data set end date must be greater than or
+	 *                     equal to this.
+	 * @param upper
+	 *                     If not null the data set start date must be less than or
+	 *                     equal to this.
+	 * @param parameters
+	 *                     If not null all the parameters must match.
+	 * @param pageSize
+	 *                     The number of documents requested in each call.
+	 * @param sort
+	 *                     Json sort specification or null for the default
+	 *                     order by score.
+	 * @param facets
+	 *                     Json array of facet specifications or null for none.
+	 * 
+	 * @return the pager
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors.
+	 */
+	public DocumentPager searchDatasetDocuments(String user, String text, Date lower, Date upper,
+			List<ParameterForLucene> parameters, int pageSize, String sort, JsonArray facets) throws IcatException {
+		checkPageSize(pageSize);
+		return new DocumentPager(searchAfter -> searchDatasets(user, text, lower, upper, parameters, searchAfter,
+				pageSize, sort, searchAfter == null ? facets : null), icat.getExecutor());
+	}
+
+	/**
+	 * Return a pager which walks through all the indexed documents
+	 * representing Datafiles that satisfy the search constraints, fetching
+	 * the next page in the background. See {@link DocumentPager}.
+	 * 
+	 * @param user
+	 *                     If not null must exactly match the name of a user
+	 *                     related to the data file.
+	 * @param text
+	 *                     If not null a text search for any text in the
+	 *                     data file fields.
+	 * @param lower
+	 *                     If not null the data file end date must be greater than or
+	 *                     equal to this.
+	 * @param upper
+	 *                     If not null the data file start date must be less than or
+	 *                     equal to this.
+	 * @param parameters
+	 *                     If not null all the parameters must match.
+	 * @param pageSize
+	 *                     The number of documents requested in each call.
+	 * @param sort
+	 *                     Json sort specification or null for the default
+	 *                     order by score.
+	 * @param facets
+	 *                     Json array of facet specifications or null for none.
+	 * 
+	 * @return the pager
+	 * 
+	 * @throws IcatException
+	 *                       For various ICAT errors.
+	 */
+	public DocumentPager searchDatafileDocuments(String user, String text, Date lower, Date upper,
+			List<ParameterForLucene> parameters, int pageSize, String sort, JsonArray facets) throws IcatException {
+		checkPageSize(pageSize);
+		return new DocumentPager(searchAfter -> searchDatafiles(user, text, lower, upper, parameters, searchAfter,
+				pageSize, sort, searchAfter == null ? facets : null), icat.getExecutor());
+	}
+
+	private static void checkPageSize(int pageSize) throws IcatException {
+		if (pageSize < 1) {
+			throw new IcatException(IcatExceptionType.BAD_PARAMETER, "Page size must be positive");
+		}
 	}
 
 	/**
@@ -730,7 +1208,7 @@ public class Session {
 	 *                       For various ICAT errors.
 	 */
 	public long cloneEntity(String name, long id, Map<String, String> keys) throws IcatException {
-		return icat.cloneEntity(sessionId, name, id, keys);
+		return renewing(sessionId -> icat.cloneEntity(sessionId, name, id, keys));
 	}
 
 	/**
@@ -745,7 +1223,7 @@ public class Session {
 	 *                       For various ICAT errors.
 	 */
 	public void waitMillis(long ms) throws IcatException {
-		icat.waitMillis(sessionId, ms);
+		idempotentVoid(sessionId -> icat.waitMillis(sessionId, ms));
 	}
 
 	/**
@@ -754,7 +1232,7 @@ public class Session {
 	 * @throws IcatException
 	 */
 	public String list(String path) throws IcatException {
-		return icat.list(sessionId, path);
+		return idempotent(sessionId -> icat.list(sessionId, path));
 	}
 
 }
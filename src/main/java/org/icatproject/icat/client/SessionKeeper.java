@@ -0,0 +1,111 @@
+package org.icatproject.icat.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+
+/**
+ * Keeps registered sessions alive by refreshing them shortly before they
+ * would expire.
+ * <p>
+ * The server is only asked for the remaining time of a session once, when it
+ * is registered. After each refresh the expiry time is calculated from the
+ * lifetimeMinutes property of the server. A single timer thread wakes
+ * periodically and refreshes, one after another, all the sessions which are
+ * due. The refresh time of each session is brought forward by a random part
+ * of the margin so that sessions registered together are not refreshed
+ * together. A session which the server no longer recognises is dropped; after
+ * any other failure the refresh is tried again at the next wake up. If the
+ * lifetime cannot be obtained after a refresh the last one known is used.
+ */
+class SessionKeeper {
+
+	private static class Kept {
+		Session session;
+		long due;
+		long lifetimeMillis;
+	}
+
+	private ICAT icat;
+	private long marginMillis;
+	private ScheduledExecutorService timer;
+	private Map<Session, Kept> sessions = new ConcurrentHashMap<>();
+
+	SessionKeeper(ICAT icat, long intervalMillis, long marginMillis) {
+		this.icat = icat;
+		this.marginMillis = marginMillis;
+		ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = defaultFactory.newThread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(() -> refreshDue(System.currentTimeMillis()), intervalMillis, intervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	void add(Session session) throws IcatException {
+		double remainingMinutes = session.getRemainingMinutes();
+		Kept kept = new Kept();
+		kept.session = session;
+		kept.lifetimeMillis = (long) (remainingMinutes * 60000);
+		schedule(kept, kept.lifetimeMillis);
+		sessions.put(session, kept);
+	}
+
+	boolean remove(Session session) {
+		return sessions.remove(session) != null;
+	}
+
+	void close() {
+		timer.shutdownNow();
+		sessions.clear();
+	}
+
+	private void schedule(Kept kept, long remainingMillis) {
+		long margin = Math.min(marginMillis, remainingMillis / 2);
+		long jitter = ThreadLocalRandom.current().nextLong(margin / 2 + 1);
+		kept.due = System.currentTimeMillis() + remainingMillis - margin - jitter;
+	}
+
+	/** Refresh the sessions which are due at the specified time */
+	void refreshDue(long now) {
+		List<Kept> due = new ArrayList<>();
+		for (Kept kept : sessions.values()) {
+			if (kept.due - now <= 0) {
+				due.add(kept);
+			}
+		}
+		for (Kept kept : due) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			try {
+				kept.session.refresh();
+			} catch (IcatException e) {
+				if (e.getType() == IcatExceptionType.SESSION) {
+					sessions.remove(kept.session, kept);
+				}
+				continue;
+			} catch (RuntimeException e) {
+				/* Don't let it stop the timer; try again next time */
+				continue;
+			}
+			try {
+				kept.lifetimeMillis = icat.getLifetimeMinutes() * 60000L;
+			} catch (IcatException | RuntimeException e) {
+				/* Use the last lifetime known so that it is not refreshed at every wake up */
+			}
+			schedule(kept, kept.lifetimeMillis);
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.icatproject.icat.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * A form holding a sessionId and a Json array of entities which is encoded as
+ * it is written to the connection so that the whole form never needs to be
+ * held in memory.
+ */
+class StreamingFormEntity extends AbstractHttpEntity {
+
+	private String sessionId;
+	private JsonEntityWriter writer;
+
+	StreamingFormEntity(String sessionId, JsonEntityWriter writer) {
+		this.sessionId = sessionId;
+		this.writer = writer;
+		setContentType(ContentType.APPLICATION_FORM_URLENCODED.withCharset(StandardCharsets.UTF_8).toString());
+		setChunked(true);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return false;
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		writeTo(baos);
+		return new ByteArrayInputStream(baos.toByteArray());
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		try (FormEncodingOutputStream encoded = new FormEncodingOutputStream(outstream)) {
+			outstream.write("sessionId=".getBytes(StandardCharsets.US_ASCII));
+			encoded.write(sessionId.getBytes(StandardCharsets.UTF_8));
+			encoded.flush();
+			outstream.write("&entities=".getBytes(StandardCharsets.US_ASCII));
+			try (JsonGenerator gen = Json.createGenerator(encoded)) {
+				gen.writeStartArray();
+				writer.writeEntities(gen);
+				gen.writeEnd();
+			}
+		}
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+}
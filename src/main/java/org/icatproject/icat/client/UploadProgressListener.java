@@ -0,0 +1,19 @@
+package org.icatproject.icat.client;
+
+/**
+ * Receives reports of the progress of sending a file to ICAT, as with
+ * {@link Session#importMetaData(java.nio.file.Path, Session.DuplicateAction, Session.Attributes, UploadProgressListener)}.
+ */
+public interface UploadProgressListener {
+
+	/**
+	 * Called by the thread sending the file each time a block has been sent
+	 *
+	 * @param bytesSent
+	 *                   the number of bytes of the file sent so far
+	 * @param totalBytes
+	 *                   the length of the file
+	 */
+	void progress(long bytesSent, long totalBytes);
+
+}
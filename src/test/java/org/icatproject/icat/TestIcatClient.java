@@ -10,9 +10,12 @@ import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.json.Json;
 import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
 import jakarta.json.JsonValue;
 import jakarta.json.stream.JsonGenerator;
 
@@ -20,6 +23,7 @@ import org.icatproject.icat.client.ICAT;
 import org.icatproject.icat.client.IcatException;
 import org.icatproject.icat.client.IcatException.IcatExceptionType;
 import org.icatproject.icat.client.Session;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -66,6 +70,11 @@ public class TestIcatClient {
 
 	}
 
+	@After
+	public void teardown() {
+		icat.close();
+	}
+
 	@Test
 	public void testGet() throws Exception {
 		long fid = Json.createReader(new ByteArrayInputStream(session.search("Facility.id").getBytes())).readArray()
@@ -75,9 +84,16 @@ public class TestIcatClient {
 				.getJsonObject("Facility");
 	}
 
+	@Test
+	public void testSearchStream() throws Exception {
+		try (Stream<JsonValue> results = session.searchStream("SELECT f.name FROM Facility f")) {
+			assertEquals(Arrays.asList("Test Facility"),
+					results.map(v -> ((JsonString) v).getString()).collect(Collectors.toList()));
+		}
+	}
+
 	@Test
 	public void testSession() throws Exception {
-		ICAT icat = new ICAT(System.getProperty("serverUrl"));
 		assertFalse(icat.isLoggedIn("mnemonic/rubbish"));
 		assertFalse(icat.isLoggedIn("rubbish"));
 		Map<String, String> credentials = new HashMap<>();
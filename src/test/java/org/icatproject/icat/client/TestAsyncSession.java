@@ -0,0 +1,127 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import jakarta.json.Json;
+import jakarta.json.JsonValue;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAsyncSession {
+
+	private ICAT icat;
+	private Session session;
+	private CountDownLatch streamRequested = new CountDownLatch(1);
+	private CountDownLatch streamReleased = new CountDownLatch(1);
+	private CountDownLatch streamClosed = new CountDownLatch(1);
+
+	@Before
+	public void setup() throws Exception {
+		/* One thread each for async calls and background work */
+		icat = new ICAT("http://localhost:1", new ClientSettings().setMaxConcurrentRequests(1));
+		session = new Session(icat, "sid") {
+
+			@Override
+			public String search(String query) throws IcatException {
+				if (query.isEmpty()) {
+					throw new IcatException(IcatExceptionType.BAD_PARAMETER, "empty query");
+				} else if (query.equals("background")) {
+					try {
+						return icat.getExecutor().submit(() -> "[\"done\"]").get();
+					} catch (InterruptedException | ExecutionException e) {
+						throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+					}
+				}
+				return "[\"" + query + "\"]";
+			}
+
+			@Override
+			public List<Long> write(String entities) throws IcatException {
+				return List.of(42L);
+			}
+
+			@Override
+			public Stream<JsonValue> searchStream(String query) throws IcatException {
+				streamRequested.countDown();
+				try {
+					streamReleased.await();
+				} catch (InterruptedException e) {
+					throw new IcatException(IcatExceptionType.INTERNAL, e.getClass() + " " + e.getMessage());
+				}
+				return Stream.of((JsonValue) Json.createValue(query)).onClose(streamClosed::countDown);
+			}
+		};
+	}
+
+	@After
+	public void teardown() {
+		icat.close();
+	}
+
+	@Test
+	public void results() throws Exception {
+		AsyncSession async = session.async();
+		assertSame(session, async.getSession());
+		CompletableFuture<String> search = async.search("q");
+		CompletableFuture<List<Long>> write = async.write("{}");
+		assertEquals("[\"q\"]", search.get());
+		assertEquals(List.of(42L), write.get());
+		assertEquals(List.of("[\"a\"]", "[\"b\"]"), async.searchAll(List.of("a", "b"), 2).get());
+		assertEquals(List.of(42L, 42L), async.writeChunked(List.of("{}", "{}"), 1, 100, 2).get());
+	}
+
+	@Test
+	public void failureIsTheCause() throws Exception {
+		try {
+			session.async().search("").get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IcatException);
+			assertEquals(IcatExceptionType.BAD_PARAMETER, ((IcatException) e.getCause()).getType());
+		}
+	}
+
+	@Test
+	public void callsAfterCloseAreRejected() throws Exception {
+		icat.close();
+		try {
+			session.async().search("q").get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	@Test
+	public void backgroundWorkIsNotQueuedBehindAsyncCalls() throws Exception {
+		/* Each call holds the only async thread while it waits for background work */
+		CompletableFuture<String> first = session.async().search("background");
+		CompletableFuture<String> second = session.async().search("background");
+		assertEquals("[\"done\"]", first.get(10, TimeUnit.SECONDS));
+		assertEquals("[\"done\"]", second.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cancelledStreamIsClosed() throws Exception {
+		CompletableFuture<Stream<JsonValue>> future = session.async().searchStream("q");
+		assertTrue(streamRequested.await(10, TimeUnit.SECONDS));
+		future.cancel(false);
+		streamReleased.countDown();
+		assertTrue(streamClosed.await(10, TimeUnit.SECONDS));
+	}
+
+}
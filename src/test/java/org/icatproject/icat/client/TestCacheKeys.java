@@ -0,0 +1,51 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestCacheKeys {
+
+	@Test
+	public void normalise() {
+		assertEquals("SELECT d FROM Dataset d WHERE d.name = 'a  b' ORDER BY d.id",
+				SearchKey.normalise("  select d\tfrom Dataset d\n where d.name = 'a  b'   order by d.id  "));
+		assertEquals("SELECT x.order FROM Thing x WHERE x.name = 'it''s  here'",
+				SearchKey.normalise("select x.order from Thing x where x.name = 'it''s  here'"));
+		assertEquals(new SearchKey("u", "SELECT f FROM Facility f"), new SearchKey("u", "select  f from Facility f"));
+		assertNotEquals(new SearchKey("u", "SELECT f FROM Facility f"), new SearchKey("v", "SELECT f FROM Facility f"));
+	}
+
+	@Test
+	public void searchKeyIsAffected() {
+		SearchKey key = new SearchKey("u", "SELECT df FROM Datafile df WHERE df.dataset.name = 'x'");
+		assertTrue(key.isAffectedBy(Set.of("Datafile")));
+		assertTrue(key.isAffectedBy(Set.of("Dataset")));
+		assertFalse(key.isAffectedBy(Set.of("Investigation")));
+		assertTrue(new SearchKey("u", "SELECT f FROM Facility f INCLUDE 1").isAffectedBy(Set.of("Investigation")));
+	}
+
+	@Test
+	public void entityKeyIsAffected() {
+		assertTrue(new EntityKey("u", "Dataset", 1).isAffectedBy(Set.of("Dataset")));
+		assertFalse(new EntityKey("u", "Dataset", 1).isAffectedBy(Set.of("Datafile")));
+		assertTrue(new EntityKey("u", "Dataset INCLUDE Datafile", 1).isAffectedBy(Set.of("Investigation")));
+	}
+
+	@Test
+	public void writtenTypes() {
+		assertEquals(Set.of("Facility"), ICAT.getEntityTypes("{\"Facility\":{\"name\":\"F\"}}"));
+		assertEquals(Set.of("Dataset", "Datafile"), ICAT.getEntityTypes(
+				"[{\"Dataset\":{\"name\":\"a\",\"investigation\":{\"id\":1}}},{\"Datafile\":{\"name\":\"b\"}}]"));
+		assertNull(ICAT.getEntityTypes("{\"Dataset\":{\"name\":\"a\",\"datafiles\":[{\"name\":\"b\"}]}}"));
+		assertNull(ICAT.getEntityTypes("[{\"Dataset\":{\"name\":\"a\",\"datafiles\":[]}}]"));
+		assertNull(ICAT.getEntityTypes("{\"Dataset\":"));
+	}
+
+}
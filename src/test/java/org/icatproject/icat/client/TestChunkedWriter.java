@@ -0,0 +1,113 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonReader;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestChunkedWriter {
+
+	private ICAT icat;
+	private Session session;
+	private List<String> chunks;
+
+	@Before
+	public void setup() throws Exception {
+		icat = new ICAT("http://localhost:1");
+		chunks = Collections.synchronizedList(new ArrayList<>());
+		/* Each entity is a number which is returned as its id; 7 is rejected */
+		session = new Session(icat, "sid") {
+
+			@Override
+			public List<Long> write(String entities) throws IcatException {
+				chunks.add(entities);
+				JsonArray array;
+				try (JsonReader reader = Json.createReader(new StringReader(entities))) {
+					array = reader.readArray();
+				}
+				List<Long> ids = new ArrayList<>();
+				for (int i = 0; i < array.size(); i++) {
+					long id = array.getJsonNumber(i).longValue();
+					if (id == 7) {
+						throw new IcatException(IcatExceptionType.VALIDATION, "seven", i);
+					}
+					ids.add(id);
+				}
+				return ids;
+			}
+		};
+	}
+
+	@After
+	public void teardown() {
+		icat.close();
+	}
+
+	private static List<String> numbers(int from, int to) {
+		List<String> numbers = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			numbers.add(Integer.toString(i));
+		}
+		return numbers;
+	}
+
+	@Test
+	public void idsInInputOrder() throws Exception {
+		List<Long> ids = session.writeChunked(numbers(10, 35), 4, 1000, 3);
+		assertEquals(25, ids.size());
+		for (int i = 0; i < 25; i++) {
+			assertEquals(Long.valueOf(10 + i), ids.get(i));
+		}
+		assertEquals(7, chunks.size());
+	}
+
+	@Test
+	public void chunksBoundedBySize() throws Exception {
+		session.writeChunked(numbers(10, 20), 100, 10, 1);
+		for (String chunk : chunks) {
+			assertTrue(chunk, chunk.length() <= 10);
+		}
+		assertEquals("[10,11,12]", chunks.get(0));
+	}
+
+	@Test
+	public void oversizedEntityWrittenAlone() throws Exception {
+		assertEquals(List.of(123456789L, 1L), session.writeChunked(List.of("123456789", "1"), 100, 5, 1));
+		assertEquals(List.of("[123456789]", "[1]"), chunks);
+	}
+
+	@Test
+	public void offsetRemapped() throws Exception {
+		try {
+			session.writeChunked(numbers(0, 20), 3, 1000, 2);
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.VALIDATION, e.getType());
+			assertEquals(7, e.getOffset());
+		}
+	}
+
+	@Test
+	public void badLimits() throws Exception {
+		try {
+			session.writeChunked(numbers(0, 2), 0, 1000, 1);
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFileContentBody {
+
+	private Path file;
+	private byte[] data;
+
+	@Before
+	public void setup() throws IOException {
+		file = Files.createTempFile("body", ".dat");
+		data = new byte[200000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Files.write(file, data);
+	}
+
+	@After
+	public void teardown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Test
+	public void sendNanos() {
+		assertEquals(0, FileContentBody.getSendNanos(0, 1000));
+		assertEquals(500_000_000L, FileContentBody.getSendNanos(500, 1000));
+		assertEquals(2_500_000_000L, FileContentBody.getSendNanos(2500, 1000));
+		assertEquals(333_333_333L, FileContentBody.getSendNanos(1, 3));
+	}
+
+	@Test
+	public void largeFilesDoNotOverflow() {
+		/* 100 GB at 1 MB/s; bytes * 1e9 would overflow a long */
+		long bytes = 100_000_000_000L;
+		assertEquals(100_000L * 1_000_000_000L, FileContentBody.getSendNanos(bytes, 1_000_000));
+		assertEquals(Long.MAX_VALUE / 1000 * 1000, FileContentBody.getSendNanos(Long.MAX_VALUE / 1000 * 1000,
+				1_000_000_000));
+	}
+
+	@Test
+	public void content() throws Exception {
+		List<Long> progress = new ArrayList<>();
+		FileContentBody body = new FileContentBody(file, data.length, (sent, total) -> progress.add(sent), 0);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		body.writeTo(baos);
+		assertEquals(data.length, body.getContentLength());
+		assertEquals(data.length, baos.size());
+		assertEquals(Long.valueOf(data.length), progress.get(progress.size() - 1));
+	}
+
+	@Test
+	public void throttled() throws Exception {
+		FileContentBody body = new FileContentBody(file, data.length, null, 1_000_000);
+		long start = System.nanoTime();
+		body.writeTo(new ByteArrayOutputStream());
+		assertTrue(System.nanoTime() - start >= 150_000_000L);
+	}
+
+	@Test
+	public void shortFile() throws Exception {
+		FileContentBody body = new FileContentBody(file, data.length + 1, null, 0);
+		try {
+			body.writeTo(new ByteArrayOutputStream());
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("shorter"));
+		}
+	}
+
+}
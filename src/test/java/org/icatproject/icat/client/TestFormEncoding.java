@@ -0,0 +1,70 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TestFormEncoding {
+
+	private static String encode(String text) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (FormEncodingOutputStream encoded = new FormEncodingOutputStream(baos)) {
+			encoded.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+		return baos.toString(StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void matchesUrlEncoder() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (char c = 0; c < 256; c++) {
+			sb.append(c);
+		}
+		sb.append(" é€😀 {\"name\":\"a&b=c+d%\"}");
+		String text = sb.toString();
+		assertEquals(URLEncoder.encode(text, StandardCharsets.UTF_8), encode(text));
+	}
+
+	@Test
+	public void largerThanBuffer() throws Exception {
+		String text = "é x".repeat(10000);
+		assertEquals(URLEncoder.encode(text, StandardCharsets.UTF_8), encode(text));
+	}
+
+	@Test
+	public void closeLeavesStreamOpen() throws Exception {
+		boolean[] closed = new boolean[1];
+		ByteArrayOutputStream baos = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		try (FormEncodingOutputStream encoded = new FormEncodingOutputStream(baos)) {
+			encoded.write('a');
+		}
+		assertFalse(closed[0]);
+		assertEquals("a", baos.toString(StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void streamingForm() throws Exception {
+		StreamingFormEntity entity = new StreamingFormEntity("id&1", generator -> {
+			generator.writeStartObject().writeStartObject("Facility").write("name", "a b&c").writeEnd().writeEnd();
+		});
+		String form = new String(entity.getContent().readAllBytes(), StandardCharsets.US_ASCII);
+		String[] parts = form.split("&");
+		assertEquals(2, parts.length);
+		assertEquals("sessionId=" + URLEncoder.encode("id&1", StandardCharsets.UTF_8), parts[0]);
+		assertEquals("entities=[{\"Facility\":{\"name\":\"a b&c\"}}]",
+				"entities=" + URLDecoder.decode(parts[1].substring("entities=".length()), StandardCharsets.UTF_8));
+	}
+
+}
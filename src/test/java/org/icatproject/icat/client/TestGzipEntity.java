@@ -0,0 +1,53 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.entity.StringEntity;
+import org.junit.Test;
+
+public class TestGzipEntity {
+
+	private static final String text = "sessionId=abc&entities=" + "x".repeat(100000);
+
+	private static String gunzip(InputStream in) throws IOException {
+		try (GZIPInputStream gzip = new GZIPInputStream(in)) {
+			return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	public void writeTo() throws Exception {
+		GzipEntity entity = new GzipEntity(new StringEntity(text, StandardCharsets.UTF_8), Deflater.BEST_SPEED);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		entity.writeTo(baos);
+		assertEquals(text, gunzip(new ByteArrayInputStream(baos.toByteArray())));
+		assertTrue(baos.size() < text.length() / 10);
+	}
+
+	@Test
+	public void headers() throws Exception {
+		GzipEntity entity = new GzipEntity(new StringEntity(text, StandardCharsets.UTF_8), 6);
+		assertEquals("gzip", entity.getContentEncoding().getValue());
+		assertEquals(-1, entity.getContentLength());
+		assertTrue(entity.isChunked());
+	}
+
+	@Test
+	public void contentMatchesWhatIsWritten() throws Exception {
+		GzipEntity entity = new GzipEntity(new StringEntity(text, StandardCharsets.UTF_8), 6);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		entity.writeTo(baos);
+		assertEquals(text, gunzip(entity.getContent()));
+		assertEquals(baos.size(), entity.getContent().readAllBytes().length);
+	}
+
+}
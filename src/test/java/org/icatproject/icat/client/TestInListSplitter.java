@@ -0,0 +1,76 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestInListSplitter {
+
+	@Test
+	public void split() throws Exception {
+		InListSplitter splitter = InListSplitter.of("SELECT d FROM Dataset d WHERE d.id IN (1, 2,3 ,4, 5)");
+		assertNotNull(splitter);
+		String query = "SELECT d FROM Dataset d WHERE d.id IN (1, 2)";
+		int maxLength = encodedLength(query);
+		assertEquals(Arrays.asList("SELECT d FROM Dataset d WHERE d.id IN (1, 2)",
+				"SELECT d FROM Dataset d WHERE d.id IN (3, 4)", "SELECT d FROM Dataset d WHERE d.id IN (5)"),
+				splitter.split(0, maxLength));
+		assertEquals(Arrays.asList("SELECT d FROM Dataset d WHERE d.id IN (1, 2, 3, 4, 5)"),
+				splitter.split(0, 10000));
+		assertNull(splitter.split(0, 10));
+	}
+
+	@Test
+	public void longestListIsSplit() throws Exception {
+		InListSplitter splitter = InListSplitter
+				.of("SELECT d FROM Dataset d WHERE d.investigation.id IN (7, 8) AND d.id IN (1, 2, 3)");
+		List<String> parts = splitter.split(0, encodedLength(
+				"SELECT d FROM Dataset d WHERE d.investigation.id IN (7, 8) AND d.id IN (1, 2)"));
+		assertEquals(Arrays.asList("SELECT d FROM Dataset d WHERE d.investigation.id IN (7, 8) AND d.id IN (1, 2)",
+				"SELECT d FROM Dataset d WHERE d.investigation.id IN (7, 8) AND d.id IN (3)"), parts);
+	}
+
+	@Test
+	public void unsplittable() throws Exception {
+		for (String query : Arrays.asList("SELECT d FROM Dataset d WHERE d.id NOT IN (1, 2, 3)",
+				"SELECT d FROM Dataset d WHERE NOT (d.id IN (1, 2, 3))",
+				"SELECT d FROM Dataset d WHERE d.id IN (1, 2, 3) OR d.name = 'x'",
+				"SELECT d FROM Dataset d WHERE d.name = 'x' or d.id IN (1, 2, 3)",
+				"SELECT d FROM Dataset d WHERE d.id IN (1, 2, 3) ORDER BY d.id",
+				"SELECT d FROM Dataset d WHERE d.id IN (1, 2, 3) LIMIT 0, 10",
+				"SELECT COUNT(d) FROM Dataset d WHERE d.id IN (1, 2, 3)",
+				"SELECT d FROM Dataset d WHERE d.id IN (1)", "SELECT d FROM Dataset d")) {
+			assertNull(query, InListSplitter.of(query));
+		}
+	}
+
+	@Test
+	public void stringLiteralsAreIgnored() throws Exception {
+		String query = "SELECT d FROM Dataset d WHERE d.name = 'this OR that ORDER BY' AND d.id IN (1, 2, 3)";
+		InListSplitter splitter = InListSplitter.of(query);
+		assertNotNull(splitter);
+		assertEquals(Arrays.asList(query), splitter.split(0, 10000));
+		assertNull(InListSplitter.of("SELECT d FROM Dataset d WHERE d.name = 'IN (1, 2, 3)'"));
+	}
+
+	@Test
+	public void merge() throws Exception {
+		List<String> results = Arrays.asList("[1,2,{\"a\":1}]", "[2,3,{\"a\":1}]", "[]");
+		assertEquals("[1,2,{\"a\":1},2,3,{\"a\":1}]",
+				InListSplitter.of("SELECT d.id FROM Dataset d WHERE d.id IN (1, 2, 3)").merge(results));
+		assertEquals("[1,2,{\"a\":1},3]",
+				InListSplitter.of("SELECT DISTINCT d.id FROM Dataset d WHERE d.id IN (1, 2, 3)").merge(results));
+	}
+
+	private static int encodedLength(String s) {
+		return URLEncoder.encode(s, StandardCharsets.UTF_8).length();
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+	private static void checkBucket(long value) {
+		int index = LatencyHistogram.index(value);
+		assertTrue(index >= 0 && index < 960);
+		long highest = LatencyHistogram.highestValue(index);
+		long lowest = index == 0 ? 0 : LatencyHistogram.highestValue(index - 1) + 1;
+		assertTrue(value + " not in [" + lowest + ", " + highest + "]", lowest <= value && value <= highest);
+		assertTrue(value + " in bucket up to " + highest, highest - value <= Math.max(0, value / 16));
+	}
+
+	@Test
+	public void bucketBounds() {
+		for (long value = 0; value < 100000; value++) {
+			checkBucket(value);
+		}
+		for (int shift = 4; shift < 63; shift++) {
+			long power = 1L << shift;
+			checkBucket(power - 1);
+			checkBucket(power);
+			checkBucket(power + 1);
+		}
+		checkBucket(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE)));
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < 100000; i++) {
+			checkBucket(random.nextLong(Long.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void bucketsAreContiguous() {
+		for (int index = 1; index < 960; index++) {
+			long lowest = LatencyHistogram.highestValue(index - 1) + 1;
+			assertEquals(index, LatencyHistogram.index(lowest));
+			assertEquals(index, LatencyHistogram.index(LatencyHistogram.highestValue(index)));
+		}
+	}
+
+	@Test
+	public void statistics() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(0.5));
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+		histogram.record(-5);
+		assertEquals(1001, histogram.getCount());
+		assertEquals(1000000, histogram.getMax());
+		assertEquals(500500000.0 / 1001, histogram.getMean(), 1e-6);
+		long median = histogram.getPercentile(0.5);
+		assertTrue(median >= 500000 && median <= 500000 + 500000 / 16);
+		assertEquals(1000000, histogram.getPercentile(1));
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+}
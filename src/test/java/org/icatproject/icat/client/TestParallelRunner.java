@@ -0,0 +1,111 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestParallelRunner {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void resultsInOrder() throws Exception {
+		List<Integer> results = ParallelRunner.run(executor, 20, 4, i -> {
+			sleep((20 - i) % 3);
+			return i * i;
+		});
+		assertEquals(20, results.size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i * i), results.get(i));
+		}
+	}
+
+	@Test
+	public void lowestIndexFailureWins() throws Exception {
+		try {
+			ParallelRunner.run(executor, 6, 3, i -> {
+				if (i == 1) {
+					sleep(200);
+					throw new IcatException(IcatExceptionType.VALIDATION, "one");
+				} else if (i == 2) {
+					throw new IcatException(IcatExceptionType.BAD_PARAMETER, "two");
+				}
+				return i;
+			});
+			fail();
+		} catch (IcatException e) {
+			assertEquals(IcatExceptionType.VALIDATION, e.getType());
+			assertEquals("one", e.getMessage());
+		}
+	}
+
+	@Test
+	public void noTasksStartAfterFailure() throws Exception {
+		AtomicInteger started = new AtomicInteger();
+		try {
+			ParallelRunner.run(executor, 100, 1, i -> {
+				started.incrementAndGet();
+				if (i == 5) {
+					throw new IcatException(IcatExceptionType.INTERNAL, "five");
+				}
+				return i;
+			});
+			fail();
+		} catch (IcatException e) {
+			assertEquals("five", e.getMessage());
+		}
+		assertEquals(6, started.get());
+	}
+
+	@Test
+	public void sourceFailure() throws Exception {
+		int[] next = new int[1];
+		try {
+			ParallelRunner.run(executor, 2, () -> {
+				if (next[0] == 3) {
+					throw new IcatException(IcatExceptionType.BAD_PARAMETER, "source");
+				}
+				int i = next[0]++;
+				return () -> i;
+			});
+			fail();
+		} catch (IcatException e) {
+			assertEquals("source", e.getMessage());
+		}
+	}
+
+	@Test
+	public void saturatedExecutor() throws Exception {
+		ExecutorService none = Executors.newSingleThreadExecutor();
+		none.shutdown();
+		assertEquals(List.of(0, 1, 2), ParallelRunner.run(none, 3, 4, i -> i));
+	}
+
+}
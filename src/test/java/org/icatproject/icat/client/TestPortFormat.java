@@ -0,0 +1,141 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.Test;
+
+public class TestPortFormat {
+
+	private static PortReader reader(String text) throws IcatException {
+		return new PortReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		Date date = Date.from(Instant.parse("2021-03-04T05:06:07.089Z"));
+		List<Object> first = Arrays.asList("plain", "a \"quoted\", \\ 'string'\twith\nbreaks\r\f\b", null, true,
+				42L, 2.5, 1e300, date);
+		List<Object> second = Arrays.asList("", null, false, -1L, -0.125, null, null, null);
+		EntityDescriptor investigation = new EntityDescriptor(
+				"Investigation(facility(name:0), name:1, visitId:2, open:3, size:4, a:5, b:6, startDate:7)");
+		EntityDescriptor anonymous = new EntityDescriptor("DataCollection(?:0)");
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (PortWriter writer = new PortWriter(baos, "4.0")) {
+			writer.writeDescriptor(investigation);
+			writer.writeRow(first);
+			writer.writeRow(second);
+			writer.writeDescriptor(anonymous);
+			writer.writeRow("a");
+			writer.writeRow("b");
+		}
+
+		try (PortReader reader = reader(baos.toString(StandardCharsets.UTF_8))) {
+			assertEquals("4.0", reader.getVersion());
+			EntityDescriptor descriptor = reader.nextDescriptor();
+			assertEquals(investigation.toString(), descriptor.toString());
+			assertEquals(8, descriptor.getColumnCount());
+			assertFalse(descriptor.hasAnonymousVariable());
+			assertEquals(first, new ArrayList<>(reader.nextRow()));
+			assertEquals(second, new ArrayList<>(reader.nextRow()));
+			assertNull(reader.nextRow());
+
+			descriptor = reader.nextDescriptor();
+			assertEquals("DataCollection", descriptor.getEntityType());
+			assertTrue(descriptor.hasAnonymousVariable());
+			assertEquals(Map.of("?", 0), descriptor.getOffsets());
+			assertEquals(Arrays.asList("a"), reader.nextRow());
+			assertEquals(Arrays.asList("b"), reader.nextRow());
+			assertNull(reader.nextRow());
+			assertNull(reader.nextDescriptor());
+		}
+	}
+
+	@Test
+	public void descriptorPaths() throws Exception {
+		EntityDescriptor descriptor = new EntityDescriptor(
+				"Dataset(investigation(facility(name:0), name:1, visitId:2), name:3, type(facility(name:0), name:4))");
+		assertEquals("Dataset", descriptor.getEntityType());
+		assertEquals(Arrays.asList("investigation.facility.name", "investigation.name", "investigation.visitId",
+				"name", "type.facility.name", "type.name"), new ArrayList<>(descriptor.getOffsets().keySet()));
+		assertEquals(5, descriptor.getColumnCount());
+		for (String text : Arrays.asList("Dataset", "(name:0)", "Dataset(name)", "Dataset(name:0", "Dataset(name:0) x")) {
+			try {
+				new EntityDescriptor(text);
+				fail(text);
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+			}
+		}
+	}
+
+	@Test
+	public void commentsAndTimestamps() throws Exception {
+		try (PortReader reader = reader("# comment\n\n1.0\n\n# about Facility\nFacility(name:0, d:1)\n"
+				+ "# a comment row\n\"F\", 2020-01-02T03:04:05+01:00\n")) {
+			assertEquals("1.0", reader.getVersion());
+			assertEquals("Facility", reader.nextDescriptor().getEntityType());
+			assertEquals(Arrays.asList("F", Date.from(Instant.parse("2020-01-02T02:04:05Z"))), reader.nextRow());
+			assertNull(reader.nextRow());
+		}
+	}
+
+	@Test
+	public void rowsCopiedAsText() throws Exception {
+		String row = "\"F\", 2020-01-02T03:04:05";
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (PortReader reader = reader("4.0\n\nFacility(name:0, d:1)\n# skipped\n" + row + "\n\n");
+				PortWriter writer = new PortWriter(baos, "4.0")) {
+			writer.writeDescriptor(reader.nextDescriptor());
+			String text;
+			while ((text = reader.nextRowText()) != null) {
+				writer.writeRowText(text);
+			}
+			assertNull(reader.nextDescriptor());
+		}
+		String copy = baos.toString(StandardCharsets.UTF_8);
+		assertTrue(copy, copy.endsWith("Facility(name:0, d:1)\n" + row + "\n"));
+		assertFalse(copy, copy.contains("skipped"));
+	}
+
+	@Test
+	public void invalidRows() throws Exception {
+		for (String row : Arrays.asList("\"open", "\"bad \\q escape\"", "1,,2", "NaN", "\"a\" \"b\"")) {
+			try (PortReader reader = reader("1.0\n\nFacility(name:0)\n" + row + "\n")) {
+				reader.nextDescriptor();
+				reader.nextRow();
+				fail(row);
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+			}
+		}
+	}
+
+	@Test
+	public void nonFiniteValuesAreRejected() throws Exception {
+		for (Object value : Arrays.asList(Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY)) {
+			try (PortWriter writer = new PortWriter(new ByteArrayOutputStream(), "4.0")) {
+				writer.writeRow(value);
+				fail(value.toString());
+			} catch (IcatException e) {
+				assertEquals(IcatExceptionType.BAD_PARAMETER, e.getType());
+			}
+		}
+	}
+
+}
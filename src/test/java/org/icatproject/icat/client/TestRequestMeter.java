@@ -0,0 +1,22 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestRequestMeter {
+
+	@Test
+	public void endpoints() {
+		assertEquals("version", RequestMeter.getEndpoint("/icat", "/icat/version"));
+		assertEquals("session", RequestMeter.getEndpoint("/icat", "/icat/session"));
+		assertEquals("session", RequestMeter.getEndpoint("/icat", "/icat/session/abc-123"));
+		assertEquals("entityManager", RequestMeter.getEndpoint("/icat", "/icat/entityManager"));
+		assertEquals("search/documents", RequestMeter.getEndpoint("/icat", "/icat/search/documents"));
+		assertEquals("lucene/data", RequestMeter.getEndpoint("/icat", "/icat/lucene/data"));
+		assertEquals("lucene/db", RequestMeter.getEndpoint("/icat", "/icat/lucene/db/Investigation/10"));
+		assertEquals("lucene", RequestMeter.getEndpoint("/icat", "/icat/lucene"));
+		assertEquals("port", RequestMeter.getEndpoint("/icat", "/icat/port"));
+	}
+
+}
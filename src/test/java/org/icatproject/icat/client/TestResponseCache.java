@@ -0,0 +1,75 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class TestResponseCache {
+
+	/* Each key with a three character value occupies 31 characters */
+	private static EntityKey key(long id) {
+		return new EntityKey("u", "Dataset", id);
+	}
+
+	private static ResponseCache<EntityKey> cache(long maxCharacters) {
+		return new ResponseCache<>(new CacheSettings().setMaxCharacters(maxCharacters).setTtlSeconds(60));
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		ResponseCache<EntityKey> cache = cache(70);
+		cache.put(key(1), "one", cache.getGeneration());
+		cache.put(key(2), "two", cache.getGeneration());
+		assertEquals("one", cache.get(key(1)));
+		cache.put(key(3), "thr", cache.getGeneration());
+		assertEquals("one", cache.get(key(1)));
+		assertNull(cache.get(key(2)));
+		assertEquals("thr", cache.get(key(3)));
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.getEvictions());
+		assertEquals(2, statistics.getEntries());
+		assertEquals(62, statistics.getCharacters());
+		assertEquals(3, statistics.getHits());
+		assertEquals(1, statistics.getMisses());
+	}
+
+	@Test
+	public void oversizedValueIsNotStored() {
+		ResponseCache<EntityKey> cache = cache(30);
+		cache.put(key(1), "one", cache.getGeneration());
+		assertNull(cache.get(key(1)));
+		assertEquals(0, cache.getStatistics().getCharacters());
+	}
+
+	@Test
+	public void expiredEntryIsDropped() {
+		ResponseCache<EntityKey> cache = cache(1000);
+		cache.put(key(1), "one", 0, cache.getGeneration());
+		assertNull(cache.get(key(1)));
+		assertEquals(0, cache.getStatistics().getEntries());
+	}
+
+	@Test
+	public void staleGenerationIsNotStored() {
+		ResponseCache<EntityKey> cache = cache(1000);
+		long generation = cache.getGeneration();
+		cache.invalidate(key -> true);
+		cache.put(key(1), "one", generation);
+		assertNull(cache.get(key(1)));
+	}
+
+	@Test
+	public void invalidate() {
+		ResponseCache<EntityKey> cache = cache(1000);
+		cache.put(key(1), "one", cache.getGeneration());
+		cache.put(key(2), "two", cache.getGeneration());
+		cache.invalidate(key -> key.equals(key(1)));
+		assertNull(cache.get(key(1)));
+		assertEquals("two", cache.get(key(2)));
+		cache.clear();
+		assertNull(cache.get(key(2)));
+		assertEquals(0, cache.getStatistics().getCharacters());
+	}
+
+}
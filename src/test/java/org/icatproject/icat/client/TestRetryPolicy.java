@@ -0,0 +1,57 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLException;
+
+import org.junit.Test;
+
+public class TestRetryPolicy {
+
+	@Test
+	public void delaysGrowToTheMaximum() {
+		RetryPolicy policy = new RetryPolicy().setBaseDelayMillis(100).setMaxDelayMillis(1000);
+		long[] limits = { 100, 200, 400, 800, 1000, 1000 };
+		for (int i = 0; i < limits.length; i++) {
+			for (int n = 0; n < 200; n++) {
+				long delay = policy.getDelayMillis(i + 2);
+				assertTrue(delay >= 0 && delay <= limits[i]);
+			}
+		}
+		for (int n = 0; n < 200; n++) {
+			long delay = policy.getDelayMillis(1000);
+			assertTrue(delay >= 0 && delay <= 1000);
+		}
+	}
+
+	@Test
+	public void zeroDelay() {
+		assertEquals(0, new RetryPolicy().setBaseDelayMillis(0).getDelayMillis(5));
+		assertEquals(0, new RetryPolicy().setMaxDelayMillis(0).getDelayMillis(2));
+	}
+
+	@Test
+	public void retryable() {
+		RetryPolicy policy = new RetryPolicy();
+		assertTrue(policy.isRetryable(new IOException()));
+		assertTrue(policy.isRetryable(new SocketTimeoutException()));
+		assertFalse(policy.isRetryable(new UnknownHostException()));
+		assertFalse(policy.isRetryable(new SSLException("handshake")));
+		assertTrue(policy.isRetryable(503));
+		assertFalse(policy.isRetryable(500));
+		assertFalse(policy.isRetryable(404));
+		assertEquals(1, RetryPolicy.none().getMaxAttempts());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void noAttempts() {
+		new RetryPolicy().setMaxAttempts(0);
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.icatproject.icat.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.icatproject.icat.client.IcatException.IcatExceptionType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSessionKeeper {
+
+	/** A session which is about to expire and counts its refreshes */
+	private static class ExpiringSession extends Session {
+
+		private AtomicInteger refreshes = new AtomicInteger();
+		private volatile IcatExceptionType failure;
+
+		ExpiringSession(ICAT icat) {
+			super(icat, "sid");
+		}
+
+		@Override
+		public double getRemainingMinutes() {
+			return 0;
+		}
+
+		@Override
+		public void refresh() throws IcatException {
+			refreshes.incrementAndGet();
+			if (failure != null) {
+				throw new IcatException(failure, "refresh failed");
+			}
+		}
+	}
+
+	private ICAT icat;
+	private SessionKeeper keeper;
+
+	@Before
+	public void setup() throws Exception {
+		icat = new ICAT("http://localhost:1") {
+
+			@Override
+			int getLifetimeMinutes() {
+				return 120;
+			}
+		};
+		keeper = new SessionKeeper(icat, 10, 60000);
+	}
+
+	@After
+	public void teardown() {
+		keeper.close();
+		icat.close();
+	}
+
+	@Test
+	public void refreshedOnceThenRescheduled() throws Exception {
+		ExpiringSession session = new ExpiringSession(icat);
+		keeper.add(session);
+		Thread.sleep(200);
+		assertEquals(1, session.refreshes.get());
+		assertTrue(keeper.remove(session));
+	}
+
+	@Test
+	public void unknownSessionIsDropped() throws Exception {
+		ExpiringSession session = new ExpiringSession(icat);
+		session.failure = IcatExceptionType.SESSION;
+		keeper.add(session);
+		Thread.sleep(200);
+		assertEquals(1, session.refreshes.get());
+		assertFalse(keeper.remove(session));
+	}
+
+	@Test
+	public void otherFailureIsRetried() throws Exception {
+		ExpiringSession session = new ExpiringSession(icat);
+		session.failure = IcatExceptionType.INTERNAL;
+		keeper.add(session);
+		Thread.sleep(200);
+		assertTrue(session.refreshes.get() > 1);
+		assertTrue(keeper.remove(session));
+	}
+
+}